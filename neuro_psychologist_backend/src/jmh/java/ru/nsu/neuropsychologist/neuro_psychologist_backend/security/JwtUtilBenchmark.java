@@ -0,0 +1,70 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.security;
+
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.entity.User;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the JWT work done on authenticated requests (a full parseToken for a new token,
+ * cachedVerify for a repeated one) and on login.
+ *
+ * Run with: ./mvnw -Pbenchmarks test-compile exec:exec -Djmh.args="-prof gc JwtUtilBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class JwtUtilBenchmark {
+
+    private JwtUtil jwtUtil;
+    private VerifiedTokenCache verifiedTokenCache;
+    private User user;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil("benchmarkSecretKeyForJWTTokenGenerationThatShouldBeAtLeast256BitsLong", 3600000L);
+        user = new User();
+        user.setId(1);
+        user.setEmail("test@example.com");
+        token = jwtUtil.generateToken(user);
+        verifiedTokenCache = new VerifiedTokenCache(jwtUtil, new SimpleMeterRegistry(), 10000);
+    }
+
+    @Benchmark
+    public Claims parseToken() {
+        return jwtUtil.parseToken(token);
+    }
+
+    /**
+     * What JwtAuthenticationFilter pays for a token it has already seen.
+     */
+    @Benchmark
+    public VerifiedToken cachedVerify() {
+        return verifiedTokenCache.verify(token);
+    }
+
+    @Benchmark
+    public Boolean validateToken() {
+        return jwtUtil.validateToken(token, user);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken(user);
+    }
+}
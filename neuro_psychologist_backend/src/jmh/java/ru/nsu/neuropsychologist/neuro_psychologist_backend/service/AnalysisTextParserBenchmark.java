@@ -0,0 +1,97 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the parsing steps that run on every Yandex GPT answer.
+ * Inputs are real-looking answers from src/jmh/resources/corpus, optionally repeated
+ * to see how each step scales with answer length.
+ *
+ * Run with: ./mvnw -Pbenchmarks test-compile exec:exec
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class AnalysisTextParserBenchmark {
+
+    @Param({
+            "free-text-structured",
+            "free-text-prose",
+            "free-text-template",
+            "checkin-numbered",
+            "checkin-bullets",
+            "long-analysis"
+    })
+    private String corpus;
+
+    @Param({"1", "8"})
+    private int copies;
+
+    private AnalysisTextParser parser;
+    private String text;
+
+    @Setup
+    public void setUp() {
+        parser = new AnalysisTextParser();
+        String answer = loadCorpus(corpus);
+        text = String.join("\n\n", Collections.nCopies(copies, answer));
+    }
+
+    @Benchmark
+    public Integer extractDayRating() {
+        return parser.extractDayRating(text);
+    }
+
+    @Benchmark
+    public List<String> extractRecommendations() {
+        return parser.extractRecommendations(text);
+    }
+
+    @Benchmark
+    public List<String> extractRecommendationsFromText() {
+        return parser.extractRecommendationsFromText(text);
+    }
+
+    @Benchmark
+    public Integer estimateRatingFromText() {
+        return parser.estimateRatingFromText(text);
+    }
+
+    @Benchmark
+    public Integer estimateRatingFromTextRegexBaseline() {
+        return RegexSentimentBaseline.estimateRatingFromText(text);
+    }
+
+    private static String loadCorpus(String name) {
+        String resource = "/corpus/" + name + ".txt";
+        try (InputStream in = AnalysisTextParserBenchmark.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalStateException("Corpus not found: " + resource);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
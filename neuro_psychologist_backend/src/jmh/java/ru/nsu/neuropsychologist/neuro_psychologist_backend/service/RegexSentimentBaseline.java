@@ -0,0 +1,43 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.service;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The sentiment estimate as it was before {@link SentimentLexicon}: one regex per stem,
+ * compiled on every call. Kept only as the baseline for
+ * {@link AnalysisTextParserBenchmark#estimateRatingFromText()}.
+ */
+final class RegexSentimentBaseline {
+
+    private RegexSentimentBaseline() {
+    }
+
+    static Integer estimateRatingFromText(String text) {
+        String lowerText = text.toLowerCase();
+
+        int positiveWords = countOccurrences(lowerText,
+                "хорош", "положительн", "отличн", "замечательн", "прекрасн", "радост", "счастлив");
+        int negativeWords = countOccurrences(lowerText,
+                "плох", "отрицательн", "ужасн", "грустн", "печальн", "депресси", "тревожн");
+
+        if (positiveWords > negativeWords * 2) return 8;
+        if (positiveWords > negativeWords) return 6;
+        if (negativeWords > positiveWords * 2) return 3;
+        if (negativeWords > positiveWords) return 4;
+
+        return 5;
+    }
+
+    static int countOccurrences(String text, String... words) {
+        int count = 0;
+        for (String word : words) {
+            Pattern pattern = Pattern.compile("\\b" + word + "\\w*\\b");
+            Matcher matcher = pattern.matcher(text);
+            while (matcher.find()) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,66 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Extracting the answer text from a Yandex GPT completion response: the streaming parser
+ * reading the body buffer versus the previous approach of decoding a String and building
+ * a JsonNode tree with a fresh ObjectMapper. Compare gc.alloc.rate.norm with -prof gc.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class YandexCompletionParserBenchmark {
+
+    private final ObjectMapper sharedMapper = new ObjectMapper();
+    private YandexCompletionParser parser;
+    private byte[] body;
+
+    @Setup
+    public void setUp() throws IOException {
+        parser = new YandexCompletionParser(sharedMapper);
+        try (InputStream in = YandexCompletionParserBenchmark.class.getResourceAsStream("/corpus/completion-response.json")) {
+            if (in == null) {
+                throw new IllegalStateException("Corpus not found: /corpus/completion-response.json");
+            }
+            body = in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Benchmark
+    public String streamingFromBuffer() {
+        DataBuffer buffer = DefaultDataBufferFactory.sharedInstance.wrap(body);
+        return parser.extractText(buffer);
+    }
+
+    @Benchmark
+    public String treeFromString() throws IOException {
+        String responseJson = new String(body, StandardCharsets.UTF_8);
+        JsonNode root = new ObjectMapper().readTree(responseJson);
+        return root.path("result").path("alternatives").get(0).path("message").path("text").asText();
+    }
+}
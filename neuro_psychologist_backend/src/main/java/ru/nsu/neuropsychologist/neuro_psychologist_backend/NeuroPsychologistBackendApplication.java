@@ -3,9 +3,11 @@ package ru.nsu.neuropsychologist.neuro_psychologist_backend;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableConfigurationProperties
+@EnableScheduling
 public class NeuroPsychologistBackendApplication {
 
 	public static void main(String[] args) {
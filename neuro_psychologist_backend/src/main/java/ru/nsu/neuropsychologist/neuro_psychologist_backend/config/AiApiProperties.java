@@ -15,11 +15,41 @@ public class AiApiProperties {
     // Yandex Cloud specific properties
     private String folderId;
     private String keyId;
+    private String iamTokenUrl = "https://iam.api.cloud.yandex.net/iam/v1/tokens";
+    private String saKeyFile = "./sa-key.json";
     
     // Prompt configuration
     private String systemPrompt;
     private String userPromptTemplate;
 
+    // HTTP connection pool for Yandex GPT
+    private int poolMaxConnections = 50;
+    private int poolPendingAcquireMaxCount = 200;
+    private long poolPendingAcquireTimeoutMs = 10000;
+    private long poolMaxIdleTimeSeconds = 30;
+    private long poolMaxLifeTimeSeconds = 300;
+    private int connectTimeoutMs = 5000;
+    private long responseTimeoutSeconds = 60;
+
+    // Cache of completions for identical prompts
+    private boolean responseCacheEnabled;
+    private long responseCacheMaxSize = 10000;
+    private long responseCacheTtlMinutes = 60;
+
+    // Bulkhead around outbound LLM calls
+    private int bulkheadMaxConcurrentCalls = 10;
+    private int bulkheadMaxQueueSize = 50;
+    private long bulkheadMaxWaitMs = 30000;
+    private long bulkheadRetryAfterSeconds = 10;
+
+    // Adaptive limit: moves the bulkhead limit between min and max based on latency and throttling
+    private boolean adaptiveLimitEnabled;
+    private int adaptiveLimitMin = 2;
+    private int adaptiveLimitMax = 40;
+
+    // Ask the model for a JSON answer (rating, summary, recommendations) instead of scraping free text
+    private boolean structuredOutputEnabled;
+
     public String getUrl() {
         return url;
     }
@@ -76,6 +106,22 @@ public class AiApiProperties {
         this.keyId = keyId;
     }
     
+    public String getIamTokenUrl() {
+        return iamTokenUrl;
+    }
+
+    public void setIamTokenUrl(String iamTokenUrl) {
+        this.iamTokenUrl = iamTokenUrl;
+    }
+
+    public String getSaKeyFile() {
+        return saKeyFile;
+    }
+
+    public void setSaKeyFile(String saKeyFile) {
+        this.saKeyFile = saKeyFile;
+    }
+
     public String getSystemPrompt() {
         return systemPrompt;
     }
@@ -91,4 +137,148 @@ public class AiApiProperties {
     public void setUserPromptTemplate(String userPromptTemplate) {
         this.userPromptTemplate = userPromptTemplate;
     }
-}
\ No newline at end of file
+
+    public int getPoolMaxConnections() {
+        return poolMaxConnections;
+    }
+
+    public void setPoolMaxConnections(int poolMaxConnections) {
+        this.poolMaxConnections = poolMaxConnections;
+    }
+
+    public int getPoolPendingAcquireMaxCount() {
+        return poolPendingAcquireMaxCount;
+    }
+
+    public void setPoolPendingAcquireMaxCount(int poolPendingAcquireMaxCount) {
+        this.poolPendingAcquireMaxCount = poolPendingAcquireMaxCount;
+    }
+
+    public long getPoolPendingAcquireTimeoutMs() {
+        return poolPendingAcquireTimeoutMs;
+    }
+
+    public void setPoolPendingAcquireTimeoutMs(long poolPendingAcquireTimeoutMs) {
+        this.poolPendingAcquireTimeoutMs = poolPendingAcquireTimeoutMs;
+    }
+
+    public long getPoolMaxIdleTimeSeconds() {
+        return poolMaxIdleTimeSeconds;
+    }
+
+    public void setPoolMaxIdleTimeSeconds(long poolMaxIdleTimeSeconds) {
+        this.poolMaxIdleTimeSeconds = poolMaxIdleTimeSeconds;
+    }
+
+    public long getPoolMaxLifeTimeSeconds() {
+        return poolMaxLifeTimeSeconds;
+    }
+
+    public void setPoolMaxLifeTimeSeconds(long poolMaxLifeTimeSeconds) {
+        this.poolMaxLifeTimeSeconds = poolMaxLifeTimeSeconds;
+    }
+
+    public int getConnectTimeoutMs() {
+        return connectTimeoutMs;
+    }
+
+    public void setConnectTimeoutMs(int connectTimeoutMs) {
+        this.connectTimeoutMs = connectTimeoutMs;
+    }
+
+    public long getResponseTimeoutSeconds() {
+        return responseTimeoutSeconds;
+    }
+
+    public void setResponseTimeoutSeconds(long responseTimeoutSeconds) {
+        this.responseTimeoutSeconds = responseTimeoutSeconds;
+    }
+
+    public boolean isResponseCacheEnabled() {
+        return responseCacheEnabled;
+    }
+
+    public void setResponseCacheEnabled(boolean responseCacheEnabled) {
+        this.responseCacheEnabled = responseCacheEnabled;
+    }
+
+    public long getResponseCacheMaxSize() {
+        return responseCacheMaxSize;
+    }
+
+    public void setResponseCacheMaxSize(long responseCacheMaxSize) {
+        this.responseCacheMaxSize = responseCacheMaxSize;
+    }
+
+    public long getResponseCacheTtlMinutes() {
+        return responseCacheTtlMinutes;
+    }
+
+    public void setResponseCacheTtlMinutes(long responseCacheTtlMinutes) {
+        this.responseCacheTtlMinutes = responseCacheTtlMinutes;
+    }
+
+    public int getBulkheadMaxConcurrentCalls() {
+        return bulkheadMaxConcurrentCalls;
+    }
+
+    public void setBulkheadMaxConcurrentCalls(int bulkheadMaxConcurrentCalls) {
+        this.bulkheadMaxConcurrentCalls = bulkheadMaxConcurrentCalls;
+    }
+
+    public int getBulkheadMaxQueueSize() {
+        return bulkheadMaxQueueSize;
+    }
+
+    public void setBulkheadMaxQueueSize(int bulkheadMaxQueueSize) {
+        this.bulkheadMaxQueueSize = bulkheadMaxQueueSize;
+    }
+
+    public long getBulkheadMaxWaitMs() {
+        return bulkheadMaxWaitMs;
+    }
+
+    public void setBulkheadMaxWaitMs(long bulkheadMaxWaitMs) {
+        this.bulkheadMaxWaitMs = bulkheadMaxWaitMs;
+    }
+
+    public long getBulkheadRetryAfterSeconds() {
+        return bulkheadRetryAfterSeconds;
+    }
+
+    public void setBulkheadRetryAfterSeconds(long bulkheadRetryAfterSeconds) {
+        this.bulkheadRetryAfterSeconds = bulkheadRetryAfterSeconds;
+    }
+
+    public boolean isAdaptiveLimitEnabled() {
+        return adaptiveLimitEnabled;
+    }
+
+    public void setAdaptiveLimitEnabled(boolean adaptiveLimitEnabled) {
+        this.adaptiveLimitEnabled = adaptiveLimitEnabled;
+    }
+
+    public int getAdaptiveLimitMin() {
+        return adaptiveLimitMin;
+    }
+
+    public void setAdaptiveLimitMin(int adaptiveLimitMin) {
+        this.adaptiveLimitMin = adaptiveLimitMin;
+    }
+
+    public int getAdaptiveLimitMax() {
+        return adaptiveLimitMax;
+    }
+
+    public void setAdaptiveLimitMax(int adaptiveLimitMax) {
+        this.adaptiveLimitMax = adaptiveLimitMax;
+    }
+
+    public boolean isStructuredOutputEnabled() {
+        return structuredOutputEnabled;
+    }
+
+    public void setStructuredOutputEnabled(boolean structuredOutputEnabled) {
+        this.structuredOutputEnabled = structuredOutputEnabled;
+    }
+}
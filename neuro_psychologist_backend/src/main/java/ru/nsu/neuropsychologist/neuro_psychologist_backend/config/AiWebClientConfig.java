@@ -0,0 +1,72 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.config;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.service.YandexIamTokenService;
+
+import java.time.Duration;
+
+/**
+ * Long-lived WebClient for Yandex GPT. Connections are pooled and kept alive,
+ * so TLS handshakes are paid once per connection rather than once per analysis.
+ */
+@Configuration
+public class AiWebClientConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider yandexGptConnectionProvider(AiApiProperties aiApiProperties) {
+        return ConnectionProvider.builder("yandex-gpt")
+                .maxConnections(aiApiProperties.getPoolMaxConnections())
+                .pendingAcquireMaxCount(aiApiProperties.getPoolPendingAcquireMaxCount())
+                .pendingAcquireTimeout(Duration.ofMillis(aiApiProperties.getPoolPendingAcquireTimeoutMs()))
+                .maxIdleTime(Duration.ofSeconds(aiApiProperties.getPoolMaxIdleTimeSeconds()))
+                .maxLifeTime(Duration.ofSeconds(aiApiProperties.getPoolMaxLifeTimeSeconds()))
+                .evictInBackground(Duration.ofSeconds(aiApiProperties.getPoolMaxIdleTimeSeconds()))
+                .build();
+    }
+
+    @Bean
+    public WebClient yandexGptWebClient(AiApiProperties aiApiProperties,
+                                        ConnectionProvider yandexGptConnectionProvider,
+                                        YandexIamTokenService iamTokenService,
+                                        Scheduler blockingScheduler) {
+        HttpClient httpClient = HttpClient.create(yandexGptConnectionProvider)
+                .keepAlive(true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, aiApiProperties.getConnectTimeoutMs())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .responseTimeout(Duration.ofSeconds(aiApiProperties.getResponseTimeoutSeconds()));
+
+        return WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .baseUrl(aiApiProperties.getUrl())
+                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .defaultHeader("x-folder-id", aiApiProperties.getFolderId())
+                .filter(iamBearerToken(iamTokenService, blockingScheduler))
+                .build();
+    }
+
+    /**
+     * Adds a fresh IAM token to every request instead of baking it into the client.
+     * The token lookup may block, so it runs on the blocking scheduler.
+     */
+    private static ExchangeFilterFunction iamBearerToken(YandexIamTokenService iamTokenService,
+                                                         Scheduler blockingScheduler) {
+        return (request, next) -> Mono.fromCallable(iamTokenService::getIamToken)
+                .subscribeOn(blockingScheduler)
+                .map(iamToken -> ClientRequest.from(request)
+                        .headers(headers -> headers.setBearerAuth(iamToken))
+                        .build())
+                .flatMap(next::exchange);
+    }
+}
@@ -0,0 +1,126 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    // Where buckets live: "memory" keeps them in this process; other stores are separate beans
+    private String store = "memory";
+
+    // In-memory store
+    private int stripes = 64;
+    private long maxTrackedKeys = 100000;
+
+    // Per user (or per IP for anonymous callers): burst size and tokens added per minute
+    private int userTextCapacity = 10;
+    private double userTextRefillPerMinute = 10;
+    private int userCheckinCapacity = 5;
+    private double userCheckinRefillPerMinute = 1;
+
+    // Shared by all users, protects the Yandex GPT quota
+    private int globalTextCapacity = 300;
+    private double globalTextRefillPerMinute = 300;
+    private int globalCheckinCapacity = 300;
+    private double globalCheckinRefillPerMinute = 300;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getStore() {
+        return store;
+    }
+
+    public void setStore(String store) {
+        this.store = store;
+    }
+
+    public int getStripes() {
+        return stripes;
+    }
+
+    public void setStripes(int stripes) {
+        this.stripes = stripes;
+    }
+
+    public long getMaxTrackedKeys() {
+        return maxTrackedKeys;
+    }
+
+    public void setMaxTrackedKeys(long maxTrackedKeys) {
+        this.maxTrackedKeys = maxTrackedKeys;
+    }
+
+    public int getUserTextCapacity() {
+        return userTextCapacity;
+    }
+
+    public void setUserTextCapacity(int userTextCapacity) {
+        this.userTextCapacity = userTextCapacity;
+    }
+
+    public double getUserTextRefillPerMinute() {
+        return userTextRefillPerMinute;
+    }
+
+    public void setUserTextRefillPerMinute(double userTextRefillPerMinute) {
+        this.userTextRefillPerMinute = userTextRefillPerMinute;
+    }
+
+    public int getUserCheckinCapacity() {
+        return userCheckinCapacity;
+    }
+
+    public void setUserCheckinCapacity(int userCheckinCapacity) {
+        this.userCheckinCapacity = userCheckinCapacity;
+    }
+
+    public double getUserCheckinRefillPerMinute() {
+        return userCheckinRefillPerMinute;
+    }
+
+    public void setUserCheckinRefillPerMinute(double userCheckinRefillPerMinute) {
+        this.userCheckinRefillPerMinute = userCheckinRefillPerMinute;
+    }
+
+    public int getGlobalTextCapacity() {
+        return globalTextCapacity;
+    }
+
+    public void setGlobalTextCapacity(int globalTextCapacity) {
+        this.globalTextCapacity = globalTextCapacity;
+    }
+
+    public double getGlobalTextRefillPerMinute() {
+        return globalTextRefillPerMinute;
+    }
+
+    public void setGlobalTextRefillPerMinute(double globalTextRefillPerMinute) {
+        this.globalTextRefillPerMinute = globalTextRefillPerMinute;
+    }
+
+    public int getGlobalCheckinCapacity() {
+        return globalCheckinCapacity;
+    }
+
+    public void setGlobalCheckinCapacity(int globalCheckinCapacity) {
+        this.globalCheckinCapacity = globalCheckinCapacity;
+    }
+
+    public double getGlobalCheckinRefillPerMinute() {
+        return globalCheckinRefillPerMinute;
+    }
+
+    public void setGlobalCheckinRefillPerMinute(double globalCheckinRefillPerMinute) {
+        this.globalCheckinRefillPerMinute = globalCheckinRefillPerMinute;
+    }
+}
@@ -0,0 +1,34 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Where blocking work (JPA, the IAM token lookup) runs when it is reached from reactive code.
+ *
+ * With spring.threads.virtual.enabled=true on Java 21+, Spring Boot already runs Tomcat
+ * requests, @Scheduled tasks and the application task executor on virtual threads; this
+ * scheduler moves the remaining blocking calls onto virtual threads too, instead of the
+ * capped boundedElastic pool.
+ */
+@Configuration
+public class ThreadingConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(ThreadingConfig.class);
+
+    @Bean(destroyMethod = "dispose")
+    public Scheduler blockingScheduler(Environment environment) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            logger.info("Virtual threads enabled, blocking calls run on virtual threads");
+            return Schedulers.fromExecutor(new VirtualThreadTaskExecutor("blocking-io-"));
+        }
+        return Schedulers.boundedElastic();
+    }
+}
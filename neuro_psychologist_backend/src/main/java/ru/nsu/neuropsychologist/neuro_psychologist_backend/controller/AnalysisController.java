@@ -6,38 +6,76 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.dto.AnalysisJobResponse;
 import ru.nsu.neuropsychologist.neuro_psychologist_backend.dto.AnalysisRequest;
 import ru.nsu.neuropsychologist.neuro_psychologist_backend.dto.AnalysisResponse;
 import ru.nsu.neuropsychologist.neuro_psychologist_backend.dto.ChatHistoryResponse;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.dto.DailyMetricsResponse;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.dto.HistoryCursor;
 import ru.nsu.neuropsychologist.neuro_psychologist_backend.dto.MetricsResponse;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.entity.AnalysisJob;
 import ru.nsu.neuropsychologist.neuro_psychologist_backend.entity.DayAnalysis;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.entity.DayMetricsRollup;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.entity.RatingStats;
 import ru.nsu.neuropsychologist.neuro_psychologist_backend.entity.User;
 import ru.nsu.neuropsychologist.neuro_psychologist_backend.repository.DayAnalysisRepository;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.repository.DayMetricsRollupRepository;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.repository.DayMetricsView;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.repository.HistoryEntryView;
 import ru.nsu.neuropsychologist.neuro_psychologist_backend.repository.UserRepository;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.security.JwtPrincipal;
 import ru.nsu.neuropsychologist.neuro_psychologist_backend.service.AiAnalysisService;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.service.AnalysisJobService;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.service.AnalysisRateLimiter;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.service.DayAnalysisService;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.service.LlmOverloadedException;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.service.RateLimitDecision;
 
+import java.net.URI;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/analysis")
 @CrossOrigin(origins = "*")
 public class AnalysisController {
 
+    // Clients poll unfinished jobs no more often than this
+    private static final long JOB_POLL_INTERVAL_SECONDS = 2;
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
+    private static final String RATE_LIMITED_MESSAGE = "Слишком много запросов на анализ, попробуйте позже";
+
     private final AiAnalysisService aiAnalysisService;
+    private final DayAnalysisService dayAnalysisService;
+    private final AnalysisJobService analysisJobService;
     private final DayAnalysisRepository dayAnalysisRepository;
+    private final DayMetricsRollupRepository dayMetricsRollupRepository;
     private final UserRepository userRepository;
+    private final AnalysisRateLimiter analysisRateLimiter;
+    private final Scheduler blockingScheduler;
     private final ObjectMapper objectMapper;
     private static final Logger logger = LoggerFactory.getLogger(AnalysisController.class);
 
@@ -45,38 +83,248 @@ public class AnalysisController {
     @Autowired
     public AnalysisController(
             AiAnalysisService aiAnalysisService,
+            DayAnalysisService dayAnalysisService,
+            AnalysisJobService analysisJobService,
             DayAnalysisRepository dayAnalysisRepository,
-            UserRepository userRepository) {
+            DayMetricsRollupRepository dayMetricsRollupRepository,
+            UserRepository userRepository,
+            AnalysisRateLimiter analysisRateLimiter,
+            @Qualifier("blockingScheduler") Scheduler blockingScheduler) {
         this.aiAnalysisService = aiAnalysisService;
+        this.dayAnalysisService = dayAnalysisService;
+        this.analysisJobService = analysisJobService;
         this.dayAnalysisRepository = dayAnalysisRepository;
+        this.dayMetricsRollupRepository = dayMetricsRollupRepository;
         this.userRepository = userRepository;
+        this.analysisRateLimiter = analysisRateLimiter;
+        this.blockingScheduler = blockingScheduler;
         this.objectMapper = new ObjectMapper();
     }
 
+    /**
+     * The LLM call runs without holding the servlet thread: Spring MVC completes
+     * the request asynchronously once the Mono emits.
+     */
     @PostMapping("/analyze")
-    public ResponseEntity<AnalysisResponse> analyzeText(
+    public Mono<ResponseEntity<AnalysisResponse>> analyzeText(
             @RequestBody AnalysisRequest request,
             Authentication authentication) {
 
         logger.info("Received analysis request. Is check-in: {}", request.isCheckInRequest());
 
+        String validationError = validateRequest(request);
+        if (validationError != null) {
+            return Mono.just(ResponseEntity.badRequest().body(new AnalysisResponse(validationError)));
+        }
+
+        RateLimitDecision rateLimit = analysisRateLimiter.tryAcquire(request, authentication);
+        if (!rateLimit.allowed()) {
+            return Mono.just(rateLimitedResponse(rateLimit));
+        }
+
+        // Get AI analysis (service will automatically detect check-in vs regular analysis)
+        // Saving goes through blocking JPA, so it is moved off the HTTP client threads
+        return aiAnalysisService.analyzeUserTextReactive(request)
+                .publishOn(blockingScheduler)
+                .map(response -> saveAnalysis(request, response, authentication))
+                .onErrorResume(LlmOverloadedException.class, e -> Mono.just(overloadedResponse(e)));
+    }
+
+    /**
+     * Streaming variant of {@link #analyzeText}. "chunk" events carry text fragments as the model
+     * generates them; the final "done" event carries the saved analysis, or an "error" event
+     * ends the stream if the analysis fails.
+     */
+    @PostMapping(value = "/analyze/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<ServerSentEvent<Object>>> analyzeTextStream(
+            @RequestBody AnalysisRequest request,
+            Authentication authentication) {
+
+        logger.info("Received streaming analysis request. Is check-in: {}", request.isCheckInRequest());
+
+        String validationError = validateRequest(request);
+        if (validationError != null) {
+            return ResponseEntity.badRequest().body(Flux.just(errorEvent(validationError)));
+        }
+
+        RateLimitDecision rateLimit = analysisRateLimiter.tryAcquire(request, authentication);
+        if (!rateLimit.allowed()) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(rateLimit.retryAfterSeconds()))
+                    .body(Flux.just(errorEvent(RATE_LIMITED_MESSAGE)));
+        }
+
+        Flux<ServerSentEvent<Object>> events = Flux.defer(() -> {
+            StringBuilder fullText = new StringBuilder();
+
+            Flux<ServerSentEvent<Object>> chunks = aiAnalysisService.streamUserTextReactive(request)
+                    .doOnNext(fullText::append)
+                    .map(chunk -> ServerSentEvent.<Object>builder(Map.of("text", chunk)).event("chunk").build());
+
+            // Persist once the whole answer is known, off the HTTP client threads
+            Mono<ServerSentEvent<Object>> done = Mono.fromCallable(() -> {
+                AnalysisResponse response = aiAnalysisService.createAnalysisResponse(request, fullText.toString());
+                ResponseEntity<AnalysisResponse> saved = saveAnalysis(request, response, authentication);
+                String event = saved.getStatusCode().is2xxSuccessful() ? "done" : "error";
+                return ServerSentEvent.<Object>builder(saved.getBody()).event(event).build();
+            }).subscribeOn(blockingScheduler);
+
+            return chunks.concatWith(done);
+        }).onErrorResume(e -> Flux.just(streamErrorEvent(e)));
+
+        return ResponseEntity.ok().contentType(MediaType.TEXT_EVENT_STREAM).body(events);
+    }
+
+    /**
+     * Queues the analysis and answers 202 with the job at once; clients poll
+     * {@code GET /api/analysis/jobs/{id}} for the result. Retries carrying the same
+     * Idempotency-Key get the original job back instead of a new one.
+     */
+    @PostMapping("/jobs")
+    public ResponseEntity<?> submitAnalysisJob(
+            @RequestBody AnalysisRequest request,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            Authentication authentication) {
+
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return ResponseEntity.status(401).body(Map.of("error", "Unauthorized"));
+        }
+
+        String validationError = validateRequest(request);
+        if (validationError != null) {
+            return ResponseEntity.badRequest().body(new AnalysisResponse(validationError));
+        }
+
+        try {
+            User user = currentUser(authentication);
+
+            // A retry of an already queued job costs no LLM call, so it is not rate limited
+            Optional<AnalysisJob> existing = analysisJobService.findJobByIdempotencyKey(user, idempotencyKey);
+            if (existing.isPresent()) {
+                return jobAcceptedResponse(existing.get());
+            }
+
+            RateLimitDecision rateLimit = analysisRateLimiter.tryAcquire(request, authentication);
+            if (!rateLimit.allowed()) {
+                return rateLimitedResponse(rateLimit);
+            }
+
+            return jobAcceptedResponse(analysisJobService.submit(request, user, idempotencyKey));
+
+        } catch (Exception e) {
+            logger.error("Error queueing analysis job: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError()
+                    .body(Map.of("error", "Ошибка при постановке анализа в очередь: " + e.getMessage()));
+        }
+    }
+
+    private ResponseEntity<AnalysisJobResponse> jobAcceptedResponse(AnalysisJob job) {
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/analysis/jobs/" + job.getId()))
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(JOB_POLL_INTERVAL_SECONDS))
+                .body(analysisJobService.toResponse(job));
+    }
+
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<?> getAnalysisJob(@PathVariable Long id, Authentication authentication) {
+
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return ResponseEntity.status(401).body(Map.of("error", "Unauthorized"));
+        }
+
+        try {
+            User user = currentUser(authentication);
+
+            Optional<AnalysisJob> job = analysisJobService.findJob(id, user);
+            if (job.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Задача анализа не найдена"));
+            }
+
+            AnalysisJobResponse response = analysisJobService.toResponse(job.get());
+            if (job.get().getStatus().isFinished()) {
+                return ResponseEntity.ok(response);
+            }
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(JOB_POLL_INTERVAL_SECONDS))
+                    .body(response);
+
+        } catch (Exception e) {
+            logger.error("Error retrieving analysis job: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError()
+                    .body(Map.of("error", "Ошибка при получении задачи анализа: " + e.getMessage()));
+        }
+    }
+
+    private ServerSentEvent<Object> streamErrorEvent(Throwable e) {
+        if (e instanceof LlmOverloadedException) {
+            return errorEvent("Сервис анализа перегружен, попробуйте через несколько секунд");
+        }
+        if (e instanceof IllegalArgumentException) {
+            return errorEvent(e.getMessage());
+        }
+        if (e instanceof WebClientResponseException webClientException) {
+            logger.error("WebClient error during streaming: {} - {}",
+                    webClientException.getStatusCode(), webClientException.getResponseBodyAsString());
+            return errorEvent("Ошибка при обращении к AI API: " + webClientException.getStatusCode());
+        }
+        logger.error("Unexpected error during streaming analysis: {}", e.getMessage(), e);
+        return errorEvent("Внутренняя ошибка сервера: " + e.getMessage());
+    }
+
+    private ServerSentEvent<Object> errorEvent(String message) {
+        return ServerSentEvent.<Object>builder(new AnalysisResponse(message)).event("error").build();
+    }
+
+    /**
+     * Returns the message to answer with when the request is incomplete, or null if it can be analysed.
+     */
+    private String validateRequest(AnalysisRequest request) {
         // Validate request based on type
         if (request.isCheckInRequest()) {
             // Validate check-in data
             if (!isValidCheckInRequest(request)) {
-                AnalysisResponse errorResponse = new AnalysisResponse("Пожалуйста, заполните все поля чекапа");
-                return ResponseEntity.badRequest().body(errorResponse);
+                return "Пожалуйста, заполните все поля чекапа";
             }
         } else {
             // Validate regular text analysis
             if (request.getUserText() == null || request.getUserText().trim().isEmpty()) {
-                AnalysisResponse errorResponse = new AnalysisResponse("Текст для анализа не может быть пустым");
-                return ResponseEntity.badRequest().body(errorResponse);
+                return "Текст для анализа не может быть пустым";
             }
         }
+        return null;
+    }
 
-        // Get AI analysis (service will automatically detect check-in vs regular analysis)
-        AnalysisResponse response = aiAnalysisService.analyzeUserText(request);
+    /**
+     * The authenticated user. Tokens carry the user id, so this is a reference that queries
+     * go by id without loading the users row; older tokens fall back to a lookup by email.
+     */
+    private User currentUser(Authentication authentication) {
+        if (authentication.getPrincipal() instanceof JwtPrincipal principal) {
+            return userRepository.getReferenceById(principal.getUserId());
+        }
+        if (authentication.getPrincipal() instanceof User user) {
+            return user;
+        }
+        return userRepository.findByEmail(authentication.getName())
+                .orElseThrow(() -> new RuntimeException("User not found"));
+    }
+
+    private ResponseEntity<AnalysisResponse> overloadedResponse(LlmOverloadedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(new AnalysisResponse("Сервис анализа перегружен, попробуйте через несколько секунд"));
+    }
+
+    private ResponseEntity<AnalysisResponse> rateLimitedResponse(RateLimitDecision decision) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(decision.retryAfterSeconds()))
+                .body(new AnalysisResponse(RATE_LIMITED_MESSAGE));
+    }
+
+    private ResponseEntity<AnalysisResponse> saveAnalysis(
+            AnalysisRequest request,
+            AnalysisResponse response,
+            Authentication authentication) {
 
         if (!response.isSuccess()) {
             return ResponseEntity.internalServerError().body(response);
@@ -85,46 +333,9 @@ public class AnalysisController {
         // Save to database if user is authenticated
         if (authentication != null && authentication.isAuthenticated()) {
             try {
-                String userEmail = authentication.getName();
-                User user = userRepository.findByEmail(userEmail)
-                        .orElseThrow(() -> new RuntimeException("User not found"));
-
-                DayAnalysis dayAnalysis = new DayAnalysis();
-                dayAnalysis.setUser(user);
-                dayAnalysis.setAnalyzedAt(response.getAnalyzedAt());
-                
-                // Set LLM response
-                dayAnalysis.setLlmResponse(response.getAnalysisText());
-                
-                // Check if this is a check-in request
-                if (request.isCheckInRequest()) {
-                    dayAnalysis.setIsCheckin(true);
-                    
-                    // Save check-in ratings
-                    dayAnalysis.setCalmnessRating(request.getCalmnessRating());
-                    dayAnalysis.setEnergyRating(request.getEnergyRating());
-                    dayAnalysis.setSatisfactionRating(request.getSatisfactionRating());
-                    dayAnalysis.setConnectionRating(request.getConnectionRating());
-                    dayAnalysis.setEngagementRating(request.getEngagementRating());
-                    
-                    // Save check-in text responses
-                    dayAnalysis.setCurrentStateText(request.getCurrentStateText());
-                    dayAnalysis.setEnergyMomentsText(request.getEnergyMomentsText());
-                    dayAnalysis.setMissingElementText(request.getMissingElementText());
-                } else {
-                    dayAnalysis.setIsCheckin(false);
-                    
-                    // Save regular analysis data
-                    dayAnalysis.setUserText(request.getUserText());
-                    dayAnalysis.setDayRating(response.getDayRating());
-                }
-                
-                // Save recommendations as JSON if present
-                if (response.getRecommendations() != null && !response.getRecommendations().isEmpty()) {
-                    dayAnalysis.setRecommendations(objectMapper.writeValueAsString(response.getRecommendations()));
-                }
+                User user = currentUser(authentication);
 
-                DayAnalysis savedAnalysis = dayAnalysisRepository.save(dayAnalysis);
+                DayAnalysis savedAnalysis = dayAnalysisService.saveAnalysis(request, response, user);
                 response.setId(savedAnalysis.getId());
                 
                 logger.info("Successfully saved analysis with ID: {}", savedAnalysis.getId());
@@ -185,10 +396,19 @@ public class AnalysisController {
         return true;
     }
 
+    /**
+     * By default: the offset pagination with counts and full entries that existing clients expect.
+     * With cursor or mode=keyset: keyset pagination. The first request passes mode=keyset, the
+     * following ones pass nextCursor from the previous response; the total is only counted when
+     * includeTotal=true. Entries carry ratings only, GET /history/{id} returns the texts and the LLM answer.
+     */
     @GetMapping("/history")
     public ResponseEntity<?> getChatHistory(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String mode,
+            @RequestParam(defaultValue = "false") boolean includeTotal,
             Authentication authentication) {
         
         if (authentication == null || !authentication.isAuthenticated()) {
@@ -196,33 +416,20 @@ public class AnalysisController {
         }
         
         try {
-            String userEmail = authentication.getName();
-            User user = userRepository.findByEmail(userEmail)
-                    .orElseThrow(() -> new RuntimeException("User not found"));
-            
-            // Create pageable request
-            Pageable pageable = PageRequest.of(page, size);
-            
-            // Get paginated results
-            Page<DayAnalysis> analysisPage = dayAnalysisRepository.findByUserOrderByAnalyzedAtDesc(user, pageable);
+            User user = currentUser(authentication);
             
-            // Convert to DTOs
-            List<ChatHistoryResponse> historyList = new ArrayList<>();
-            for (DayAnalysis analysis : analysisPage.getContent()) {
-                ChatHistoryResponse dto = convertToHistoryResponse(analysis);
-                historyList.add(dto);
+            boolean hasCursor = cursor != null && !cursor.isEmpty();
+            if (!hasCursor && !"keyset".equals(mode)) {
+                return ResponseEntity.ok(getOffsetHistoryPage(user, page, size));
             }
             
-            // Create response with pagination info
-            Map<String, Object> response = new HashMap<>();
-            response.put("content", historyList);
-            response.put("currentPage", analysisPage.getNumber());
-            response.put("totalItems", analysisPage.getTotalElements());
-            response.put("totalPages", analysisPage.getTotalPages());
-            response.put("hasNext", analysisPage.hasNext());
-            response.put("hasPrevious", analysisPage.hasPrevious());
-            
-            return ResponseEntity.ok(response);
+            HistoryCursor after;
+            try {
+                after = hasCursor ? HistoryCursor.decode(cursor) : null;
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Некорректный курсор истории"));
+            }
+            return ResponseEntity.ok(getKeysetHistoryPage(user, after, size, includeTotal));
             
         } catch (Exception e) {
             logger.error("Error retrieving chat history: {}", e.getMessage(), e);
@@ -231,6 +438,108 @@ public class AnalysisController {
         }
     }
     
+    private Map<String, Object> getOffsetHistoryPage(User user, int page, int size) {
+        Pageable pageable = PageRequest.of(page, size);
+        Page<DayAnalysis> analysisPage = dayAnalysisRepository.findByUserOrderByAnalyzedAtDesc(user, pageable);
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("content", toHistoryResponses(analysisPage.getContent()));
+        response.put("currentPage", analysisPage.getNumber());
+        response.put("totalItems", analysisPage.getTotalElements());
+        response.put("totalPages", analysisPage.getTotalPages());
+        response.put("hasNext", analysisPage.hasNext());
+        response.put("hasPrevious", analysisPage.hasPrevious());
+        return response;
+    }
+    
+    private Map<String, Object> getKeysetHistoryPage(User user, HistoryCursor after, int size, boolean includeTotal) {
+        int pageSize = Math.max(1, Math.min(size, MAX_HISTORY_PAGE_SIZE));
+        // One extra row tells whether there is a next page without counting
+        Limit limit = Limit.of(pageSize + 1);
+        List<HistoryEntryView> entries = after == null
+                ? dayAnalysisRepository.findHistoryByUserOrderByAnalyzedAtDescIdDesc(user, limit)
+                : dayAnalysisRepository.findHistoryAfter(user, after.getAnalyzedAt(), after.getId(), limit);
+        
+        boolean hasNext = entries.size() > pageSize;
+        if (hasNext) {
+            entries = entries.subList(0, pageSize);
+        }
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("content", toHistorySummaries(entries));
+        response.put("size", pageSize);
+        response.put("hasNext", hasNext);
+        if (hasNext) {
+            HistoryEntryView last = entries.get(entries.size() - 1);
+            response.put("nextCursor", new HistoryCursor(last.analyzedAt(), last.id()).encode());
+        }
+        if (includeTotal) {
+            response.put("totalItems", dayAnalysisRepository.countByUser(user));
+        }
+        return response;
+    }
+    
+    /**
+     * One history entry with its texts, recommendations and LLM answer, which the list leaves out.
+     */
+    @GetMapping("/history/{id}")
+    public ResponseEntity<?> getChatHistoryEntry(@PathVariable Long id, Authentication authentication) {
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return ResponseEntity.status(401).body(Map.of("error", "Unauthorized"));
+        }
+        
+        try {
+            User user = currentUser(authentication);
+            
+            Optional<DayAnalysis> analysis = dayAnalysisRepository.findByIdAndUser(id, user);
+            if (analysis.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Запись не найдена"));
+            }
+            return ResponseEntity.ok(convertToHistoryResponse(analysis.get()));
+            
+        } catch (Exception e) {
+            logger.error("Error retrieving chat history entry: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError()
+                    .body(Map.of("error", "Ошибка при получении записи истории: " + e.getMessage()));
+        }
+    }
+    
+    private List<ChatHistoryResponse> toHistoryResponses(List<DayAnalysis> analyses) {
+        List<ChatHistoryResponse> historyList = new ArrayList<>(analyses.size());
+        for (DayAnalysis analysis : analyses) {
+            historyList.add(convertToHistoryResponse(analysis));
+        }
+        return historyList;
+    }
+    
+    private List<ChatHistoryResponse> toHistorySummaries(List<HistoryEntryView> entries) {
+        List<ChatHistoryResponse> historyList = new ArrayList<>(entries.size());
+        for (HistoryEntryView entry : entries) {
+            historyList.add(convertToHistorySummary(entry));
+        }
+        return historyList;
+    }
+    
+    private ChatHistoryResponse convertToHistorySummary(HistoryEntryView entry) {
+        ChatHistoryResponse response = new ChatHistoryResponse();
+        
+        response.setId(entry.id());
+        response.setDayRating(entry.dayRating());
+        response.setIsCheckin(entry.isCheckin());
+        response.setAnalyzedAt(entry.analyzedAt());
+        response.setCreatedAt(entry.createdAt());
+        
+        if (Boolean.TRUE.equals(entry.isCheckin())) {
+            response.setCalmnessRating(entry.calmnessRating());
+            response.setEnergyRating(entry.energyRating());
+            response.setSatisfactionRating(entry.satisfactionRating());
+            response.setConnectionRating(entry.connectionRating());
+            response.setEngagementRating(entry.engagementRating());
+        }
+        
+        return response;
+    }
+    
     private ChatHistoryResponse convertToHistoryResponse(DayAnalysis analysis) {
         ChatHistoryResponse response = new ChatHistoryResponse();
         
@@ -282,9 +591,7 @@ public class AnalysisController {
         }
         
         try {
-            String userEmail = authentication.getName();
-            User user = userRepository.findByEmail(userEmail)
-                    .orElseThrow(() -> new RuntimeException("User not found"));
+            User user = currentUser(authentication);
             
             // Parse dates or use defaults (last 7 days)
             ZonedDateTime start;
@@ -299,13 +606,13 @@ public class AnalysisController {
                 start = end.minusDays(7);
             }
             
-            // Get analyses within date range
-            List<DayAnalysis> analyses = dayAnalysisRepository
-                    .findByUserAndAnalyzedAtBetweenOrderByAnalyzedAtDesc(user, start, end);
+            // Get ratings within date range, the TEXT columns are not read
+            List<DayMetricsView> analyses = dayAnalysisRepository
+                    .findMetricsByUserAndAnalyzedAtBetweenOrderByAnalyzedAtDesc(user, start, end);
             
             // Convert to metrics DTOs
             List<MetricsResponse> metrics = new ArrayList<>();
-            for (DayAnalysis analysis : analyses) {
+            for (DayMetricsView analysis : analyses) {
                 MetricsResponse metric = convertToMetricsResponse(analysis);
                 metrics.add(metric);
             }
@@ -319,23 +626,84 @@ public class AnalysisController {
         }
     }
     
-    private MetricsResponse convertToMetricsResponse(DayAnalysis analysis) {
+    /**
+     * Per-day aggregates from day_metrics_rollup: one row per day with analyses,
+     * however many analyses the range holds.
+     */
+    @GetMapping("/metrics/daily")
+    public ResponseEntity<?> getDailyMetrics(
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate,
+            Authentication authentication) {
+        
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return ResponseEntity.status(401).body(Map.of("error", "Unauthorized"));
+        }
+        
+        try {
+            User user = currentUser(authentication);
+            
+            LocalDate start;
+            LocalDate end;
+            if (startDate != null && endDate != null) {
+                start = LocalDate.parse(startDate);
+                end = LocalDate.parse(endDate);
+            } else {
+                // Same default range as /metrics
+                end = LocalDate.now();
+                start = end.minusDays(7);
+            }
+            
+            List<DailyMetricsResponse> days = new ArrayList<>();
+            for (DayMetricsRollup rollup : dayMetricsRollupRepository
+                    .findByUserAndMetricDateBetweenOrderByMetricDateAsc(user, start, end)) {
+                days.add(convertToDailyMetricsResponse(rollup));
+            }
+            return ResponseEntity.ok(days);
+            
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Некорректная дата: " + e.getParsedString()));
+        } catch (Exception e) {
+            logger.error("Error retrieving daily metrics: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError()
+                    .body(Map.of("error", "Ошибка при получении метрик: " + e.getMessage()));
+        }
+    }
+    
+    private DailyMetricsResponse convertToDailyMetricsResponse(DayMetricsRollup rollup) {
+        DailyMetricsResponse response = new DailyMetricsResponse();
+        response.setDate(rollup.getMetricDate());
+        response.setAnalysisCount(rollup.getAnalysisCount());
+        response.setDayRating(toRatingSummary(rollup.getDayRating()));
+        response.setCalmness(toRatingSummary(rollup.getCalmness()));
+        response.setEnergy(toRatingSummary(rollup.getEnergy()));
+        response.setSatisfaction(toRatingSummary(rollup.getSatisfaction()));
+        response.setConnection(toRatingSummary(rollup.getConnection()));
+        response.setEngagement(toRatingSummary(rollup.getEngagement()));
+        return response;
+    }
+    
+    private static DailyMetricsResponse.RatingSummary toRatingSummary(RatingStats stats) {
+        return new DailyMetricsResponse.RatingSummary(stats.getCount(), stats.getSum(), stats.getMin(), stats.getMax());
+    }
+    
+    private MetricsResponse convertToMetricsResponse(DayMetricsView analysis) {
         MetricsResponse response = new MetricsResponse();
         
-        response.setId(analysis.getId());
-        response.setAnalyzedAt(analysis.getAnalyzedAt());
-        response.setIsCheckin(analysis.getIsCheckin());
+        response.setId(analysis.id());
+        response.setAnalyzedAt(analysis.analyzedAt());
+        response.setIsCheckin(analysis.isCheckin());
         
         // Add check-in metrics if available
-        if (Boolean.TRUE.equals(analysis.getIsCheckin())) {
-            response.setCalmnessRating(analysis.getCalmnessRating());
-            response.setEnergyRating(analysis.getEnergyRating());
-            response.setSatisfactionRating(analysis.getSatisfactionRating());
-            response.setConnectionRating(analysis.getConnectionRating());
-            response.setEngagementRating(analysis.getEngagementRating());
+        if (Boolean.TRUE.equals(analysis.isCheckin())) {
+            response.setCalmnessRating(analysis.calmnessRating());
+            response.setEnergyRating(analysis.energyRating());
+            response.setSatisfactionRating(analysis.satisfactionRating());
+            response.setConnectionRating(analysis.connectionRating());
+            response.setEngagementRating(analysis.engagementRating());
         } else {
             // Add regular analysis metrics
-            response.setDayRating(analysis.getDayRating());
+            response.setDayRating(analysis.dayRating());
         }
         
         return response;
@@ -1,6 +1,7 @@
 package ru.nsu.neuropsychologist.neuro_psychologist_backend.controller;
 
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -10,6 +11,7 @@ import ru.nsu.neuropsychologist.neuro_psychologist_backend.dto.LoginRequest;
 import ru.nsu.neuropsychologist.neuro_psychologist_backend.dto.RegisterRequest;
 import ru.nsu.neuropsychologist.neuro_psychologist_backend.dto.UpdateProfileRequest;
 import ru.nsu.neuropsychologist.neuro_psychologist_backend.dto.UserProfileResponse;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.security.PasswordHashingOverloadedException;
 import ru.nsu.neuropsychologist.neuro_psychologist_backend.service.AuthService;
 
 import java.util.HashMap;
@@ -31,6 +33,8 @@ public class AuthController {
         try {
             AuthResponse response = authService.register(request);
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        } catch (PasswordHashingOverloadedException e) {
+            return overloadedResponse(e);
         } catch (RuntimeException e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", e.getMessage());
@@ -43,6 +47,8 @@ public class AuthController {
         try {
             AuthResponse response = authService.login(request);
             return ResponseEntity.ok(response);
+        } catch (PasswordHashingOverloadedException e) {
+            return overloadedResponse(e);
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", "Invalid email or password");
@@ -70,10 +76,20 @@ public class AuthController {
             String email = authentication.getName();
             UserProfileResponse profile = authService.updateProfile(email, request);
             return ResponseEntity.ok(profile);
+        } catch (PasswordHashingOverloadedException e) {
+            return overloadedResponse(e);
         } catch (RuntimeException e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", e.getMessage());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
         }
     }
-}
\ No newline at end of file
+    
+    private ResponseEntity<Map<String, String>> overloadedResponse(PasswordHashingOverloadedException e) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", "Too many sign-in attempts right now, please try again in a few seconds");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(error);
+    }
+}
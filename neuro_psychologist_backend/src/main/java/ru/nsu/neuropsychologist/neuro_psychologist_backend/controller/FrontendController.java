@@ -2,6 +2,7 @@ package ru.nsu.neuropsychologist.neuro_psychologist_backend.controller;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -28,7 +29,7 @@ public class FrontendController {
      * Serve index.html for root path
      */
     @GetMapping("/")
-    public ResponseEntity<byte[]> serveIndex() {
+    public ResponseEntity<Resource> serveIndex() {
         return serveFile("/index.html");
     }
 
@@ -36,7 +37,7 @@ public class FrontendController {
      * Serve static files (JS, CSS, images, etc.)
      */
     @GetMapping("/assets/**")
-    public ResponseEntity<byte[]> serveAssets(HttpServletRequest request) {
+    public ResponseEntity<Resource> serveAssets(HttpServletRequest request) {
         String path = request.getRequestURI();
         return serveFile(path);
     }
@@ -46,7 +47,7 @@ public class FrontendController {
      * This allows client-side routing to work properly
      */
     @GetMapping("/{path:[^\\.]*}")
-    public ResponseEntity<byte[]> serveSpaRoutes(@PathVariable String path) {
+    public ResponseEntity<Resource> serveSpaRoutes(@PathVariable String path) {
         // For SPA routes, always serve index.html
         return serveFile("/index.html");
     }
@@ -55,13 +56,17 @@ public class FrontendController {
      * Serve other static files with extensions (favicon, manifest, etc.)
      */
     @GetMapping("/{filename:.+\\..+}")
-    public ResponseEntity<byte[]> serveStaticFile(@PathVariable String filename) {
+    public ResponseEntity<Resource> serveStaticFile(@PathVariable String filename) {
         return serveFile("/" + filename);
     }
 
-    private ResponseEntity<byte[]> serveFile(String path) {
+    /**
+     * The body is the file in the disk cache: it is streamed to the client rather than
+     * loaded into memory, and Range requests are answered from it.
+     */
+    private ResponseEntity<Resource> serveFile(String path) {
         try {
-            byte[] content = frontendCacheService.getFile(path);
+            Resource content = frontendCacheService.getFile(path);
             
             if (content == null) {
                 // If file not found and not index.html, try serving index.html for SPA routing
@@ -85,6 +90,10 @@ public class FrontendController {
             } else {
                 headers.setCacheControl("no-cache");
             }
+            // Lets no-cache files be revalidated with a 304 instead of being sent again
+            if (content.isFile()) {
+                headers.setLastModified(content.lastModified());
+            }
             
             return ResponseEntity.ok()
                     .headers(headers)
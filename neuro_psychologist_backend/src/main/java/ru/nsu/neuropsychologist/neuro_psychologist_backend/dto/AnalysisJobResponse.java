@@ -0,0 +1,73 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.dto;
+
+import java.time.ZonedDateTime;
+
+public class AnalysisJobResponse {
+
+    private Long id;
+    private String status;
+    private Long analysisId;
+    private AnalysisResponse result;  // Заполняется после завершения задачи
+    private String error;
+    private ZonedDateTime createdAt;
+    private ZonedDateTime completedAt;
+
+    public AnalysisJobResponse() {}
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Long getAnalysisId() {
+        return analysisId;
+    }
+
+    public void setAnalysisId(Long analysisId) {
+        this.analysisId = analysisId;
+    }
+
+    public AnalysisResponse getResult() {
+        return result;
+    }
+
+    public void setResult(AnalysisResponse result) {
+        this.result = result;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public ZonedDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(ZonedDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public ZonedDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(ZonedDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+}
@@ -3,6 +3,8 @@ package ru.nsu.neuropsychologist.neuro_psychologist_backend.dto;
 public class AnalysisRequest {
     private String userText;
     private String customPrompt;
+    // false asks for a fresh completion even if an identical prompt is cached
+    private Boolean useCache;
     
     // Check-in fields
     private Integer calmnessRating;
@@ -41,6 +43,18 @@ public class AnalysisRequest {
         this.customPrompt = customPrompt;
     }
 
+    public Boolean getUseCache() {
+        return useCache;
+    }
+
+    public void setUseCache(Boolean useCache) {
+        this.useCache = useCache;
+    }
+
+    public boolean isCacheAllowed() {
+        return !Boolean.FALSE.equals(useCache);
+    }
+
     // Check-in getters and setters
     public Integer getCalmnessRating() {
         return calmnessRating;
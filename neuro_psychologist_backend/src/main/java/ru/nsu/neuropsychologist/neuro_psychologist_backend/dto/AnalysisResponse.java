@@ -1,5 +1,7 @@
 package ru.nsu.neuropsychologist.neuro_psychologist_backend.dto;
 
+import com.fasterxml.jackson.annotation.JsonAlias;
+
 import java.time.ZonedDateTime;
 import java.util.List;
 
@@ -50,6 +52,7 @@ public class AnalysisResponse {
         return dayRating;
     }
 
+    @JsonAlias("rating")
     public void setDayRating(Integer dayRating) {
         this.dayRating = dayRating;
     }
@@ -90,6 +93,7 @@ public class AnalysisResponse {
         return analysisText;
     }
 
+    @JsonAlias("summary")
     public void setAnalysisText(String analysisText) {
         this.analysisText = analysisText;
     }
@@ -0,0 +1,148 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Ratings of one day, aggregated over all analyses of that day.
+ */
+public class DailyMetricsResponse {
+
+    private LocalDate date;
+    private int analysisCount;
+    private RatingSummary dayRating;
+    private RatingSummary calmness;
+    private RatingSummary energy;
+    private RatingSummary satisfaction;
+    private RatingSummary connection;
+    private RatingSummary engagement;
+
+    public DailyMetricsResponse() {}
+
+    // Getters and Setters
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public void setDate(LocalDate date) {
+        this.date = date;
+    }
+
+    public int getAnalysisCount() {
+        return analysisCount;
+    }
+
+    public void setAnalysisCount(int analysisCount) {
+        this.analysisCount = analysisCount;
+    }
+
+    public RatingSummary getDayRating() {
+        return dayRating;
+    }
+
+    public void setDayRating(RatingSummary dayRating) {
+        this.dayRating = dayRating;
+    }
+
+    public RatingSummary getCalmness() {
+        return calmness;
+    }
+
+    public void setCalmness(RatingSummary calmness) {
+        this.calmness = calmness;
+    }
+
+    public RatingSummary getEnergy() {
+        return energy;
+    }
+
+    public void setEnergy(RatingSummary energy) {
+        this.energy = energy;
+    }
+
+    public RatingSummary getSatisfaction() {
+        return satisfaction;
+    }
+
+    public void setSatisfaction(RatingSummary satisfaction) {
+        this.satisfaction = satisfaction;
+    }
+
+    public RatingSummary getConnection() {
+        return connection;
+    }
+
+    public void setConnection(RatingSummary connection) {
+        this.connection = connection;
+    }
+
+    public RatingSummary getEngagement() {
+        return engagement;
+    }
+
+    public void setEngagement(RatingSummary engagement) {
+        this.engagement = engagement;
+    }
+
+    /**
+     * One rating over the day; average, min and max are null when no analysis had the rating.
+     * The sum lets clients combine days into weighted averages.
+     */
+    public static class RatingSummary {
+
+        private int count;
+        private long sum;
+        private Double average;
+        private Integer min;
+        private Integer max;
+
+        public RatingSummary() {}
+
+        public RatingSummary(int count, long sum, Integer min, Integer max) {
+            this.count = count;
+            this.sum = sum;
+            this.average = count == 0 ? null : (double) sum / count;
+            this.min = min;
+            this.max = max;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public long getSum() {
+            return sum;
+        }
+
+        public void setSum(long sum) {
+            this.sum = sum;
+        }
+
+        public Double getAverage() {
+            return average;
+        }
+
+        public void setAverage(Double average) {
+            this.average = average;
+        }
+
+        public Integer getMin() {
+            return min;
+        }
+
+        public void setMin(Integer min) {
+            this.min = min;
+        }
+
+        public Integer getMax() {
+            return max;
+        }
+
+        public void setMax(Integer max) {
+            this.max = max;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in the history list: the (analyzedAt, id) of the last entry a client has seen.
+ * Sent to clients as an opaque URL-safe token.
+ */
+public class HistoryCursor {
+
+    private static final char SEPARATOR = '|';
+
+    private final ZonedDateTime analyzedAt;
+    private final Long id;
+
+    public HistoryCursor(ZonedDateTime analyzedAt, Long id) {
+        this.analyzedAt = analyzedAt;
+        this.id = id;
+    }
+
+    public ZonedDateTime getAnalyzedAt() {
+        return analyzedAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String encode() {
+        String raw = analyzedAt.toInstant().toString() + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token was not produced by {@link #encode()}
+     */
+    public static HistoryCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("Malformed history cursor");
+            }
+            Instant analyzedAt = Instant.parse(raw.substring(0, separator));
+            long id = Long.parseLong(raw.substring(separator + 1));
+            return new HistoryCursor(analyzedAt.atZone(ZoneOffset.UTC), id);
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed history cursor", e);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.entity;
+
+import jakarta.persistence.*;
+import java.time.ZonedDateTime;
+
+/**
+ * Analysis request queued for background processing. The table doubles as the queue:
+ * workers claim PENDING rows with SELECT ... FOR UPDATE SKIP LOCKED.
+ */
+@Entity
+@Table(name = "analysis_jobs", indexes = {
+    @Index(name = "idx_analysis_jobs_status_created_at", columnList = "status, created_at")
+}, uniqueConstraints = {
+    @UniqueConstraint(name = "uk_analysis_jobs_user_idempotency_key", columnNames = {"user_id", "idempotency_key"})
+})
+public class AnalysisJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private AnalysisJobStatus status = AnalysisJobStatus.PENDING;
+
+    @Column(name = "idempotency_key", length = 100)
+    private String idempotencyKey;
+
+    // AnalysisRequest as JSON
+    @Column(name = "request_payload", nullable = false, columnDefinition = "TEXT")
+    private String requestPayload;
+
+    // AnalysisResponse as JSON, once the job has completed
+    @Column(name = "result", columnDefinition = "TEXT")
+    private String result;
+
+    @Column(name = "day_analysis_id")
+    private Long dayAnalysisId;
+
+    @Column(name = "error", columnDefinition = "TEXT")
+    private String error;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private ZonedDateTime createdAt;
+
+    @Column(name = "started_at")
+    private ZonedDateTime startedAt;
+
+    // A requeued job is not claimed again before this time
+    @Column(name = "not_before")
+    private ZonedDateTime notBefore;
+
+    @Column(name = "completed_at")
+    private ZonedDateTime completedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = ZonedDateTime.now();
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public void setUser(User user) {
+        this.user = user;
+    }
+
+    public AnalysisJobStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(AnalysisJobStatus status) {
+        this.status = status;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
+
+    public String getRequestPayload() {
+        return requestPayload;
+    }
+
+    public void setRequestPayload(String requestPayload) {
+        this.requestPayload = requestPayload;
+    }
+
+    public String getResult() {
+        return result;
+    }
+
+    public void setResult(String result) {
+        this.result = result;
+    }
+
+    public Long getDayAnalysisId() {
+        return dayAnalysisId;
+    }
+
+    public void setDayAnalysisId(Long dayAnalysisId) {
+        this.dayAnalysisId = dayAnalysisId;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public ZonedDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(ZonedDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public ZonedDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(ZonedDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public ZonedDateTime getNotBefore() {
+        return notBefore;
+    }
+
+    public void setNotBefore(ZonedDateTime notBefore) {
+        this.notBefore = notBefore;
+    }
+
+    public ZonedDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(ZonedDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+}
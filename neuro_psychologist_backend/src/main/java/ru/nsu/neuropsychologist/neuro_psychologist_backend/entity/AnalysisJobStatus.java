@@ -0,0 +1,12 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.entity;
+
+public enum AnalysisJobStatus {
+    PENDING,
+    RUNNING,
+    COMPLETED,
+    FAILED;
+
+    public boolean isFinished() {
+        return this == COMPLETED || this == FAILED;
+    }
+}
@@ -6,7 +6,8 @@ import java.util.List;
 
 @Entity
 @Table(name = "day_analyses", indexes = {
-    @Index(name = "idx_day_analyses_user_id", columnList = "user_id"),
+    // Also serves plain user_id lookups; backs keyset pagination of the history
+    @Index(name = "idx_day_analyses_user_history", columnList = "user_id, analyzed_at DESC, id DESC"),
     @Index(name = "idx_day_analyses_analyzed_at", columnList = "analyzed_at")
 })
 public class DayAnalysis {
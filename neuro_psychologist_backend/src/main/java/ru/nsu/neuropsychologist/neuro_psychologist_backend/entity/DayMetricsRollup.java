@@ -0,0 +1,186 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+
+/**
+ * Ratings of one user's analyses on one day, kept up to date as analyses are saved,
+ * so metrics over long ranges read one row per day instead of every analysis.
+ */
+@Entity
+@Table(name = "day_metrics_rollup", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_day_metrics_rollup_user_date", columnNames = {"user_id", "metric_date"})
+})
+public class DayMetricsRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Column(name = "metric_date", nullable = false)
+    private LocalDate metricDate;
+
+    @Column(name = "analysis_count", nullable = false)
+    private int analysisCount;
+
+    @Embedded
+    @AttributeOverrides({
+        @AttributeOverride(name = "count", column = @Column(name = "day_rating_count", nullable = false)),
+        @AttributeOverride(name = "sum", column = @Column(name = "day_rating_sum", nullable = false)),
+        @AttributeOverride(name = "min", column = @Column(name = "day_rating_min")),
+        @AttributeOverride(name = "max", column = @Column(name = "day_rating_max"))
+    })
+    private RatingStats dayRating = new RatingStats();
+
+    @Embedded
+    @AttributeOverrides({
+        @AttributeOverride(name = "count", column = @Column(name = "calmness_count", nullable = false)),
+        @AttributeOverride(name = "sum", column = @Column(name = "calmness_sum", nullable = false)),
+        @AttributeOverride(name = "min", column = @Column(name = "calmness_min")),
+        @AttributeOverride(name = "max", column = @Column(name = "calmness_max"))
+    })
+    private RatingStats calmness = new RatingStats();
+
+    @Embedded
+    @AttributeOverrides({
+        @AttributeOverride(name = "count", column = @Column(name = "energy_count", nullable = false)),
+        @AttributeOverride(name = "sum", column = @Column(name = "energy_sum", nullable = false)),
+        @AttributeOverride(name = "min", column = @Column(name = "energy_min")),
+        @AttributeOverride(name = "max", column = @Column(name = "energy_max"))
+    })
+    private RatingStats energy = new RatingStats();
+
+    @Embedded
+    @AttributeOverrides({
+        @AttributeOverride(name = "count", column = @Column(name = "satisfaction_count", nullable = false)),
+        @AttributeOverride(name = "sum", column = @Column(name = "satisfaction_sum", nullable = false)),
+        @AttributeOverride(name = "min", column = @Column(name = "satisfaction_min")),
+        @AttributeOverride(name = "max", column = @Column(name = "satisfaction_max"))
+    })
+    private RatingStats satisfaction = new RatingStats();
+
+    @Embedded
+    @AttributeOverrides({
+        @AttributeOverride(name = "count", column = @Column(name = "connection_count", nullable = false)),
+        @AttributeOverride(name = "sum", column = @Column(name = "connection_sum", nullable = false)),
+        @AttributeOverride(name = "min", column = @Column(name = "connection_min")),
+        @AttributeOverride(name = "max", column = @Column(name = "connection_max"))
+    })
+    private RatingStats connection = new RatingStats();
+
+    @Embedded
+    @AttributeOverrides({
+        @AttributeOverride(name = "count", column = @Column(name = "engagement_count", nullable = false)),
+        @AttributeOverride(name = "sum", column = @Column(name = "engagement_sum", nullable = false)),
+        @AttributeOverride(name = "min", column = @Column(name = "engagement_min")),
+        @AttributeOverride(name = "max", column = @Column(name = "engagement_max"))
+    })
+    private RatingStats engagement = new RatingStats();
+
+    public DayMetricsRollup() {
+    }
+
+    public DayMetricsRollup(User user, LocalDate metricDate) {
+        this.user = user;
+        this.metricDate = metricDate;
+    }
+
+    /**
+     * Adds the ratings of one analysis, identified by the columns of day_analyses.
+     */
+    public void add(Integer dayRating, Integer calmnessRating, Integer energyRating,
+                    Integer satisfactionRating, Integer connectionRating, Integer engagementRating) {
+        analysisCount++;
+        this.dayRating.add(dayRating);
+        this.calmness.add(calmnessRating);
+        this.energy.add(energyRating);
+        this.satisfaction.add(satisfactionRating);
+        this.connection.add(connectionRating);
+        this.engagement.add(engagementRating);
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public void setUser(User user) {
+        this.user = user;
+    }
+
+    public LocalDate getMetricDate() {
+        return metricDate;
+    }
+
+    public void setMetricDate(LocalDate metricDate) {
+        this.metricDate = metricDate;
+    }
+
+    public int getAnalysisCount() {
+        return analysisCount;
+    }
+
+    public void setAnalysisCount(int analysisCount) {
+        this.analysisCount = analysisCount;
+    }
+
+    public RatingStats getDayRating() {
+        return dayRating;
+    }
+
+    public void setDayRating(RatingStats dayRating) {
+        this.dayRating = dayRating;
+    }
+
+    public RatingStats getCalmness() {
+        return calmness;
+    }
+
+    public void setCalmness(RatingStats calmness) {
+        this.calmness = calmness;
+    }
+
+    public RatingStats getEnergy() {
+        return energy;
+    }
+
+    public void setEnergy(RatingStats energy) {
+        this.energy = energy;
+    }
+
+    public RatingStats getSatisfaction() {
+        return satisfaction;
+    }
+
+    public void setSatisfaction(RatingStats satisfaction) {
+        this.satisfaction = satisfaction;
+    }
+
+    public RatingStats getConnection() {
+        return connection;
+    }
+
+    public void setConnection(RatingStats connection) {
+        this.connection = connection;
+    }
+
+    public RatingStats getEngagement() {
+        return engagement;
+    }
+
+    public void setEngagement(RatingStats engagement) {
+        this.engagement = engagement;
+    }
+}
@@ -0,0 +1,68 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+
+/**
+ * Running count, sum, min and max of one rating, embedded once per rating in {@link DayMetricsRollup}.
+ */
+@Embeddable
+public class RatingStats {
+
+    @Column(name = "count", nullable = false)
+    private int count;
+
+    @Column(name = "sum", nullable = false)
+    private long sum;
+
+    @Column(name = "min")
+    private Integer min;
+
+    @Column(name = "max")
+    private Integer max;
+
+    /**
+     * Adds one rating; analyses without this rating pass null and are not counted.
+     */
+    public void add(Integer value) {
+        if (value == null) {
+            return;
+        }
+        count++;
+        sum += value;
+        min = min == null ? value : Math.min(min, value);
+        max = max == null ? value : Math.max(max, value);
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+
+    public long getSum() {
+        return sum;
+    }
+
+    public void setSum(long sum) {
+        this.sum = sum;
+    }
+
+    public Integer getMin() {
+        return min;
+    }
+
+    public void setMin(Integer min) {
+        this.min = min;
+    }
+
+    public Integer getMax() {
+        return max;
+    }
+
+    public void setMax(Integer max) {
+        this.max = max;
+    }
+}
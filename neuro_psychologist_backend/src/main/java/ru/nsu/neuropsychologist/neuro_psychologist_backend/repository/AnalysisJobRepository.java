@@ -0,0 +1,99 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.repository;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.entity.AnalysisJob;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.entity.AnalysisJobStatus;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.entity.User;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface AnalysisJobRepository extends JpaRepository<AnalysisJob, Long> {
+
+    Optional<AnalysisJob> findByIdAndUser(Long id, User user);
+
+    Optional<AnalysisJob> findByUserAndIdempotencyKey(User user, String idempotencyKey);
+
+    // Lock timeout -2 makes Hibernate emit FOR UPDATE SKIP LOCKED, so workers never claim the same row
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT j FROM AnalysisJob j WHERE j.status = :status AND (j.notBefore IS NULL OR j.notBefore <= :now) " +
+           "ORDER BY j.createdAt ASC")
+    List<AnalysisJob> findReadyByStatus(
+        @Param("status") AnalysisJobStatus status,
+        @Param("now") ZonedDateTime now,
+        Pageable pageable
+    );
+
+    @Modifying
+    @Query("UPDATE AnalysisJob j SET j.status = :pending, j.startedAt = null " +
+           "WHERE j.status = :running AND j.startedAt < :startedBefore AND j.attempts < :maxAttempts")
+    int requeueStaleJobs(
+        @Param("running") AnalysisJobStatus running,
+        @Param("pending") AnalysisJobStatus pending,
+        @Param("startedBefore") ZonedDateTime startedBefore,
+        @Param("maxAttempts") int maxAttempts
+    );
+
+    // The job is only finished by the worker holding its current claim: a worker that was too
+    // slow and had its job requeued finds another attempt number (or status) and updates nothing
+    @Modifying
+    @Query("UPDATE AnalysisJob j SET j.status = :completed, j.dayAnalysisId = :dayAnalysisId, j.result = :result, " +
+           "j.completedAt = :now WHERE j.id = :id AND j.status = :running AND j.attempts = :attempts")
+    int completeClaimedJob(
+        @Param("id") Long id,
+        @Param("attempts") int attempts,
+        @Param("running") AnalysisJobStatus running,
+        @Param("completed") AnalysisJobStatus completed,
+        @Param("dayAnalysisId") Long dayAnalysisId,
+        @Param("result") String result,
+        @Param("now") ZonedDateTime now
+    );
+
+    @Modifying
+    @Query("UPDATE AnalysisJob j SET j.status = :failed, j.error = :error, j.completedAt = :now " +
+           "WHERE j.id = :id AND j.status = :running AND j.attempts = :attempts")
+    int failClaimedJob(
+        @Param("id") Long id,
+        @Param("attempts") int attempts,
+        @Param("running") AnalysisJobStatus running,
+        @Param("failed") AnalysisJobStatus failed,
+        @Param("error") String error,
+        @Param("now") ZonedDateTime now
+    );
+
+    @Modifying
+    @Query("UPDATE AnalysisJob j SET j.status = :pending, j.startedAt = null, j.notBefore = :notBefore " +
+           "WHERE j.id = :id AND j.status = :running AND j.attempts = :attempts")
+    int requeueClaimedJob(
+        @Param("id") Long id,
+        @Param("attempts") int attempts,
+        @Param("running") AnalysisJobStatus running,
+        @Param("pending") AnalysisJobStatus pending,
+        @Param("notBefore") ZonedDateTime notBefore
+    );
+
+    // Stale jobs that already used up their attempts, e.g. because they keep killing the worker
+    @Modifying
+    @Query("UPDATE AnalysisJob j SET j.status = :failed, j.error = :error, j.completedAt = :now " +
+           "WHERE j.status = :running AND j.startedAt < :startedBefore AND j.attempts >= :maxAttempts")
+    int failStaleJobs(
+        @Param("running") AnalysisJobStatus running,
+        @Param("failed") AnalysisJobStatus failed,
+        @Param("startedBefore") ZonedDateTime startedBefore,
+        @Param("maxAttempts") int maxAttempts,
+        @Param("error") String error,
+        @Param("now") ZonedDateTime now
+    );
+}
@@ -1,14 +1,18 @@
 package ru.nsu.neuropsychologist.neuro_psychologist_backend.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.nsu.neuropsychologist.neuro_psychologist_backend.entity.DayAnalysis;
 import ru.nsu.neuropsychologist.neuro_psychologist_backend.entity.User;
 
 import java.time.ZonedDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface DayAnalysisRepository extends JpaRepository<DayAnalysis, Long> {
@@ -24,4 +28,35 @@ public interface DayAnalysisRepository extends JpaRepository<DayAnalysis, Long>
     List<DayAnalysis> findTop10ByUserOrderByAnalyzedAtDesc(User user);
     
     Page<DayAnalysis> findByUserOrderByAnalyzedAtDesc(User user, Pageable pageable);
+    
+    // Only the rating columns, for /metrics and rebuilding the metrics rollup
+    List<DayMetricsView> findMetricsByUser(User user);
+    
+    // Only the rating columns, for /metrics
+    List<DayMetricsView> findMetricsByUserAndAnalyzedAtBetweenOrderByAnalyzedAtDesc(
+        User user,
+        ZonedDateTime startDate,
+        ZonedDateTime endDate
+    );
+    
+    // Keyset pagination over idx_day_analyses_user_history: no OFFSET scan and no count query.
+    // Rows skip the TEXT columns, an opened entry is read with findByIdAndUser
+    List<HistoryEntryView> findHistoryByUserOrderByAnalyzedAtDescIdDesc(User user, Limit limit);
+    
+    @Query("SELECT new ru.nsu.neuropsychologist.neuro_psychologist_backend.repository.HistoryEntryView(" +
+           "d.id, d.analyzedAt, d.createdAt, d.isCheckin, d.dayRating, d.calmnessRating, d.energyRating, " +
+           "d.satisfactionRating, d.connectionRating, d.engagementRating) " +
+           "FROM DayAnalysis d WHERE d.user = :user " +
+           "AND (d.analyzedAt < :analyzedAt OR (d.analyzedAt = :analyzedAt AND d.id < :id)) " +
+           "ORDER BY d.analyzedAt DESC, d.id DESC")
+    List<HistoryEntryView> findHistoryAfter(
+        @Param("user") User user,
+        @Param("analyzedAt") ZonedDateTime analyzedAt,
+        @Param("id") Long id,
+        Limit limit
+    );
+    
+    long countByUser(User user);
+    
+    Optional<DayAnalysis> findByIdAndUser(Long id, User user);
 }
\ No newline at end of file
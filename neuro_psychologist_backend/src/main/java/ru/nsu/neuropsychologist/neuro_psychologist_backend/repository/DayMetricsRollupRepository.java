@@ -0,0 +1,29 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.entity.DayMetricsRollup;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.entity.User;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface DayMetricsRollupRepository extends JpaRepository<DayMetricsRollup, Long> {
+
+    Optional<DayMetricsRollup> findByUserAndMetricDate(User user, LocalDate metricDate);
+
+    List<DayMetricsRollup> findByUserAndMetricDateBetweenOrderByMetricDateAsc(
+        User user,
+        LocalDate startDate,
+        LocalDate endDate
+    );
+
+    @Modifying
+    @Query("DELETE FROM DayMetricsRollup r WHERE r.user = :user")
+    int deleteByUser(@Param("user") User user);
+}
@@ -0,0 +1,18 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.repository;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Ratings of one analysis, read without the TEXT columns of day_analyses.
+ */
+public record DayMetricsView(
+        Long id,
+        ZonedDateTime analyzedAt,
+        Boolean isCheckin,
+        Integer dayRating,
+        Integer calmnessRating,
+        Integer energyRating,
+        Integer satisfactionRating,
+        Integer connectionRating,
+        Integer engagementRating) {
+}
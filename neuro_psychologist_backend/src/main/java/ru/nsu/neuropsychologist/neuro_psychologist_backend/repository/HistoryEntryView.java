@@ -0,0 +1,20 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.repository;
+
+import java.time.ZonedDateTime;
+
+/**
+ * One row of the history list. Texts, recommendations and the LLM answer are loaded
+ * separately when an entry is opened.
+ */
+public record HistoryEntryView(
+        Long id,
+        ZonedDateTime analyzedAt,
+        ZonedDateTime createdAt,
+        Boolean isCheckin,
+        Integer dayRating,
+        Integer calmnessRating,
+        Integer energyRating,
+        Integer satisfactionRating,
+        Integer connectionRating,
+        Integer engagementRating) {
+}
@@ -1,9 +1,14 @@
 package ru.nsu.neuropsychologist.neuro_psychologist_backend.repository;
 
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.nsu.neuropsychologist.neuro_psychologist_backend.entity.User;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -12,4 +17,14 @@ public interface UserRepository extends JpaRepository<User, Integer> {
     Optional<User> findByEmail(String email);
     
     boolean existsByEmail(String email);
+    
+    // Row lock on the user, serializes updates of the user's metrics rollup
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT u FROM User u WHERE u.id = :id")
+    Optional<User> lockById(@Param("id") Integer id);
+    
+    // Users with analyses whose metrics rollup has never been built
+    @Query("SELECT u FROM User u WHERE EXISTS (SELECT a.id FROM DayAnalysis a WHERE a.user = u) " +
+           "AND NOT EXISTS (SELECT r.id FROM DayMetricsRollup r WHERE r.user = u)")
+    List<User> findUsersWithoutMetricsRollup();
 }
\ No newline at end of file
@@ -13,15 +13,16 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Collections;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     
-    private final JwtUtil jwtUtil;
+    private final VerifiedTokenCache verifiedTokenCache;
     private final UserDetailsService userDetailsService;
     
-    public JwtAuthenticationFilter(JwtUtil jwtUtil, UserDetailsService userDetailsService) {
-        this.jwtUtil = jwtUtil;
+    public JwtAuthenticationFilter(VerifiedTokenCache verifiedTokenCache, UserDetailsService userDetailsService) {
+        this.verifiedTokenCache = verifiedTokenCache;
         this.userDetailsService = userDetailsService;
     }
     
@@ -32,31 +33,39 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         
         final String authorizationHeader = request.getHeader("Authorization");
         
-        String username = null;
-        String jwt = null;
+        VerifiedToken verifiedToken = null;
         
         if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-            jwt = authorizationHeader.substring(7);
+            String jwt = authorizationHeader.substring(7);
             try {
-                username = jwtUtil.extractUsername(jwt);
+                // Verifies signature and expiry, or reuses an earlier verification of the same token
+                verifiedToken = verifiedTokenCache.verify(jwt);
             } catch (Exception e) {
                 logger.error("JWT token extraction failed: " + e.getMessage());
             }
         }
         
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
-            
-            if (jwtUtil.validateToken(jwt, userDetails)) {
-                UsernamePasswordAuthenticationToken authenticationToken = 
-                    new UsernamePasswordAuthenticationToken(
-                        userDetails, 
-                        null, 
+        if (verifiedToken != null && verifiedToken.subject() != null
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
+            Integer userId = verifiedToken.userId();
+            UsernamePasswordAuthenticationToken authenticationToken;
+            if (userId != null) {
+                authenticationToken = new UsernamePasswordAuthenticationToken(
+                        new JwtPrincipal(userId, verifiedToken.subject()),
+                        null,
+                        Collections.emptyList()
+                );
+            } else {
+                // Tokens issued before the user id claim existed
+                UserDetails userDetails = this.userDetailsService.loadUserByUsername(verifiedToken.subject());
+                authenticationToken = new UsernamePasswordAuthenticationToken(
+                        userDetails,
+                        null,
                         userDetails.getAuthorities()
-                    );
-                authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                SecurityContextHolder.getContext().setAuthentication(authenticationToken);
+                );
             }
+            authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+            SecurityContextHolder.getContext().setAuthentication(authenticationToken);
         }
         
         filterChain.doFilter(request, response);
@@ -0,0 +1,39 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.security;
+
+import java.security.Principal;
+
+/**
+ * Authenticated user as described by a verified JWT: the id and email from its claims,
+ * without loading the user from the database.
+ */
+public class JwtPrincipal implements Principal {
+
+    private final Integer userId;
+    private final String email;
+
+    public JwtPrincipal(Integer userId, String email) {
+        this.userId = userId;
+        this.email = email;
+    }
+
+    public Integer getUserId() {
+        return userId;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    /**
+     * The email, so {@code Authentication.getName()} keeps returning it.
+     */
+    @Override
+    public String getName() {
+        return email;
+    }
+
+    @Override
+    public String toString() {
+        return "JwtPrincipal{userId=" + userId + ", email='" + email + "'}";
+    }
+}
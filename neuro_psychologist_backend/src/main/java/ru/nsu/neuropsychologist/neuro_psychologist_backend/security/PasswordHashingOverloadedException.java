@@ -0,0 +1,19 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.security;
+
+/**
+ * Thrown when a password hash or check is rejected because the hashing executor and its
+ * queue are full. Controllers map it to 503 with a Retry-After header.
+ */
+public class PasswordHashingOverloadedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public PasswordHashingOverloadedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,19 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.security;
+
+import io.jsonwebtoken.Claims;
+
+import java.time.Instant;
+
+/**
+ * What a verified JWT says about its bearer. userId is null for tokens issued
+ * before the {@link JwtUtil#USER_ID_CLAIM} claim existed.
+ */
+public record VerifiedToken(String subject, Integer userId, Instant expiresAt) {
+
+    public static VerifiedToken from(Claims claims) {
+        return new VerifiedToken(
+                claims.getSubject(),
+                claims.get(JwtUtil.USER_ID_CLAIM, Integer.class),
+                claims.getExpiration().toInstant());
+    }
+}
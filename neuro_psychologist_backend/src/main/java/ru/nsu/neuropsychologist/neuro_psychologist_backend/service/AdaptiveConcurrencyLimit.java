@@ -0,0 +1,176 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.config.AiApiProperties;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Gradient-style adaptive limit for concurrent LLM calls, applied to {@link LlmBulkhead}.
+ * <p>
+ * Each completed call compares its round-trip time with a long-term average. While
+ * latency stays close to the average the limit grows by about sqrt(limit); once calls
+ * slow down the limit shrinks in proportion. Throttling (429), upstream 5xx and timeouts
+ * cut the limit multiplicatively, so we back off before the provider starts rejecting us.
+ */
+@Component
+public class AdaptiveConcurrencyLimit {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveConcurrencyLimit.class);
+
+    // Latency may exceed the long-term average by this factor before the limit shrinks
+    private static final double RTT_TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final double BACKOFF_RATIO = 0.9;
+    private static final int LONG_WINDOW = 100;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LlmBulkhead llmBulkhead;
+    private final boolean enabled;
+    private final int minLimit;
+    private final int maxLimit;
+    private final Counter drops;
+
+    private double estimatedLimit;
+    private double longRttNanos;
+
+    public AdaptiveConcurrencyLimit(AiApiProperties aiApiProperties, LlmBulkhead llmBulkhead, MeterRegistry meterRegistry) {
+        this.llmBulkhead = llmBulkhead;
+        this.enabled = aiApiProperties.isAdaptiveLimitEnabled();
+        this.minLimit = aiApiProperties.getAdaptiveLimitMin();
+        this.maxLimit = aiApiProperties.getAdaptiveLimitMax();
+        this.estimatedLimit = aiApiProperties.getBulkheadMaxConcurrentCalls();
+
+        Gauge.builder("ai.llm.adaptive.limit", this, AdaptiveConcurrencyLimit::getEstimatedLimit)
+                .description("Current adaptive estimate of the LLM concurrency limit")
+                .register(meterRegistry);
+        Gauge.builder("ai.llm.adaptive.rtt.long", this, limit -> limit.getLongRttNanos() / 1_000_000.0)
+                .description("Long-term average LLM round-trip time in milliseconds")
+                .register(meterRegistry);
+        this.drops = Counter.builder("ai.llm.adaptive.drops")
+                .description("LLM calls that signalled overload (429, 5xx or timeout)")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Times the call from subscription to completion and feeds the outcome into the limit.
+     */
+    public <T> Mono<T> measure(Mono<T> call) {
+        if (!enabled) {
+            return call;
+        }
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            int inFlight = llmBulkhead.getActiveCalls();
+            return call
+                    .doOnSuccess(result -> onSample(System.nanoTime() - start, inFlight, false))
+                    .doOnError(e -> {
+                        if (isOverloadSignal(e)) {
+                            onSample(System.nanoTime() - start, inFlight, true);
+                        }
+                    });
+        });
+    }
+
+    /**
+     * Streaming counterpart of {@link #measure(Mono)}. The sample is the time until the last
+     * chunk, so streamed answers are compared on the same terms as complete ones; a stream
+     * the client cancels gives no sample.
+     */
+    public <T> Flux<T> measureMany(Flux<T> call) {
+        if (!enabled) {
+            return call;
+        }
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            int inFlight = llmBulkhead.getActiveCalls();
+            return call
+                    .doOnComplete(() -> onSample(System.nanoTime() - start, inFlight, false))
+                    .doOnError(e -> {
+                        if (isOverloadSignal(e)) {
+                            onSample(System.nanoTime() - start, inFlight, true);
+                        }
+                    });
+        });
+    }
+
+    void onSample(long rttNanos, int inFlight, boolean dropped) {
+        int newLimit;
+        lock.lock();
+        try {
+            if (dropped) {
+                drops.increment();
+                estimatedLimit = Math.max(minLimit, estimatedLimit * BACKOFF_RATIO);
+            } else {
+                updateLongRtt(rttNanos);
+
+                // Only grow the limit when calls actually use most of it
+                if (inFlight * 2 < estimatedLimit && rttNanos <= longRttNanos) {
+                    return;
+                }
+
+                double gradient = Math.max(0.5, Math.min(1.0, RTT_TOLERANCE * longRttNanos / rttNanos));
+                double queueSize = Math.sqrt(estimatedLimit);
+                double target = estimatedLimit * gradient + queueSize;
+                estimatedLimit = estimatedLimit * (1 - SMOOTHING) + target * SMOOTHING;
+                estimatedLimit = Math.max(minLimit, Math.min(maxLimit, estimatedLimit));
+            }
+            newLimit = (int) estimatedLimit;
+        } finally {
+            lock.unlock();
+        }
+
+        if (newLimit != llmBulkhead.getMaxConcurrentCalls()) {
+            logger.info("Adjusting LLM concurrency limit to {}", newLimit);
+            llmBulkhead.setMaxConcurrentCalls(newLimit);
+        }
+    }
+
+    public double getEstimatedLimit() {
+        lock.lock();
+        try {
+            return estimatedLimit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    double getLongRttNanos() {
+        lock.lock();
+        try {
+            return longRttNanos;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void updateLongRtt(long rttNanos) {
+        if (longRttNanos == 0) {
+            longRttNanos = rttNanos;
+            return;
+        }
+        longRttNanos += (rttNanos - longRttNanos) / LONG_WINDOW;
+
+        // After a slow period let the average recover quickly, otherwise the limit overshoots
+        if (longRttNanos > 2.0 * rttNanos) {
+            longRttNanos *= 0.95;
+        }
+    }
+
+    private static boolean isOverloadSignal(Throwable e) {
+        if (e instanceof WebClientResponseException responseException) {
+            HttpStatusCode status = responseException.getStatusCode();
+            return status.value() == 429 || status.is5xxServerError();
+        }
+        return UpstreamErrors.isTimeout(e);
+    }
+}
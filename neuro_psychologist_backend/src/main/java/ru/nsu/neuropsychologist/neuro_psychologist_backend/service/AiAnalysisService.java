@@ -3,45 +3,63 @@ package ru.nsu.neuropsychologist.neuro_psychologist_backend.service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import ru.nsu.neuropsychologist.neuro_psychologist_backend.config.AiApiProperties;
 import ru.nsu.neuropsychologist.neuro_psychologist_backend.dto.AnalysisRequest;
 import ru.nsu.neuropsychologist.neuro_psychologist_backend.dto.AnalysisResponse;
 
 import java.time.ZonedDateTime;
-import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class AiAnalysisService {
 
     private static final Logger logger = LoggerFactory.getLogger(AiAnalysisService.class);
-    private static final Pattern JSON_PATTERN = Pattern.compile("\\{.*?\\}", Pattern.DOTALL);
-    private static final Pattern RATING_PATTERN = Pattern.compile("(\\d+)/10|(\\d+)\\s*из\\s*10|рейтинг[\\s:]*([1-9]|10)");
-    private static final Pattern RECOMMENDATION_PATTERN = Pattern.compile(
-            "(?:рекомендация|совет)[\\s:\\d]*[\\-\\•\\*]?\\s*(.+?)(?=\\n|$|(?:рекомендация|совет))",
-            Pattern.CASE_INSENSITIVE | Pattern.DOTALL
-    );
-
-    private final WebClient.Builder webClientBuilder;
+
+    private static final String STRUCTURED_OUTPUT_INSTRUCTION = "\n\nОтветь строго одним JSON-объектом без пояснений " +
+            "и markdown-разметки по схеме: {\"rating\": целое число от 1 до 10 (общая оценка дня, где 1 - очень плохой день, " +
+            "10 - отличный день), \"summary\": \"анализ состояния пользователя\", " +
+            "\"recommendations\": [\"конкретная рекомендация\", ...]}";
+
+    private static final String INVALID_TEXT_ERROR = "Текст слишком короткий или не содержит достаточно информации для анализа. " +
+            "Пожалуйста, опишите ваш день более подробно.";
+
+    private final WebClient webClient;
     private final AiApiProperties aiApiProperties;
-    private final YandexIamTokenService iamTokenService;
+    private final AnalysisResponseCache responseCache;
+    private final LlmBulkhead llmBulkhead;
+    private final AdaptiveConcurrencyLimit adaptiveLimit;
+    private final AnalysisMetrics analysisMetrics;
+    private final AnalysisTextParser textParser;
+    private final YandexCompletionParser completionParser;
 
     @Autowired
-    public AiAnalysisService(AiApiProperties aiApiProperties, YandexIamTokenService iamTokenService) {
+    public AiAnalysisService(AiApiProperties aiApiProperties,
+                             @Qualifier("yandexGptWebClient") WebClient webClient,
+                             AnalysisResponseCache responseCache,
+                             LlmBulkhead llmBulkhead,
+                             AdaptiveConcurrencyLimit adaptiveLimit,
+                             AnalysisMetrics analysisMetrics,
+                             AnalysisTextParser textParser,
+                             YandexCompletionParser completionParser) {
         this.aiApiProperties = aiApiProperties;
-        this.iamTokenService = iamTokenService;
-        this.webClientBuilder = WebClient.builder()
-                .baseUrl(aiApiProperties.getUrl())
-                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
-                .defaultHeader("x-folder-id", aiApiProperties.getFolderId());
+        this.webClient = webClient;
+        this.responseCache = responseCache;
+        this.llmBulkhead = llmBulkhead;
+        this.adaptiveLimit = adaptiveLimit;
+        this.analysisMetrics = analysisMetrics;
+        this.textParser = textParser;
+        this.completionParser = completionParser;
     }
 
     public AnalysisResponse analyzeUserText(String userText) {
@@ -49,242 +67,317 @@ public class AiAnalysisService {
     }
 
     public AnalysisResponse analyzeUserText(AnalysisRequest request) {
-        try {
-            logger.info("Starting analysis for user text");
+        return analyzeUserTextReactive(request).block();
+    }
 
-            // Check if this is a check-in request
-            if (request.isCheckInRequest()) {
-                logger.info("Processing as check-in request");
-                return analyzeCheckIn(request);
-            }
+    /**
+     * Non-blocking variant of {@link #analyzeUserText(AnalysisRequest)}.
+     * Failures are mapped to an unsuccessful AnalysisResponse, except {@link LlmOverloadedException}
+     * which is propagated so that callers can answer 503.
+     */
+    public Mono<AnalysisResponse> analyzeUserTextReactive(AnalysisRequest request) {
+        // Check if this is a check-in request
+        if (request.isCheckInRequest()) {
+            logger.info("Processing as check-in request");
+            return analyzeCheckInReactive(request);
+        }
 
-            // Проверка на минимальную осмысленность текста
-            if (!isTextValidForAnalysis(request.getUserText())) {
-                return createInvalidTextResponse(request.getUserText());
-            }
+        return textAnalysis(request).onErrorResume(e -> !(e instanceof LlmOverloadedException),
+                e -> Mono.just(createErrorResponse(e, "Unexpected error during analysis")));
+    }
 
-            String systemPrompt = getSystemPrompt();
-            String userPrompt = createUserPrompt(request.getUserText(), request.getCustomPrompt());
-
-            Map<String, Object> requestBody = Map.of(
-                    "modelUri", aiApiProperties.getModel(),
-                    "completionOptions", Map.of(
-                            "stream", false,
-                            "temperature", aiApiProperties.getTemperature(),
-                            "maxTokens", String.valueOf(aiApiProperties.getMaxTokens())
-                    ),
-                    "messages", List.of(
-                            Map.of("role", "system", "text", systemPrompt),
-                            Map.of("role", "user", "text", userPrompt)
-                    )
-            );
-
-            logger.info("Getting IAM token");
-            String iamToken = iamTokenService.getIamToken();
-            logger.info("IAM token obtained successfully");
-
-            WebClient webClient = webClientBuilder
-                    .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + iamToken)
-                    .build();
-
-            logger.info("Sending request to Yandex GPT API");
-            String responseJson = webClient.post()
-                    .bodyValue(requestBody)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
+    /**
+     * Like {@link #analyzeUserTextReactive(AnalysisRequest)}, but a failed Yandex GPT call
+     * (HTTP error, timeout, lost connection) is propagated instead of being turned into an
+     * unsuccessful response, so that background jobs can tell it apart and retry it.
+     */
+    public Mono<AnalysisResponse> analyzeUserTextPropagatingErrors(AnalysisRequest request) {
+        return request.isCheckInRequest() ? checkInAnalysis(request) : textAnalysis(request);
+    }
 
-            logger.info("Received response from Yandex GPT API");
-            logger.debug("Raw response: {}", responseJson);
+    private Mono<AnalysisResponse> textAnalysis(AnalysisRequest request) {
+        return countOutcome(AnalysisMetrics.TYPE_TEXT, Mono.defer(() -> {
+            logger.info("Starting analysis for user text");
 
-            // Извлекаем текст из JSON ответа
-            String extractedText = extractTextFromYandexResponse(responseJson);
-            logger.info("Extracted text from response");
+            // Проверка на минимальную осмысленность текста
+            if (!isTextValidForAnalysis(request.getUserText())) {
+                return Mono.just(createInvalidTextResponse(request.getUserText()));
+            }
 
-            // Создаем ответ с извлеченным текстом
-            AnalysisResponse response = new AnalysisResponse();
-            response.setAnalysisText(extractedText);
-            response.setSuccess(true);
-            response.setAnalyzedAt(ZonedDateTime.now());
-            
-            return response;
+            Prompt prompt = buildPrompt(request, false, aiApiProperties.isStructuredOutputEnabled());
 
-        } catch (WebClientResponseException e) {
-            logger.error("WebClient error: {} - {}", e.getStatusCode(), e.getResponseBodyAsString());
-            return new AnalysisResponse("Ошибка при обращении к AI API: " + e.getStatusCode() + " " + e.getResponseBodyAsString());
-        } catch (Exception e) {
-            logger.error("Unexpected error during analysis", e);
-            return new AnalysisResponse("Внутренняя ошибка сервера: " + e.getMessage());
-        }
+            return requestCompletion(prompt, AnalysisMetrics.TYPE_TEXT, request.isCacheAllowed())
+                    .map(extractedText -> prompt.structured()
+                            ? createStructuredResponse(extractedText, false)
+                            : createAnalysisResponse(extractedText, false));
+        }));
     }
 
-    private AnalysisResponse parseTextResponse(String responseJson) {
-        try {
-            // Извлекаем текстовый ответ из JSON структуры
-            String textResponse = extractTextFromYandexResponse(responseJson);
-            logger.info("Extracted text response: {}", textResponse);
+    /**
+     * Streams the answer while Yandex GPT generates it. Each element is the text added since
+     * the previous one, so the concatenation is the full answer; pass it to
+     * {@link #createAnalysisResponse(AnalysisRequest, String)} once the stream completes.
+     * Text that is too short to analyse fails with {@link IllegalArgumentException}.
+     */
+    public Flux<String> streamUserTextReactive(AnalysisRequest request) {
+        String type = AnalysisMetrics.typeOf(request);
+        return Flux.defer(() -> {
+            if (request.isCheckInRequest()) {
+                logger.info("Starting streamed check-in analysis");
+            } else {
+                logger.info("Starting streamed analysis for user text");
+                if (!isTextValidForAnalysis(request.getUserText())) {
+                    return Flux.<String>error(new IllegalArgumentException(INVALID_TEXT_ERROR));
+                }
+            }
 
-            // Пытаемся найти JSON в тексте
-            Integer dayRating = extractDayRating(textResponse);
-            List<String> recommendations = extractRecommendations(textResponse);
+            // Streamed text goes to the client as it is generated, so it is never asked for JSON
+            Prompt prompt = buildPrompt(request, request.isCheckInRequest(), false);
+            return streamCompletion(prompt, type, request.isCacheAllowed());
+        }).doOnComplete(() -> analysisMetrics.recordOutcome(type, "success"))
+                .doOnError(e -> analysisMetrics.recordOutcome(type, outcomeOf(e)));
+    }
 
-            // Если не удалось извлечь структурированные данные, используем текст как рекомендацию
-            if (dayRating == null && recommendations.isEmpty()) {
-                logger.info("No structured data found, using text as recommendation");
-                recommendations = List.of(textResponse);
-                dayRating = estimateRatingFromText(textResponse);
-            }
+    /**
+     * Builds a successful response from the model answer; check-ins also get their recommendations parsed.
+     */
+    public AnalysisResponse createAnalysisResponse(AnalysisRequest request, String text) {
+        return createAnalysisResponse(text, request.isCheckInRequest());
+    }
 
-            // Если всё равно нет рейтинга, ставим по умолчанию
-            if (dayRating == null) {
-                dayRating = 5; // средний рейтинг по умолчанию
-            }
+    private AnalysisResponse createAnalysisResponse(String text, boolean checkIn) {
+        AnalysisResponse response = new AnalysisResponse();
+        response.setAnalysisText(text);
+        if (checkIn) {
+            response.setRecommendations(analysisMetrics.timeParse(AnalysisMetrics.TYPE_CHECK_IN, "recommendations",
+                    () -> textParser.extractRecommendationsFromText(text)));
+        }
+        response.setSuccess(true);
+        response.setAnalyzedAt(ZonedDateTime.now());
+        return response;
+    }
 
-            // Создаем успешный ответ
-            AnalysisResponse response = new AnalysisResponse();
-            response.setDayRating(dayRating);
-            response.setRecommendations(recommendations);
-            response.setAnalyzedAt(ZonedDateTime.now());
+    /**
+     * Builds the response from a structured JSON answer; an answer that does not match the
+     * schema is handled like a free-text one, with rating and recommendations scraped from it.
+     */
+    private AnalysisResponse createStructuredResponse(String text, boolean checkIn) {
+        String type = checkIn ? AnalysisMetrics.TYPE_CHECK_IN : AnalysisMetrics.TYPE_TEXT;
+        AnalysisResponse response = analysisMetrics.timeParse(type, "structured",
+                () -> completionParser.parseStructuredAnswer(text));
+        // A free-text analysis is not useful without its rating
+        if (response != null && (checkIn || response.getDayRating() != null)) {
+            analysisMetrics.recordStructuredOutput(type, true);
+            response.setId(null);
+            response.setError(null);
             response.setSuccess(true);
-
+            response.setAnalyzedAt(ZonedDateTime.now());
             return response;
+        }
 
-        } catch (Exception e) {
-            logger.error("Error parsing AI response: {}", e.getMessage(), e);
-            return new AnalysisResponse("Ошибка при обработке ответа AI: " + e.getMessage());
+        logger.warn("Structured answer did not match the schema, falling back to free-text parsing");
+        analysisMetrics.recordStructuredOutput(type, false);
+        if (checkIn) {
+            return createAnalysisResponse(text, true);
         }
+        return analysisMetrics.timeParse(type, "fallback", () -> parseTextResponse(text));
     }
 
-    private String extractTextFromYandexResponse(String responseJson) {
-        try {
-            // Пытаемся парсить как JSON
-            com.fasterxml.jackson.databind.ObjectMapper mapper = new com.fasterxml.jackson.databind.ObjectMapper();
-            var root = mapper.readTree(responseJson);
-            var result = root.path("result");
-            var alternatives = result.path("alternatives");
-
-            if (alternatives.isArray() && !alternatives.isEmpty()) {
-                var firstAlternative = alternatives.get(0);
-                var message = firstAlternative.path("message");
-                return message.path("text").asText();
-            }
-        } catch (Exception e) {
-            logger.warn("Could not parse as JSON, using raw response");
+    private Mono<AnalysisResponse> countOutcome(String type, Mono<AnalysisResponse> analysis) {
+        return analysis
+                .doOnNext(response -> analysisMetrics.recordOutcome(type, outcomeOf(response)))
+                .doOnError(e -> analysisMetrics.recordOutcome(type, outcomeOf(e)));
+    }
+
+    private static String outcomeOf(AnalysisResponse response) {
+        if (response.isSuccess()) {
+            return "success";
         }
+        return INVALID_TEXT_ERROR.equals(response.getError()) ? "invalid_text" : "failed";
+    }
 
-        // Если не удалось парсить JSON, ищем текст вручную
-        return findTextInResponse(responseJson);
+    private static String outcomeOf(Throwable e) {
+        if (e instanceof LlmOverloadedException) {
+            return "overloaded";
+        }
+        return e instanceof IllegalArgumentException ? "invalid_text" : "failed";
     }
 
-    private String findTextInResponse(String response) {
-        // Ищем текстовый контент в ответе
-        if (response.contains("\"text\"")) {
-            int textStart = response.indexOf("\"text\":\"") + 8;
-            if (textStart > 8) {
-                int textEnd = response.indexOf("\"", textStart);
-                if (textEnd > textStart) {
-                    return response.substring(textStart, textEnd).replace("\\n", "\n");
-                }
+    private Prompt buildPrompt(AnalysisRequest request, boolean checkIn, boolean structured) {
+        String type = checkIn ? AnalysisMetrics.TYPE_CHECK_IN : AnalysisMetrics.TYPE_TEXT;
+        return analysisMetrics.timePromptBuild(type, () -> {
+            String systemPrompt = checkIn ? getCheckInSystemPrompt() : getSystemPrompt();
+            if (structured) {
+                systemPrompt += STRUCTURED_OUTPUT_INSTRUCTION;
             }
+            return checkIn
+                    // Combine all check-in data into structured text
+                    ? new Prompt(systemPrompt, buildCheckInText(request), structured)
+                    : new Prompt(systemPrompt, createUserPrompt(request.getUserText(), request.getCustomPrompt()), structured);
+        });
+    }
+
+    /**
+     * Answers from the response cache when allowed, otherwise asks Yandex GPT and caches the answer.
+     */
+    private Mono<String> requestCompletion(Prompt prompt, String type, boolean cacheAllowed) {
+        if (!cacheAllowed || !responseCache.isEnabled()) {
+            return requestCompletion(prompt, type);
         }
 
-        // Если не нашли структурированный текст, возвращаем как есть
-        return response;
+        String cacheKey = responseCache.key(prompt.system(), prompt.user(),
+                aiApiProperties.getModel(), aiApiProperties.getTemperature());
+        return responseCache.get(cacheKey)
+                .map(cachedText -> {
+                    logger.info("Serving analysis from response cache");
+                    return Mono.just(cachedText);
+                })
+                .orElseGet(() -> requestCompletion(prompt, type)
+                        .doOnNext(extractedText -> responseCache.put(cacheKey, extractedText)));
     }
 
-    private Integer extractDayRating(String text) {
-        // Ищем рейтинг 1-10 в тексте
-        Matcher matcher = RATING_PATTERN.matcher(text.toLowerCase());
-        if (matcher.find()) {
-            for (int i = 1; i <= matcher.groupCount(); i++) {
-                if (matcher.group(i) != null) {
-                    try {
-                        int rating = Integer.parseInt(matcher.group(i));
-                        if (rating >= 1 && rating <= 10) {
-                            return rating;
-                        }
-                    } catch (NumberFormatException e) {
-                        // Продолжаем поиск
+    /**
+     * Sends a system/user prompt pair to Yandex GPT and emits the extracted answer text.
+     */
+    private Mono<String> requestCompletion(Prompt prompt, String type) {
+        Map<String, Object> requestBody = createCompletionBody(prompt, false);
+
+        // The pooled client adds the IAM bearer token per request
+        return llmBulkhead.execute(() -> {
+                    logger.info("Sending request to Yandex GPT API");
+                    return adaptiveLimit.measure(analysisMetrics.timeUpstream(type, webClient.post()
+                            .bodyValue(requestBody)
+                            .retrieve()
+                            .bodyToMono(DataBuffer.class)));
+                })
+                .map(responseBody -> {
+                    logger.info("Received response from Yandex GPT API");
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("Raw response: {}", responseBody.toString(
+                                responseBody.readPosition(), responseBody.readableByteCount(), StandardCharsets.UTF_8));
                     }
-                }
-            }
-        }
 
-        // Ищем просто числа 1-10
-        Pattern simpleNumber = Pattern.compile("\\b([1-9]|10)\\b");
-        matcher = simpleNumber.matcher(text);
-        if (matcher.find()) {
-            try {
-                int rating = Integer.parseInt(matcher.group(1));
-                if (rating >= 1 && rating <= 10) {
-                    return rating;
-                }
-            } catch (NumberFormatException e) {
-                // ignore
-            }
+                    // Извлекаем текст из JSON ответа, буфер освобождается парсером
+                    String extractedText = analysisMetrics.timeParse(type, "text",
+                            () -> completionParser.extractText(responseBody));
+                    logger.info("Extracted text from response");
+                    return extractedText;
+                });
+    }
+
+    /**
+     * Streaming counterpart of {@link #requestCompletion(Prompt, String, boolean)}. A cached
+     * answer is replayed as a single fragment; a streamed one is cached once it completes.
+     */
+    private Flux<String> streamCompletion(Prompt prompt, String type, boolean cacheAllowed) {
+        if (!cacheAllowed || !responseCache.isEnabled()) {
+            return streamCompletion(prompt, type);
         }
 
-        return null;
+        String cacheKey = responseCache.key(prompt.system(), prompt.user(),
+                aiApiProperties.getModel(), aiApiProperties.getTemperature());
+        return responseCache.get(cacheKey)
+                .map(cachedText -> {
+                    logger.info("Serving streamed analysis from response cache");
+                    return Flux.just(cachedText);
+                })
+                .orElseGet(() -> {
+                    StringBuilder fullText = new StringBuilder();
+                    return streamCompletion(prompt, type)
+                            .doOnNext(fullText::append)
+                            .doOnComplete(() -> responseCache.put(cacheKey, fullText.toString()));
+                });
     }
 
-    private List<String> extractRecommendations(String text) {
-        List<String> recommendations = new ArrayList<>();
-
-        // Ищем рекомендации в тексте
-        Matcher matcher = RECOMMENDATION_PATTERN.matcher(text);
-        while (matcher.find()) {
-            String recommendation = matcher.group(1).trim();
-            if (!recommendation.isEmpty() && recommendation.length() > 10) {
-                recommendations.add(recommendation);
-            }
-        }
+    /**
+     * Requests a streamed completion and emits the newly generated text of every chunk.
+     */
+    private Flux<String> streamCompletion(Prompt prompt, String type) {
+        Map<String, Object> requestBody = createCompletionBody(prompt, true);
+
+        return llmBulkhead.executeMany(() -> {
+            logger.info("Sending streaming request to Yandex GPT API");
+            // Every line is a complete JSON response holding the whole answer generated so far
+            AtomicInteger emittedLength = new AtomicInteger();
+            Flux<String> lines = webClient.post()
+                    .bodyValue(requestBody)
+                    .retrieve()
+                    .bodyToFlux(String.class);
+            return adaptiveLimit.measureMany(analysisMetrics.timeUpstream(type, lines))
+                    .filter(line -> !line.isBlank())
+                    .map(line -> analysisMetrics.timeParse(type, "text", () -> completionParser.extractText(line)))
+                    .<String>handle((text, sink) -> {
+                        int emitted = emittedLength.get();
+                        if (text.length() > emitted) {
+                            emittedLength.set(text.length());
+                            sink.next(text.substring(emitted));
+                        }
+                    })
+                    .doOnComplete(() -> logger.info("Streaming response from Yandex GPT API completed"));
+        });
+    }
 
-        // Если не нашли по паттерну, разбиваем текст на абзацы
-        if (recommendations.isEmpty()) {
-            String[] paragraphs = text.split("\\n\\n|\\.\\s+");
-            for (String paragraph : paragraphs) {
-                String trimmed = paragraph.trim();
-                if (trimmed.length() > 20 && !trimmed.toLowerCase().contains("рейтинг")) {
-                    recommendations.add(trimmed);
-                }
-            }
+    private Map<String, Object> createCompletionBody(Prompt prompt, boolean stream) {
+        Map<String, Object> body = new HashMap<>(Map.of(
+                "modelUri", aiApiProperties.getModel(),
+                "completionOptions", Map.of(
+                        "stream", stream,
+                        "temperature", aiApiProperties.getTemperature(),
+                        "maxTokens", String.valueOf(aiApiProperties.getMaxTokens())
+                ),
+                "messages", List.of(
+                        Map.of("role", "system", "text", prompt.system()),
+                        Map.of("role", "user", "text", prompt.user())
+                )
+        ));
+        if (prompt.structured()) {
+            // Makes Yandex GPT answer with a valid JSON object
+            body.put("jsonObject", true);
         }
+        return body;
+    }
 
-        // Ограничиваем количество рекомендаций
-        if (recommendations.size() > 3) {
-            recommendations = recommendations.subList(0, 3);
+    private AnalysisResponse createErrorResponse(Throwable e, String logMessage) {
+        if (e instanceof WebClientResponseException webClientException) {
+            logger.error("WebClient error: {} - {}", webClientException.getStatusCode(), webClientException.getResponseBodyAsString());
+            return new AnalysisResponse("Ошибка при обращении к AI API: " + webClientException.getStatusCode() + " " + webClientException.getResponseBodyAsString());
         }
-
-        return recommendations;
+        logger.error(logMessage, e);
+        return new AnalysisResponse("Внутренняя ошибка сервера: " + e.getMessage());
     }
 
-    private Integer estimateRatingFromText(String text) {
-        // Простая эвристика для оценки настроения по тексту
-        String lowerText = text.toLowerCase();
+    private AnalysisResponse parseTextResponse(String textResponse) {
+        try {
+            // Ищем оценку и рекомендации в тексте
+            Integer dayRating = textParser.extractDayRating(textResponse);
+            List<String> recommendations = textParser.extractRecommendations(textResponse);
 
-        int positiveWords = countOccurrences(lowerText,
-                "хорош", "положительн", "отличн", "замечательн", "прекрасн", "радост", "счастлив");
-        int negativeWords = countOccurrences(lowerText,
-                "плох", "отрицательн", "ужасн", "грустн", "печальн", "депресси", "тревожн");
+            // Если не удалось извлечь структурированные данные, оцениваем настроение по тексту
+            // (сам текст уже передаётся как analysisText)
+            if (dayRating == null && recommendations.isEmpty()) {
+                logger.info("No structured data found, estimating rating from text");
+                dayRating = textParser.estimateRatingFromText(textResponse);
+            }
 
-        if (positiveWords > negativeWords * 2) return 8;
-        if (positiveWords > negativeWords) return 6;
-        if (negativeWords > positiveWords * 2) return 3;
-        if (negativeWords > positiveWords) return 4;
+            // Если всё равно нет рейтинга, ставим по умолчанию
+            if (dayRating == null) {
+                dayRating = 5; // средний рейтинг по умолчанию
+            }
 
-        return 5; // нейтральный
-    }
+            // Создаем успешный ответ
+            AnalysisResponse response = new AnalysisResponse();
+            response.setAnalysisText(textResponse);
+            response.setDayRating(dayRating);
+            response.setRecommendations(recommendations);
+            response.setAnalyzedAt(ZonedDateTime.now());
+            response.setSuccess(true);
 
-    private int countOccurrences(String text, String... words) {
-        int count = 0;
-        for (String word : words) {
-            Pattern pattern = Pattern.compile("\\b" + word + "\\w*\\b");
-            Matcher matcher = pattern.matcher(text);
-            while (matcher.find()) {
-                count++;
-            }
+            return response;
+
+        } catch (Exception e) {
+            logger.error("Error parsing AI response: {}", e.getMessage(), e);
+            return new AnalysisResponse("Ошибка при обработке ответа AI: " + e.getMessage());
         }
-        return count;
     }
 
     private boolean isTextValidForAnalysis(String text) {
@@ -313,8 +406,7 @@ public class AiAnalysisService {
     private AnalysisResponse createInvalidTextResponse(String text) {
         AnalysisResponse response = new AnalysisResponse();
         response.setSuccess(false);
-        response.setError("Текст слишком короткий или не содержит достаточно информации для анализа. " +
-                "Пожалуйста, опишите ваш день более подробно.");
+        response.setError(INVALID_TEXT_ERROR);
         response.setDayRating(5); // Средний рейтинг по умолчанию
         response.setRecommendations(List.of(
                 "Попробуйте описать ваш день более подробно: что произошло, какие эмоции вы испытывали",
@@ -326,69 +418,25 @@ public class AiAnalysisService {
     }
 
     public AnalysisResponse analyzeCheckIn(AnalysisRequest request) {
-        try {
-            logger.info("Starting check-in analysis");
-
-            // Combine all check-in data into structured text
-            String combinedText = buildCheckInText(request);
-            
-            String systemPrompt = getCheckInSystemPrompt();
-            String userPrompt = combinedText;
-
-            Map<String, Object> requestBody = Map.of(
-                    "modelUri", aiApiProperties.getModel(),
-                    "completionOptions", Map.of(
-                            "stream", false,
-                            "temperature", aiApiProperties.getTemperature(),
-                            "maxTokens", String.valueOf(aiApiProperties.getMaxTokens())
-                    ),
-                    "messages", List.of(
-                            Map.of("role", "system", "text", systemPrompt),
-                            Map.of("role", "user", "text", userPrompt)
-                    )
-            );
-
-            logger.info("Getting IAM token");
-            String iamToken = iamTokenService.getIamToken();
-            logger.info("IAM token obtained successfully");
-
-            WebClient webClient = webClientBuilder
-                    .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + iamToken)
-                    .build();
-
-            logger.info("Sending check-in request to Yandex GPT API");
-            String responseJson = webClient.post()
-                    .bodyValue(requestBody)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
+        return analyzeCheckInReactive(request).block();
+    }
 
-            logger.info("Received response from Yandex GPT API");
-            logger.debug("Raw response: {}", responseJson);
+    public Mono<AnalysisResponse> analyzeCheckInReactive(AnalysisRequest request) {
+        return checkInAnalysis(request).onErrorResume(e -> !(e instanceof LlmOverloadedException),
+                e -> Mono.just(createErrorResponse(e, "Unexpected error during check-in analysis")));
+    }
 
-            // Extract text from JSON response
-            String extractedText = extractTextFromYandexResponse(responseJson);
-            logger.info("Extracted text from response");
+    private Mono<AnalysisResponse> checkInAnalysis(AnalysisRequest request) {
+        return countOutcome(AnalysisMetrics.TYPE_CHECK_IN, Mono.defer(() -> {
+            logger.info("Starting check-in analysis");
 
-            // Parse recommendations from the response
-            List<String> recommendations = extractRecommendationsFromText(extractedText);
+            Prompt prompt = buildPrompt(request, true, aiApiProperties.isStructuredOutputEnabled());
 
-            // Create response
-            AnalysisResponse response = new AnalysisResponse();
-            response.setAnalysisText(extractedText);
-            response.setRecommendations(recommendations);
-            response.setSuccess(true);
-            response.setAnalyzedAt(ZonedDateTime.now());
-            
-            return response;
-
-        } catch (WebClientResponseException e) {
-            logger.error("WebClient error: {} - {}", e.getStatusCode(), e.getResponseBodyAsString());
-            return new AnalysisResponse("Ошибка при обращении к AI API: " + e.getStatusCode() + " " + e.getResponseBodyAsString());
-        } catch (Exception e) {
-            logger.error("Unexpected error during check-in analysis", e);
-            return new AnalysisResponse("Внутренняя ошибка сервера: " + e.getMessage());
-        }
+            return requestCompletion(prompt, AnalysisMetrics.TYPE_CHECK_IN, request.isCacheAllowed())
+                    .map(extractedText -> prompt.structured()
+                            ? createStructuredResponse(extractedText, true)
+                            : createAnalysisResponse(extractedText, true));
+        }));
     }
 
     private String buildCheckInText(AnalysisRequest request) {
@@ -441,36 +489,6 @@ public class AiAnalysisService {
                 "- Используй тёплый, поддерживающий тон";
     }
 
-    private List<String> extractRecommendationsFromText(String text) {
-        List<String> recommendations = new ArrayList<>();
-        
-        // Try to find numbered recommendations
-        Pattern numberedPattern = Pattern.compile("(?:^|\\n)\\s*\\d+\\.\\s*(.+?)(?=\\n\\s*\\d+\\.|\\n\\n|$)", Pattern.DOTALL);
-        Matcher matcher = numberedPattern.matcher(text);
-        
-        while (matcher.find()) {
-            String recommendation = matcher.group(1).trim();
-            if (!recommendation.isEmpty() && recommendation.length() > 10) {
-                recommendations.add(recommendation);
-            }
-        }
-        
-        // If no numbered recommendations found, try bullet points
-        if (recommendations.isEmpty()) {
-            Pattern bulletPattern = Pattern.compile("(?:^|\\n)\\s*[•\\-\\*]\\s*(.+?)(?=\\n\\s*[•\\-\\*]|\\n\\n|$)", Pattern.DOTALL);
-            matcher = bulletPattern.matcher(text);
-            
-            while (matcher.find()) {
-                String recommendation = matcher.group(1).trim();
-                if (!recommendation.isEmpty() && recommendation.length() > 10) {
-                    recommendations.add(recommendation);
-                }
-            }
-        }
-        
-        return recommendations;
-    }
-
     private String getSystemPrompt() {
         String configuredPrompt = aiApiProperties.getSystemPrompt();
         if (configuredPrompt != null && !configuredPrompt.trim().isEmpty()) {
@@ -504,4 +522,7 @@ public class AiAnalysisService {
                 userText
         );
     }
-}
\ No newline at end of file
+
+    private record Prompt(String system, String user, boolean structured) {
+    }
+}
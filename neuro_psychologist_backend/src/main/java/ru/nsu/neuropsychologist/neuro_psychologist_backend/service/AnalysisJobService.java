@@ -0,0 +1,347 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.dto.AnalysisJobResponse;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.dto.AnalysisRequest;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.dto.AnalysisResponse;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.entity.AnalysisJob;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.entity.AnalysisJobStatus;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.entity.DayAnalysis;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.entity.User;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.repository.AnalysisJobRepository;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Queues analyses in the analysis_jobs table and runs them in the background, so clients
+ * get a job id right away instead of holding the request open for the LLM round trip.
+ * Any number of instances may run the worker: rows are claimed with SKIP LOCKED, and jobs
+ * left RUNNING by a stopped instance are put back into the queue. A worker only finishes a
+ * job while the job is still RUNNING with the attempt number it claimed.
+ */
+@Service
+public class AnalysisJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisJobService.class);
+
+    private final AnalysisJobRepository analysisJobRepository;
+    private final AiAnalysisService aiAnalysisService;
+    private final DayAnalysisService dayAnalysisService;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final Scheduler blockingScheduler;
+    private final boolean workerEnabled;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration staleAfter;
+    private final Duration retryBackoff;
+    // Claimed jobs whose analysis has not finished yet
+    private final AtomicInteger inFlightJobs = new AtomicInteger();
+
+    public AnalysisJobService(
+            AnalysisJobRepository analysisJobRepository,
+            AiAnalysisService aiAnalysisService,
+            DayAnalysisService dayAnalysisService,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager,
+            @Qualifier("blockingScheduler") Scheduler blockingScheduler,
+            @Value("${analysis.jobs.worker-enabled:true}") boolean workerEnabled,
+            @Value("${analysis.jobs.batch-size:5}") int batchSize,
+            @Value("${analysis.jobs.max-attempts:3}") int maxAttempts,
+            @Value("${analysis.jobs.stale-after-seconds:300}") long staleAfterSeconds,
+            @Value("${analysis.jobs.retry-backoff-ms:5000}") long retryBackoffMs) {
+        this.analysisJobRepository = analysisJobRepository;
+        this.aiAnalysisService = aiAnalysisService;
+        this.dayAnalysisService = dayAnalysisService;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.blockingScheduler = blockingScheduler;
+        this.workerEnabled = workerEnabled;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.staleAfter = Duration.ofSeconds(staleAfterSeconds);
+        this.retryBackoff = Duration.ofMillis(retryBackoffMs);
+    }
+
+    /**
+     * Queues the request. A repeated idempotency key returns the job created for it first,
+     * so client retries never run (and bill) the same analysis twice.
+     */
+    public AnalysisJob submit(AnalysisRequest request, User user, String idempotencyKey) throws JsonProcessingException {
+        if (idempotencyKey != null) {
+            Optional<AnalysisJob> existing = analysisJobRepository.findByUserAndIdempotencyKey(user, idempotencyKey);
+            if (existing.isPresent()) {
+                logger.info("Returning existing analysis job {} for repeated idempotency key", existing.get().getId());
+                return existing.get();
+            }
+        }
+
+        AnalysisJob job = new AnalysisJob();
+        job.setUser(user);
+        job.setIdempotencyKey(idempotencyKey);
+        job.setRequestPayload(objectMapper.writeValueAsString(request));
+
+        try {
+            AnalysisJob savedJob = analysisJobRepository.save(job);
+            logger.info("Queued analysis job {}", savedJob.getId());
+            return savedJob;
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent retry with the same key was saved first
+            if (idempotencyKey == null) {
+                throw e;
+            }
+            return analysisJobRepository.findByUserAndIdempotencyKey(user, idempotencyKey).orElseThrow(() -> e);
+        }
+    }
+
+    public Optional<AnalysisJob> findJobByIdempotencyKey(User user, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return Optional.empty();
+        }
+        return analysisJobRepository.findByUserAndIdempotencyKey(user, idempotencyKey);
+    }
+
+    public Optional<AnalysisJob> findJob(Long id, User user) {
+        return analysisJobRepository.findByIdAndUser(id, user);
+    }
+
+    public AnalysisJobResponse toResponse(AnalysisJob job) {
+        AnalysisJobResponse response = new AnalysisJobResponse();
+        response.setId(job.getId());
+        response.setStatus(job.getStatus().name());
+        response.setAnalysisId(job.getDayAnalysisId());
+        response.setError(job.getError());
+        response.setCreatedAt(job.getCreatedAt());
+        response.setCompletedAt(job.getCompletedAt());
+
+        if (job.getResult() != null) {
+            try {
+                response.setResult(objectMapper.readValue(job.getResult(), AnalysisResponse.class));
+            } catch (JsonProcessingException e) {
+                logger.warn("Could not parse result of analysis job {}: {}", job.getId(), e.getMessage());
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Claims jobs up to batch-size running on this instance and starts them without waiting
+     * for the LLM: the scheduling thread is shared with the other @Scheduled tasks.
+     */
+    @Scheduled(fixedDelayString = "${analysis.jobs.poll-interval-ms:1000}")
+    public void processPendingJobs() {
+        if (!workerEnabled) {
+            return;
+        }
+
+        int capacity = batchSize - inFlightJobs.get();
+        if (capacity <= 0) {
+            return;
+        }
+
+        List<AnalysisJob> jobs = claimPendingJobs(capacity);
+        if (jobs.isEmpty()) {
+            return;
+        }
+
+        logger.info("Claimed {} analysis jobs", jobs.size());
+        inFlightJobs.addAndGet(jobs.size());
+        // Jobs run concurrently; the LLM bulkhead still bounds the calls
+        Flux.fromIterable(jobs)
+                .flatMap(job -> runJob(job).doFinally(signal -> inFlightJobs.decrementAndGet()))
+                .subscribe();
+    }
+
+    int getInFlightJobs() {
+        return inFlightJobs.get();
+    }
+
+    @Scheduled(fixedDelayString = "${analysis.jobs.recovery-interval-ms:60000}")
+    public void recoverStaleJobs() {
+        if (!workerEnabled) {
+            return;
+        }
+
+        ZonedDateTime now = ZonedDateTime.now();
+        ZonedDateTime startedBefore = now.minus(staleAfter);
+        Integer requeued = transactionTemplate.execute(status -> analysisJobRepository.requeueStaleJobs(
+                AnalysisJobStatus.RUNNING, AnalysisJobStatus.PENDING, startedBefore, maxAttempts));
+        if (requeued != null && requeued > 0) {
+            logger.warn("Requeued {} analysis jobs left running by a stopped worker", requeued);
+        }
+
+        // A job that hangs or kills its worker on every attempt must not be requeued forever
+        Integer failed = transactionTemplate.execute(status -> analysisJobRepository.failStaleJobs(
+                AnalysisJobStatus.RUNNING, AnalysisJobStatus.FAILED, startedBefore, maxAttempts,
+                "Анализ не завершился за " + maxAttempts + " попыток", now));
+        if (failed != null && failed > 0) {
+            logger.error("Failed {} stale analysis jobs that ran out of attempts", failed);
+        }
+    }
+
+    private List<AnalysisJob> claimPendingJobs(int limit) {
+        return transactionTemplate.execute(status -> {
+            ZonedDateTime now = ZonedDateTime.now();
+            List<AnalysisJob> jobs = analysisJobRepository.findReadyByStatus(
+                    AnalysisJobStatus.PENDING, now, PageRequest.of(0, limit));
+            for (AnalysisJob job : jobs) {
+                job.setStatus(AnalysisJobStatus.RUNNING);
+                job.setStartedAt(now);
+                job.setAttempts(job.getAttempts() + 1);
+            }
+            return analysisJobRepository.saveAll(jobs);
+        });
+    }
+
+    private Mono<Void> runJob(AnalysisJob job) {
+        AnalysisRequest request;
+        try {
+            request = objectMapper.readValue(job.getRequestPayload(), AnalysisRequest.class);
+        } catch (JsonProcessingException e) {
+            logger.error("Could not read payload of analysis job {}: {}", job.getId(), e.getMessage());
+            markFailed(job, "Некорректные данные задачи анализа");
+            return Mono.empty();
+        }
+
+        // Upstream failures are propagated so that transient ones can be retried.
+        // Saving goes through blocking JPA, so it is moved off the HTTP client threads
+        return aiAnalysisService.analyzeUserTextPropagatingErrors(request)
+                .publishOn(blockingScheduler)
+                .doOnNext(response -> completeJob(job, request, response))
+                .onErrorResume(e -> {
+                    handleFailure(job, e);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private void completeJob(AnalysisJob job, AnalysisRequest request, AnalysisResponse response) {
+        if (!response.isSuccess()) {
+            markFailed(job, response.getError());
+            return;
+        }
+
+        // The analysis is only kept if this worker still holds the job; a worker whose job was
+        // requeued as stale rolls its analysis back, so a retried job cannot save it twice
+        Boolean completed = transactionTemplate.execute(status -> {
+            try {
+                DayAnalysis savedAnalysis = dayAnalysisService.saveAnalysis(request, response, job.getUser());
+                response.setId(savedAnalysis.getId());
+                String result = objectMapper.writeValueAsString(response);
+                ZonedDateTime now = ZonedDateTime.now();
+
+                int updated = analysisJobRepository.completeClaimedJob(job.getId(), job.getAttempts(),
+                        AnalysisJobStatus.RUNNING, AnalysisJobStatus.COMPLETED, savedAnalysis.getId(), result, now);
+                if (updated == 0) {
+                    status.setRollbackOnly();
+                    return false;
+                }
+                job.setStatus(AnalysisJobStatus.COMPLETED);
+                job.setDayAnalysisId(savedAnalysis.getId());
+                job.setResult(result);
+                job.setCompletedAt(now);
+                return true;
+            } catch (JsonProcessingException e) {
+                throw new RuntimeException("Could not serialize analysis result", e);
+            }
+        });
+
+        if (Boolean.TRUE.equals(completed)) {
+            logger.info("Analysis job {} completed with analysis {}", job.getId(), job.getDayAnalysisId());
+        } else {
+            logger.warn("Analysis job {} was taken over after attempt {}, discarding its result", job.getId(), job.getAttempts());
+        }
+    }
+
+    private void handleFailure(AnalysisJob job, Throwable e) {
+        if (isRetryable(e) && job.getAttempts() < maxAttempts) {
+            Duration delay = retryDelay(job.getAttempts(), e);
+            logger.warn("Analysis job {} failed on attempt {}, retrying in {} s: {}",
+                    job.getId(), job.getAttempts(), delay.toSeconds(), e.getMessage());
+            ZonedDateTime notBefore = ZonedDateTime.now().plus(delay);
+            Integer updated = transactionTemplate.execute(status -> analysisJobRepository.requeueClaimedJob(
+                    job.getId(), job.getAttempts(), AnalysisJobStatus.RUNNING, AnalysisJobStatus.PENDING, notBefore));
+            if (updated != null && updated > 0) {
+                job.setStatus(AnalysisJobStatus.PENDING);
+                job.setStartedAt(null);
+                job.setNotBefore(notBefore);
+            }
+            return;
+        }
+
+        logger.error("Analysis job {} failed after {} attempts: {}", job.getId(), job.getAttempts(), e.getMessage(), e);
+        if (e instanceof LlmOverloadedException) {
+            markFailed(job, "Сервис анализа перегружен, попробуйте позже");
+        } else if (e instanceof WebClientResponseException responseException) {
+            markFailed(job, "Ошибка при обращении к AI API: " + responseException.getStatusCode());
+        } else if (UpstreamErrors.isTimeout(e)) {
+            markFailed(job, "Сервис анализа не ответил вовремя, попробуйте позже");
+        } else {
+            markFailed(job, "Внутренняя ошибка сервера: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Only overload, throttling, upstream 5xx and transport failures (timeouts, lost connections)
+     * are transient. Any other 4xx means Yandex GPT rejected the request itself, and any other
+     * exception is a bug on our side; both would fail the same way, and every retry is billed.
+     */
+    private static boolean isRetryable(Throwable e) {
+        if (e instanceof WebClientResponseException responseException) {
+            HttpStatusCode status = responseException.getStatusCode();
+            return status.value() == 429 || status.value() == 408 || status.is5xxServerError();
+        }
+        return e instanceof LlmOverloadedException
+                || e instanceof WebClientRequestException
+                || UpstreamErrors.isTimeout(e);
+    }
+
+    /**
+     * Doubles with every attempt, so a throttled or overloaded upstream gets time to recover
+     * instead of the next poll spending the remaining attempts at once.
+     */
+    private Duration retryDelay(int attempts, Throwable e) {
+        Duration delay = retryBackoff.multipliedBy(1L << Math.min(attempts - 1, 10));
+        if (e instanceof LlmOverloadedException overloaded) {
+            Duration retryAfter = Duration.ofSeconds(overloaded.getRetryAfterSeconds());
+            if (retryAfter.compareTo(delay) > 0) {
+                return retryAfter;
+            }
+        }
+        return delay;
+    }
+
+    private void markFailed(AnalysisJob job, String error) {
+        ZonedDateTime now = ZonedDateTime.now();
+        Integer updated = transactionTemplate.execute(status -> analysisJobRepository.failClaimedJob(
+                job.getId(), job.getAttempts(), AnalysisJobStatus.RUNNING, AnalysisJobStatus.FAILED, error, now));
+        if (updated == null || updated == 0) {
+            logger.warn("Analysis job {} was taken over after attempt {}, not marking it failed", job.getId(), job.getAttempts());
+            return;
+        }
+        job.setStatus(AnalysisJobStatus.FAILED);
+        job.setError(error);
+        job.setCompletedAt(now);
+    }
+}
@@ -0,0 +1,149 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.dto.AnalysisRequest;
+
+import java.util.function.Supplier;
+
+/**
+ * Meters for the analysis pipeline, tagged with {@code type} ({@value #TYPE_CHECK_IN} or
+ * {@value #TYPE_TEXT}) so check-ins and free-text analyses can be compared stage by stage:
+ * <ul>
+ *     <li>{@code ai.analysis.prompt.build} - building the prompts</li>
+ *     <li>{@code ai.analysis.upstream} - the Yandex GPT HTTP call, tagged with its outcome</li>
+ *     <li>{@code ai.analysis.parse} - extracting text and recommendations from the answer</li>
+ *     <li>{@code ai.analysis.persist} - saving the DayAnalysis</li>
+ *     <li>{@code ai.analysis.requests} - analyses by final outcome</li>
+ *     <li>{@code ai.analysis.structured} - structured (JSON) answers parsed or sent to the free-text fallback</li>
+ * </ul>
+ * IAM token acquisition is measured separately as {@code yandex.iam.token.acquire}.
+ */
+@Component
+public class AnalysisMetrics {
+
+    public static final String TYPE_CHECK_IN = "checkin";
+    public static final String TYPE_TEXT = "text";
+
+    private final MeterRegistry meterRegistry;
+
+    public AnalysisMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public static String typeOf(AnalysisRequest request) {
+        return request.isCheckInRequest() ? TYPE_CHECK_IN : TYPE_TEXT;
+    }
+
+    public <T> T timePromptBuild(String type, Supplier<T> step) {
+        return timer("ai.analysis.prompt.build", "Time to build the LLM prompts", type).record(step);
+    }
+
+    public <T> T timeParse(String type, String step, Supplier<T> parser) {
+        return Timer.builder("ai.analysis.parse")
+                .description("Time to parse the LLM answer")
+                .tag("type", type)
+                .tag("step", step)
+                .register(meterRegistry)
+                .record(parser);
+    }
+
+    /**
+     * Times the upstream call from subscription until it completes or fails.
+     */
+    public <T> Mono<T> timeUpstream(String type, Mono<T> call) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return call
+                    .doOnSuccess(result -> sample.stop(upstreamTimer(type, "success")))
+                    .doOnError(e -> sample.stop(upstreamTimer(type, upstreamOutcome(e))));
+        });
+    }
+
+    /**
+     * Streaming variant of {@link #timeUpstream(String, Mono)}; the time runs until the last chunk.
+     */
+    public <T> Flux<T> timeUpstream(String type, Flux<T> call) {
+        return Flux.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return call
+                    .doOnComplete(() -> sample.stop(upstreamTimer(type, "success")))
+                    .doOnError(e -> sample.stop(upstreamTimer(type, upstreamOutcome(e))));
+        });
+    }
+
+    public Timer.Sample startPersist() {
+        return Timer.start(meterRegistry);
+    }
+
+    public void stopPersist(Timer.Sample sample, String type, boolean success) {
+        sample.stop(Timer.builder("ai.analysis.persist")
+                .description("Time to save a DayAnalysis")
+                .tag("type", type)
+                .tag("outcome", success ? "success" : "error")
+                .register(meterRegistry));
+    }
+
+    /**
+     * Counts a finished analysis: success, invalid_text, failed or overloaded.
+     */
+    public void recordOutcome(String type, String outcome) {
+        Counter.builder("ai.analysis.requests")
+                .description("Analyses by final outcome")
+                .tag("type", type)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Counts a structured answer as parsed, or as fallback when it had to be scraped as free text.
+     */
+    public void recordStructuredOutput(String type, boolean parsed) {
+        Counter.builder("ai.analysis.structured")
+                .description("Structured LLM answers by parse result")
+                .tag("type", type)
+                .tag("result", parsed ? "parsed" : "fallback")
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private Timer upstreamTimer(String type, String outcome) {
+        return Timer.builder("ai.analysis.upstream")
+                .description("Latency of Yandex GPT completion calls")
+                .tag("type", type)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private Timer timer(String name, String description, String type) {
+        return Timer.builder(name)
+                .description(description)
+                .tag("type", type)
+                .register(meterRegistry);
+    }
+
+    private static String upstreamOutcome(Throwable e) {
+        if (e instanceof WebClientResponseException responseException) {
+            int status = responseException.getStatusCode().value();
+            if (status == 429) {
+                return "throttled";
+            }
+            return status >= 500 ? "server_error" : "client_error";
+        }
+        // Checked before WebClientRequestException, which is how Reactor Netty wraps response timeouts
+        if (UpstreamErrors.isTimeout(e)) {
+            return "timeout";
+        }
+        if (e instanceof WebClientRequestException) {
+            return "connection_error";
+        }
+        return "error";
+    }
+}
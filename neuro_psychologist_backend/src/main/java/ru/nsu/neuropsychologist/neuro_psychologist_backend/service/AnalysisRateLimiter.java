@@ -0,0 +1,123 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.config.RateLimitProperties;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.dto.AnalysisRequest;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.entity.User;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.repository.UserRepository;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.security.JwtPrincipal;
+
+/**
+ * Token-bucket limits on analyses, which each cost a Yandex GPT call. Every caller has one
+ * bucket for check-ins and one for free text, keyed by user id (or by IP when there is no
+ * authenticated user), and all callers share a global bucket of each kind.
+ * Rejections are counted in Micrometer as ai.analysis.rate.limited.
+ */
+@Component
+public class AnalysisRateLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisRateLimiter.class);
+
+    private final RateLimitProperties rateLimitProperties;
+    private final RateLimitStore rateLimitStore;
+    private final MeterRegistry meterRegistry;
+    private final UserRepository userRepository;
+
+    public AnalysisRateLimiter(RateLimitProperties rateLimitProperties,
+                               RateLimitStore rateLimitStore,
+                               MeterRegistry meterRegistry,
+                               UserRepository userRepository) {
+        this.rateLimitProperties = rateLimitProperties;
+        this.rateLimitStore = rateLimitStore;
+        this.meterRegistry = meterRegistry;
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Takes a token for this analysis from the caller's bucket, then from the global one.
+     * A caller over their own limit does not use up the global bucket, and a request rejected
+     * by the global bucket gets the caller's token back.
+     */
+    public RateLimitDecision tryAcquire(AnalysisRequest request, Authentication authentication) {
+        if (!rateLimitProperties.isEnabled()) {
+            return RateLimitDecision.ALLOWED;
+        }
+
+        boolean checkIn = request.isCheckInRequest();
+        String type = checkIn ? "checkin" : "text";
+        String caller = callerKey(authentication);
+
+        TokenBucketLimit userLimit = checkIn
+                ? new TokenBucketLimit(rateLimitProperties.getUserCheckinCapacity(),
+                        rateLimitProperties.getUserCheckinRefillPerMinute())
+                : new TokenBucketLimit(rateLimitProperties.getUserTextCapacity(),
+                        rateLimitProperties.getUserTextRefillPerMinute());
+        String userKey = caller + ":" + type;
+        RateLimitDecision decision = rateLimitStore.tryConsume(userKey, userLimit);
+        if (!decision.allowed()) {
+            return rejected("user", type, caller, decision);
+        }
+
+        TokenBucketLimit globalLimit = checkIn
+                ? new TokenBucketLimit(rateLimitProperties.getGlobalCheckinCapacity(),
+                        rateLimitProperties.getGlobalCheckinRefillPerMinute())
+                : new TokenBucketLimit(rateLimitProperties.getGlobalTextCapacity(),
+                        rateLimitProperties.getGlobalTextRefillPerMinute());
+        decision = rateLimitStore.tryConsume("global:" + type, globalLimit);
+        if (!decision.allowed()) {
+            rateLimitStore.refund(userKey, userLimit);
+            return rejected("global", type, caller, decision);
+        }
+        return decision;
+    }
+
+    /**
+     * Legacy tokens only carry the email, it is resolved to the user id so that a user
+     * has the same buckets whichever kind of token they send.
+     */
+    String callerKey(Authentication authentication) {
+        if (authentication != null && authentication.getPrincipal() instanceof JwtPrincipal principal) {
+            return "user:" + principal.getUserId();
+        }
+        if (authentication != null && authentication.getPrincipal() instanceof User user) {
+            return "user:" + user.getId();
+        }
+        if (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)
+                && authentication.getName() != null) {
+            return userRepository.findByEmail(authentication.getName())
+                    .map(user -> "user:" + user.getId())
+                    .orElse("user:" + authentication.getName());
+        }
+        if (authentication != null && authentication.getDetails() instanceof WebAuthenticationDetails details) {
+            return "ip:" + details.getRemoteAddress();
+        }
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes servletAttributes) {
+            return "ip:" + servletAttributes.getRequest().getRemoteAddr();
+        }
+        return "ip:unknown";
+    }
+
+    private RateLimitDecision rejected(String scope, String type, String caller, RateLimitDecision decision) {
+        Counter.builder("ai.analysis.rate.limited")
+                .description("Analyses rejected by the rate limiter")
+                .tag("scope", scope)
+                .tag("type", type)
+                .register(meterRegistry)
+                .increment();
+        logger.warn("Rate limited {} analysis for {} ({} bucket), retry after {} s",
+                type, caller, scope, decision.retryAfterSeconds());
+        return decision;
+    }
+}
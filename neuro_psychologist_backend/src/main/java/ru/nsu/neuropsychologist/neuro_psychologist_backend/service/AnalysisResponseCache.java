@@ -0,0 +1,82 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.config.AiApiProperties;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Size and TTL bounded cache of Yandex GPT answers, keyed by a hash of the normalized
+ * prompts and the generation settings. Hit/miss statistics are published to Micrometer
+ * as ai.analysis.response.cache.
+ */
+@Component
+public class AnalysisResponseCache {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final boolean enabled;
+    private final Cache<String, String> cache;
+
+    public AnalysisResponseCache(AiApiProperties aiApiProperties, MeterRegistry meterRegistry) {
+        this.enabled = aiApiProperties.isResponseCacheEnabled();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(aiApiProperties.getResponseCacheMaxSize())
+                .expireAfterWrite(Duration.ofMinutes(aiApiProperties.getResponseCacheTtlMinutes()))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "ai.analysis.response.cache");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Optional<String> get(String key) {
+        return Optional.ofNullable(cache.getIfPresent(key));
+    }
+
+    public void put(String key, String analysisText) {
+        cache.put(key, analysisText);
+    }
+
+    /**
+     * Prompts that differ only in case or whitespace produce the same key.
+     */
+    public String key(String systemPrompt, String userPrompt, String model, double temperature) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            update(digest, normalize(systemPrompt));
+            update(digest, normalize(userPrompt));
+            update(digest, model);
+            update(digest, Double.toString(temperature));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return WHITESPACE.matcher(text.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    private static void update(MessageDigest digest, String part) {
+        digest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+        // Separator so that ("ab", "c") and ("a", "bc") hash differently
+        digest.update((byte) 0);
+    }
+}
@@ -0,0 +1,157 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Extracts the day rating and recommendations from free-form LLM answers.
+ * Kept separate from {@link AiAnalysisService} so the parsing hot paths can be
+ * benchmarked on their own (see src/jmh).
+ */
+@Component
+public class AnalysisTextParser {
+
+    static final String DEFAULT_POSITIVE_STEMS = "хорош,положительн,отличн,замечательн,прекрасн,радост,счастлив";
+    static final String DEFAULT_NEGATIVE_STEMS = "плох,отрицательн,ужасн,грустн,печальн,депресси,тревожн";
+
+    private static final Pattern RATING_PATTERN = Pattern.compile(
+            "(\\d+)/10|(\\d+)\\s*из\\s*10|рейтинг[\\s:]*([1-9]|10)",
+            Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE
+    );
+    private static final Pattern SIMPLE_NUMBER_PATTERN = Pattern.compile("\\b([1-9]|10)\\b");
+    private static final Pattern RECOMMENDATION_PATTERN = Pattern.compile(
+            "(?:рекомендация|совет)[\\s:\\d]*[\\-\\•\\*]?\\s*(.+?)(?=\\n|$|(?:рекомендация|совет))",
+            Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE | Pattern.DOTALL
+    );
+    private static final Pattern PARAGRAPH_SEPARATOR = Pattern.compile("\\n\\n|\\.\\s+");
+    private static final Pattern NUMBERED_PATTERN = Pattern.compile(
+            "(?:^|\\n)\\s*\\d+\\.\\s*(.+?)(?=\\n\\s*\\d+\\.|\\n\\n|$)", Pattern.DOTALL);
+    private static final Pattern BULLET_PATTERN = Pattern.compile(
+            "(?:^|\\n)\\s*[•\\-\\*]\\s*(.+?)(?=\\n\\s*[•\\-\\*]|\\n\\n|$)", Pattern.DOTALL);
+
+    private final SentimentLexicon sentimentLexicon;
+
+    public AnalysisTextParser() {
+        this(DEFAULT_POSITIVE_STEMS.split(","), DEFAULT_NEGATIVE_STEMS.split(","));
+    }
+
+    @Autowired
+    public AnalysisTextParser(
+            @Value("${analysis.sentiment.positive-stems:" + DEFAULT_POSITIVE_STEMS + "}") String[] positiveStems,
+            @Value("${analysis.sentiment.negative-stems:" + DEFAULT_NEGATIVE_STEMS + "}") String[] negativeStems) {
+        this.sentimentLexicon = SentimentLexicon.of(positiveStems, negativeStems);
+    }
+
+    public Integer extractDayRating(String text) {
+        // Ищем рейтинг 1-10 в тексте
+        Matcher matcher = RATING_PATTERN.matcher(text);
+        if (matcher.find()) {
+            for (int i = 1; i <= matcher.groupCount(); i++) {
+                if (matcher.group(i) != null) {
+                    try {
+                        int rating = Integer.parseInt(matcher.group(i));
+                        if (rating >= 1 && rating <= 10) {
+                            return rating;
+                        }
+                    } catch (NumberFormatException e) {
+                        // Продолжаем поиск
+                    }
+                }
+            }
+        }
+
+        // Ищем просто числа 1-10
+        matcher = SIMPLE_NUMBER_PATTERN.matcher(text);
+        if (matcher.find()) {
+            try {
+                int rating = Integer.parseInt(matcher.group(1));
+                if (rating >= 1 && rating <= 10) {
+                    return rating;
+                }
+            } catch (NumberFormatException e) {
+                // ignore
+            }
+        }
+
+        return null;
+    }
+
+    public List<String> extractRecommendations(String text) {
+        List<String> recommendations = new ArrayList<>();
+
+        // Ищем рекомендации в тексте
+        Matcher matcher = RECOMMENDATION_PATTERN.matcher(text);
+        while (matcher.find()) {
+            String recommendation = matcher.group(1).trim();
+            if (!recommendation.isEmpty() && recommendation.length() > 10) {
+                recommendations.add(recommendation);
+            }
+        }
+
+        // Если не нашли по паттерну, разбиваем текст на абзацы
+        if (recommendations.isEmpty()) {
+            String[] paragraphs = PARAGRAPH_SEPARATOR.split(text);
+            for (String paragraph : paragraphs) {
+                String trimmed = paragraph.trim();
+                if (trimmed.length() > 20 && !trimmed.toLowerCase().contains("рейтинг")) {
+                    recommendations.add(trimmed);
+                }
+            }
+        }
+
+        // Ограничиваем количество рекомендаций
+        if (recommendations.size() > 3) {
+            recommendations = recommendations.subList(0, 3);
+        }
+
+        return recommendations;
+    }
+
+    public Integer estimateRatingFromText(String text) {
+        // Простая эвристика для оценки настроения по тексту
+        long counts = sentimentLexicon.count(text);
+        int positiveWords = SentimentLexicon.positive(counts);
+        int negativeWords = SentimentLexicon.negative(counts);
+
+        if (positiveWords > negativeWords * 2) return 8;
+        if (positiveWords > negativeWords) return 6;
+        if (negativeWords > positiveWords * 2) return 3;
+        if (negativeWords > positiveWords) return 4;
+
+        return 5; // нейтральный
+    }
+
+    public List<String> extractRecommendationsFromText(String text) {
+        List<String> recommendations = new ArrayList<>();
+
+        // Try to find numbered recommendations
+        Matcher matcher = NUMBERED_PATTERN.matcher(text);
+
+        while (matcher.find()) {
+            String recommendation = matcher.group(1).trim();
+            if (!recommendation.isEmpty() && recommendation.length() > 10) {
+                recommendations.add(recommendation);
+            }
+        }
+
+        // If no numbered recommendations found, try bullet points
+        if (recommendations.isEmpty()) {
+            matcher = BULLET_PATTERN.matcher(text);
+
+            while (matcher.find()) {
+                String recommendation = matcher.group(1).trim();
+                if (!recommendation.isEmpty() && recommendation.length() > 10) {
+                    recommendations.add(recommendation);
+                }
+            }
+        }
+
+        return recommendations;
+    }
+}
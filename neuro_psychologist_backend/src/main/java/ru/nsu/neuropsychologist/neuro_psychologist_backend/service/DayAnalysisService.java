@@ -0,0 +1,87 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.dto.AnalysisRequest;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.dto.AnalysisResponse;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.entity.DayAnalysis;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.entity.User;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.repository.DayAnalysisRepository;
+
+/**
+ * Persists completed analyses, whether they were answered inline, streamed or run as a job.
+ */
+@Service
+public class DayAnalysisService {
+
+    private final DayAnalysisRepository dayAnalysisRepository;
+    private final ObjectMapper objectMapper;
+    private final AnalysisMetrics analysisMetrics;
+    private final DayMetricsRollupService dayMetricsRollupService;
+
+    public DayAnalysisService(DayAnalysisRepository dayAnalysisRepository,
+                              ObjectMapper objectMapper,
+                              AnalysisMetrics analysisMetrics,
+                              DayMetricsRollupService dayMetricsRollupService) {
+        this.dayAnalysisRepository = dayAnalysisRepository;
+        this.objectMapper = objectMapper;
+        this.analysisMetrics = analysisMetrics;
+        this.dayMetricsRollupService = dayMetricsRollupService;
+    }
+
+    /**
+     * Saves the analysis and adds it to the day's metrics rollup in one transaction.
+     */
+    @Transactional
+    public DayAnalysis saveAnalysis(AnalysisRequest request, AnalysisResponse response, User user)
+            throws JsonProcessingException {
+        DayAnalysis dayAnalysis = new DayAnalysis();
+        dayAnalysis.setUser(user);
+        dayAnalysis.setAnalyzedAt(response.getAnalyzedAt());
+
+        // Set LLM response
+        dayAnalysis.setLlmResponse(response.getAnalysisText());
+
+        // Check if this is a check-in request
+        if (request.isCheckInRequest()) {
+            dayAnalysis.setIsCheckin(true);
+
+            // Save check-in ratings
+            dayAnalysis.setCalmnessRating(request.getCalmnessRating());
+            dayAnalysis.setEnergyRating(request.getEnergyRating());
+            dayAnalysis.setSatisfactionRating(request.getSatisfactionRating());
+            dayAnalysis.setConnectionRating(request.getConnectionRating());
+            dayAnalysis.setEngagementRating(request.getEngagementRating());
+
+            // Save check-in text responses
+            dayAnalysis.setCurrentStateText(request.getCurrentStateText());
+            dayAnalysis.setEnergyMomentsText(request.getEnergyMomentsText());
+            dayAnalysis.setMissingElementText(request.getMissingElementText());
+        } else {
+            dayAnalysis.setIsCheckin(false);
+
+            // Save regular analysis data
+            dayAnalysis.setUserText(request.getUserText());
+            dayAnalysis.setDayRating(response.getDayRating());
+        }
+
+        // Save recommendations as JSON if present
+        if (response.getRecommendations() != null && !response.getRecommendations().isEmpty()) {
+            dayAnalysis.setRecommendations(objectMapper.writeValueAsString(response.getRecommendations()));
+        }
+
+        Timer.Sample sample = analysisMetrics.startPersist();
+        boolean saved = false;
+        try {
+            DayAnalysis savedAnalysis = dayAnalysisRepository.save(dayAnalysis);
+            dayMetricsRollupService.add(savedAnalysis);
+            saved = true;
+            return savedAnalysis;
+        } finally {
+            analysisMetrics.stopPersist(sample, AnalysisMetrics.typeOf(request), saved);
+        }
+    }
+}
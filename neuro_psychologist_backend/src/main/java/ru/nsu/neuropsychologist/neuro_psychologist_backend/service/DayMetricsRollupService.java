@@ -0,0 +1,113 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.entity.DayAnalysis;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.entity.DayMetricsRollup;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.entity.User;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.repository.DayAnalysisRepository;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.repository.DayMetricsRollupRepository;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.repository.DayMetricsView;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.repository.UserRepository;
+
+import jakarta.annotation.PostConstruct;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Maintains day_metrics_rollup: one row per user and day with count, sum, min and max of every rating.
+ * Days are calendar days in the server time zone, the same days /metrics filters by.
+ */
+@Service
+public class DayMetricsRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DayMetricsRollupService.class);
+
+    private final DayMetricsRollupRepository rollupRepository;
+    private final DayAnalysisRepository dayAnalysisRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public DayMetricsRollupService(DayMetricsRollupRepository rollupRepository,
+                                   DayAnalysisRepository dayAnalysisRepository,
+                                   UserRepository userRepository,
+                                   PlatformTransactionManager transactionManager) {
+        this.rollupRepository = rollupRepository;
+        this.dayAnalysisRepository = dayAnalysisRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public static LocalDate metricDate(ZonedDateTime analyzedAt) {
+        return analyzedAt.withZoneSameInstant(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    /**
+     * Adds a just saved analysis to its day. Runs in the transaction that saves the analysis,
+     * so the rollup never counts an analysis that was rolled back.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void add(DayAnalysis analysis) {
+        User user = analysis.getUser();
+        // Concurrent saves of the same user would otherwise both create the day's row
+        // or overwrite each other's increments
+        userRepository.lockById(user.getId());
+
+        LocalDate date = metricDate(analysis.getAnalyzedAt());
+        DayMetricsRollup rollup = rollupRepository.findByUserAndMetricDate(user, date)
+                .orElseGet(() -> new DayMetricsRollup(user, date));
+        rollup.add(analysis.getDayRating(), analysis.getCalmnessRating(), analysis.getEnergyRating(),
+                analysis.getSatisfactionRating(), analysis.getConnectionRating(), analysis.getEngagementRating());
+        rollupRepository.save(rollup);
+    }
+
+    /**
+     * Recomputes a user's rollup from their analyses.
+     *
+     * @return number of days written
+     */
+    public int rebuild(User user) {
+        Integer days = transactionTemplate.execute(status -> {
+            userRepository.lockById(user.getId());
+            rollupRepository.deleteByUser(user);
+
+            Map<LocalDate, DayMetricsRollup> rollups = new TreeMap<>();
+            for (DayMetricsView analysis : dayAnalysisRepository.findMetricsByUser(user)) {
+                rollups.computeIfAbsent(metricDate(analysis.analyzedAt()), date -> new DayMetricsRollup(user, date))
+                        .add(analysis.dayRating(), analysis.calmnessRating(), analysis.energyRating(),
+                                analysis.satisfactionRating(), analysis.connectionRating(), analysis.engagementRating());
+            }
+            rollupRepository.saveAll(rollups.values());
+            return rollups.size();
+        });
+        return days == null ? 0 : days;
+    }
+
+    /**
+     * Builds the rollup of every user who has analyses but no rollup rows yet, e.g. analyses
+     * saved before the rollup existed. Runs during startup, before the web server accepts
+     * requests, so no new analysis can be added to a day that is about to be rebuilt.
+     */
+    @PostConstruct
+    public void backfillMissing() {
+        List<User> users = userRepository.findUsersWithoutMetricsRollup();
+        if (users.isEmpty()) {
+            return;
+        }
+        logger.info("Building metrics rollup for {} users from existing analyses", users.size());
+        int days = 0;
+        for (User user : users) {
+            days += rebuild(user);
+        }
+        logger.info("Metrics rollup built: {} days for {} users", days, users.size());
+    }
+}
@@ -3,9 +3,13 @@ package ru.nsu.neuropsychologist.neuro_psychologist_backend.service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
-import reactor.core.publisher.Mono;
+import reactor.core.publisher.Flux;
 
 import jakarta.annotation.PostConstruct;
 import java.io.IOException;
@@ -24,7 +28,8 @@ public class FrontendCacheService {
     private final WebClient webClient;
     private final String frontendBaseUrl;
     private final Path cacheDirectory;
-    private final Map<String, byte[]> fileCache = new ConcurrentHashMap<>();
+    // Files already in the disk cache; their content is never held on the heap
+    private final Map<String, Resource> fileCache = new ConcurrentHashMap<>();
 
     public FrontendCacheService(
             WebClient.Builder webClientBuilder,
@@ -32,59 +37,54 @@ public class FrontendCacheService {
             @Value("${frontend.cache-dir:./frontend-cache}") String cacheDir) {
         this.webClient = webClientBuilder.baseUrl(frontendBaseUrl).build();
         this.frontendBaseUrl = frontendBaseUrl;
-        this.cacheDirectory = Paths.get(cacheDir);
+        this.cacheDirectory = Paths.get(cacheDir).toAbsolutePath().normalize();
     }
 
     @PostConstruct
     public void init() {
         try {
             Files.createDirectories(cacheDirectory);
-            logger.info("Frontend cache directory initialized at: {}", cacheDirectory.toAbsolutePath());
+            logger.info("Frontend cache directory initialized at: {}", cacheDirectory);
         } catch (IOException e) {
             logger.error("Failed to create cache directory", e);
         }
     }
 
     /**
-     * Get file from cache or download it
+     * Get file from cache or download it. The resource points at the file in the disk cache,
+     * so the response streams it from disk instead of copying it through the heap.
      */
-    public byte[] getFile(String path) {
+    public Resource getFile(String path) {
         // Normalize path
         String normalizedPath = normalizePath(path);
-        
+
         // Check memory cache first
-        byte[] cachedContent = fileCache.get(normalizedPath);
-        if (cachedContent != null) {
+        Resource cachedResource = fileCache.get(normalizedPath);
+        if (cachedResource != null) {
             logger.debug("Serving {} from memory cache", normalizedPath);
-            return cachedContent;
+            return cachedResource;
         }
 
-        // Check disk cache
         Path cachedFile = getCachedFilePath(normalizedPath);
-        if (Files.exists(cachedFile)) {
-            try {
-                byte[] content = Files.readAllBytes(cachedFile);
-                fileCache.put(normalizedPath, content);
-                logger.debug("Serving {} from disk cache", normalizedPath);
-                return content;
-            } catch (IOException e) {
-                logger.warn("Failed to read cached file: {}", cachedFile, e);
-            }
+        if (cachedFile == null) {
+            logger.warn("Rejected path outside of the cache directory: {}", normalizedPath);
+            return null;
+        }
+
+        // Check disk cache
+        if (Files.isRegularFile(cachedFile)) {
+            Resource resource = new FileSystemResource(cachedFile);
+            fileCache.put(normalizedPath, resource);
+            logger.debug("Serving {} from disk cache", normalizedPath);
+            return resource;
         }
 
         // Download from Yandex Cloud
-        try {
-            byte[] content = downloadFile(normalizedPath);
-            if (content != null) {
-                // Save to disk cache
-                saveToDiskCache(normalizedPath, content);
-                // Save to memory cache
-                fileCache.put(normalizedPath, content);
-                logger.info("Downloaded and cached: {}", normalizedPath);
-                return content;
-            }
-        } catch (Exception e) {
-            logger.error("Failed to download file: {}", normalizedPath, e);
+        if (downloadFile(normalizedPath, cachedFile)) {
+            Resource resource = new FileSystemResource(cachedFile);
+            fileCache.put(normalizedPath, resource);
+            logger.info("Downloaded and cached: {}", normalizedPath);
+            return resource;
         }
 
         return null;
@@ -100,33 +100,48 @@ public class FrontendCacheService {
         return path;
     }
 
-    private byte[] downloadFile(String path) {
+    /**
+     * Streams the file into the disk cache. It goes to a temporary file first and is then
+     * moved into place, so requests never see a partially downloaded file.
+     */
+    private boolean downloadFile(String path, Path target) {
+        Path tempFile = null;
         try {
-            return webClient.get()
+            Files.createDirectories(target.getParent());
+            tempFile = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".part");
+            Flux<DataBuffer> body = webClient.get()
                     .uri(path)
                     .retrieve()
-                    .bodyToMono(byte[].class)
-                    .block();
+                    .bodyToFlux(DataBuffer.class);
+            DataBufferUtils.write(body, tempFile).block();
+            Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.debug("Saved to disk cache: {}", target);
+            return true;
         } catch (Exception e) {
             logger.error("Failed to download file from {}{}", frontendBaseUrl, path, e);
-            return null;
+            deleteQuietly(tempFile);
+            return false;
         }
     }
 
+    /**
+     * Returns null for paths that would resolve outside of the cache directory.
+     */
     private Path getCachedFilePath(String path) {
         // Remove leading slash and create path
         String relativePath = path.startsWith("/") ? path.substring(1) : path;
-        return cacheDirectory.resolve(relativePath);
+        Path cachedFile = cacheDirectory.resolve(relativePath).normalize();
+        return cachedFile.startsWith(cacheDirectory) ? cachedFile : null;
     }
 
-    private void saveToDiskCache(String path, byte[] content) {
+    private void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
         try {
-            Path cachedFile = getCachedFilePath(path);
-            Files.createDirectories(cachedFile.getParent());
-            Files.write(cachedFile, content);
-            logger.debug("Saved to disk cache: {}", cachedFile);
+            Files.deleteIfExists(file);
         } catch (IOException e) {
-            logger.warn("Failed to save file to disk cache: {}", path, e);
+            logger.warn("Failed to delete partial download: {}", file, e);
         }
     }
 
@@ -164,4 +179,4 @@ public class FrontendCacheService {
             }
         }
     }
-}
\ No newline at end of file
+}
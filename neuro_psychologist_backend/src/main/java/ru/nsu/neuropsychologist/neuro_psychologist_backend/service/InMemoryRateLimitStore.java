@@ -0,0 +1,132 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.config.RateLimitProperties;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Token buckets in this process. Updates to a bucket are serialised by one of a fixed set
+ * of locks chosen by key, so unrelated keys rarely contend. A bucket is dropped once it has
+ * been idle long enough to be full again, which is the same as not tracking it.
+ */
+@Component
+@ConditionalOnProperty(prefix = "rate-limit", name = "store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryRateLimitStore implements RateLimitStore {
+
+    private final ReentrantLock[] stripes;
+    private final Cache<String, Bucket> buckets;
+    private final Ticker ticker;
+
+    @Autowired
+    public InMemoryRateLimitStore(RateLimitProperties rateLimitProperties) {
+        this(rateLimitProperties, Ticker.systemTicker());
+    }
+
+    InMemoryRateLimitStore(RateLimitProperties rateLimitProperties, Ticker ticker) {
+        this.stripes = new ReentrantLock[rateLimitProperties.getStripes()];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.ticker = ticker;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(rateLimitProperties.getMaxTrackedKeys())
+                .expireAfter(new UntilFull())
+                .ticker(ticker)
+                .build();
+    }
+
+    @Override
+    public RateLimitDecision tryConsume(String key, TokenBucketLimit limit) {
+        ReentrantLock lock = stripes[Math.floorMod(key.hashCode(), stripes.length)];
+        lock.lock();
+        try {
+            long now = ticker.read();
+            Bucket bucket = buckets.get(key, k -> new Bucket(limit, now));
+            return bucket.tryConsume(limit, now);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void refund(String key, TokenBucketLimit limit) {
+        ReentrantLock lock = stripes[Math.floorMod(key.hashCode(), stripes.length)];
+        lock.lock();
+        try {
+            // An expired bucket is already full
+            Bucket bucket = buckets.getIfPresent(key);
+            if (bucket != null) {
+                bucket.refund(limit, ticker.read());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long trackedKeys() {
+        buckets.cleanUp();
+        return buckets.estimatedSize();
+    }
+
+    /**
+     * Guarded by the stripe lock of its key.
+     */
+    private static final class Bucket {
+
+        private TokenBucketLimit limit;
+        private double tokens;
+        private long refilledAt;
+
+        Bucket(TokenBucketLimit limit, long now) {
+            this.limit = limit;
+            this.tokens = limit.capacity();
+            this.refilledAt = now;
+        }
+
+        RateLimitDecision tryConsume(TokenBucketLimit limit, long now) {
+            refill(limit, now);
+            if (tokens >= 1) {
+                tokens -= 1;
+                return RateLimitDecision.ALLOWED;
+            }
+            double nanosUntilToken = (1 - tokens) / limit.tokensPerNano();
+            return RateLimitDecision.rejected(Math.max(1, (long) Math.ceil(nanosUntilToken / 1_000_000_000d)));
+        }
+
+        void refund(TokenBucketLimit limit, long now) {
+            refill(limit, now);
+            tokens = Math.min(limit.capacity(), tokens + 1);
+        }
+
+        private void refill(TokenBucketLimit limit, long now) {
+            this.limit = limit;
+            tokens = Math.min(limit.capacity(), tokens + (now - refilledAt) * limit.tokensPerNano());
+            refilledAt = now;
+        }
+    }
+
+    private static final class UntilFull implements Expiry<String, Bucket> {
+
+        @Override
+        public long expireAfterCreate(String key, Bucket bucket, long currentTime) {
+            return bucket.limit.timeToFill().toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Bucket bucket, long currentTime, long currentDuration) {
+            return bucket.limit.timeToFill().toNanos();
+        }
+
+        @Override
+        public long expireAfterRead(String key, Bucket bucket, long currentTime, long currentDuration) {
+            return bucket.limit.timeToFill().toNanos();
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.config.AiApiProperties;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Caps concurrent calls to the LLM API. Calls over the limit wait in a bounded queue
+ * for at most the configured time; once the queue is full they fail immediately with
+ * {@link LlmOverloadedException}, so a slow upstream cannot absorb every request thread.
+ * Waiting never blocks a thread: queued calls are resumed when a permit is released.
+ */
+@Component
+public class LlmBulkhead {
+
+    private static final Logger logger = LoggerFactory.getLogger(LlmBulkhead.class);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Deque<Permit> waiters = new ArrayDeque<>();
+    private int activeCalls;
+    private int maxConcurrentCalls;
+
+    private final int maxQueueSize;
+    private final Duration maxWait;
+    private final long retryAfterSeconds;
+    private final Counter rejectedCalls;
+
+    public LlmBulkhead(AiApiProperties aiApiProperties, MeterRegistry meterRegistry) {
+        this.maxConcurrentCalls = aiApiProperties.getBulkheadMaxConcurrentCalls();
+        this.maxQueueSize = aiApiProperties.getBulkheadMaxQueueSize();
+        this.maxWait = Duration.ofMillis(aiApiProperties.getBulkheadMaxWaitMs());
+        this.retryAfterSeconds = aiApiProperties.getBulkheadRetryAfterSeconds();
+
+        Gauge.builder("ai.llm.bulkhead.active", this, LlmBulkhead::getActiveCalls)
+                .description("LLM calls currently in flight")
+                .register(meterRegistry);
+        Gauge.builder("ai.llm.bulkhead.queued", this, LlmBulkhead::getQueuedCalls)
+                .description("LLM calls waiting for a permit")
+                .register(meterRegistry);
+        Gauge.builder("ai.llm.bulkhead.max.concurrent", this, LlmBulkhead::getMaxConcurrentCalls)
+                .description("Maximum number of concurrent LLM calls")
+                .register(meterRegistry);
+        Gauge.builder("ai.llm.bulkhead.max.queue", this, bulkhead -> bulkhead.maxQueueSize)
+                .description("Maximum number of LLM calls waiting for a permit")
+                .register(meterRegistry);
+        this.rejectedCalls = Counter.builder("ai.llm.bulkhead.rejected")
+                .description("LLM calls rejected because the bulkhead was full")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Subscribes to the call once a permit is available and releases the permit when the
+     * call terminates or is cancelled.
+     */
+    public <T> Mono<T> execute(Supplier<Mono<T>> call) {
+        return Mono.defer(() -> {
+            Permit permit = new Permit();
+            return Mono.<Void>create(sink -> acquire(permit, sink))
+                    .timeout(maxWait, Mono.error(() -> reject("Timed out waiting for a free LLM slot")))
+                    .then(Mono.defer(call))
+                    .doFinally(signal -> permit.close());
+        });
+    }
+
+    /**
+     * Streaming variant of {@link #execute(Supplier)}: the permit is held until the stream
+     * terminates or is cancelled.
+     */
+    public <T> Flux<T> executeMany(Supplier<Flux<T>> call) {
+        return Flux.defer(() -> {
+            Permit permit = new Permit();
+            return Mono.<Void>create(sink -> acquire(permit, sink))
+                    .timeout(maxWait, Mono.error(() -> reject("Timed out waiting for a free LLM slot")))
+                    .thenMany(Flux.defer(call))
+                    .doFinally(signal -> permit.close());
+        });
+    }
+
+    public int getActiveCalls() {
+        lock.lock();
+        try {
+            return activeCalls;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueuedCalls() {
+        lock.lock();
+        try {
+            return waiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getMaxConcurrentCalls() {
+        lock.lock();
+        try {
+            return maxConcurrentCalls;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Changes the number of concurrent calls. A higher limit admits queued calls right away;
+     * a lower one takes effect as in-flight calls complete.
+     */
+    public void setMaxConcurrentCalls(int maxConcurrentCalls) {
+        List<Permit> admitted = new ArrayList<>();
+        lock.lock();
+        try {
+            this.maxConcurrentCalls = maxConcurrentCalls;
+            while (activeCalls < maxConcurrentCalls && !waiters.isEmpty()) {
+                admitted.add(waiters.pollFirst());
+                activeCalls++;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        for (Permit permit : admitted) {
+            if (!permit.grant()) {
+                release();
+            }
+        }
+    }
+
+    private void acquire(Permit permit, MonoSink<Void> sink) {
+        permit.sink = sink;
+        boolean granted = false;
+        boolean rejected = false;
+
+        lock.lock();
+        try {
+            if (activeCalls < maxConcurrentCalls && waiters.isEmpty()) {
+                activeCalls++;
+                granted = true;
+            } else if (waiters.size() >= maxQueueSize) {
+                rejected = true;
+            } else {
+                waiters.addLast(permit);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (granted && !permit.grant()) {
+            // Cancelled before the permit could be handed over
+            release();
+        } else if (rejected) {
+            sink.error(reject("Too many concurrent LLM calls"));
+        }
+    }
+
+    /**
+     * Hands the permit to the oldest waiter, or returns it to the pool.
+     */
+    private void release() {
+        while (true) {
+            Permit next;
+            lock.lock();
+            try {
+                // Over the limit (it may have been lowered) the permit is retired instead
+                next = activeCalls <= maxConcurrentCalls ? waiters.pollFirst() : null;
+                if (next == null) {
+                    activeCalls--;
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (next.grant()) {
+                return;
+            }
+        }
+    }
+
+    private void removeWaiter(Permit permit) {
+        lock.lock();
+        try {
+            waiters.remove(permit);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private LlmOverloadedException reject(String reason) {
+        rejectedCalls.increment();
+        logger.warn("{}: {} active, {} queued", reason, getActiveCalls(), getQueuedCalls());
+        return new LlmOverloadedException(reason, retryAfterSeconds);
+    }
+
+    private final class Permit {
+
+        private static final int WAITING = 0;
+        private static final int GRANTED = 1;
+        private static final int CLOSED = 2;
+
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+        private MonoSink<Void> sink;
+
+        boolean grant() {
+            if (state.compareAndSet(WAITING, GRANTED)) {
+                sink.success();
+                return true;
+            }
+            return false;
+        }
+
+        void close() {
+            int previous = state.getAndSet(CLOSED);
+            if (previous == GRANTED) {
+                release();
+            } else if (previous == WAITING) {
+                removeWaiter(this);
+            }
+        }
+    }
+}
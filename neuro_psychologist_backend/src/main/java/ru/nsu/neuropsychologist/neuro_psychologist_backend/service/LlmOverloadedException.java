@@ -0,0 +1,19 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.service;
+
+/**
+ * Thrown when an LLM call is rejected locally because too many calls are already
+ * in flight or waiting. Controllers map it to 503 with a Retry-After header.
+ */
+public class LlmOverloadedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public LlmOverloadedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,13 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.service;
+
+/**
+ * Outcome of taking a token; retryAfterSeconds says when the next token will be available.
+ */
+public record RateLimitDecision(boolean allowed, long retryAfterSeconds) {
+
+    public static final RateLimitDecision ALLOWED = new RateLimitDecision(true, 0);
+
+    public static RateLimitDecision rejected(long retryAfterSeconds) {
+        return new RateLimitDecision(false, retryAfterSeconds);
+    }
+}
@@ -0,0 +1,20 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.service;
+
+/**
+ * Keeps token buckets. {@link InMemoryRateLimitStore} limits each instance on its own; with
+ * several instances behind a load balancer, a store shared between them (e.g. backed by Redis)
+ * can be registered as a bean instead, selected with rate-limit.store.
+ */
+public interface RateLimitStore {
+
+    /**
+     * Takes one token from the bucket with this key, creating a full bucket on first use.
+     */
+    RateLimitDecision tryConsume(String key, TokenBucketLimit limit);
+
+    /**
+     * Gives back a token taken by {@link #tryConsume}, e.g. when a later check rejects the request.
+     * The bucket never goes above its capacity.
+     */
+    void refund(String key, TokenBucketLimit limit);
+}
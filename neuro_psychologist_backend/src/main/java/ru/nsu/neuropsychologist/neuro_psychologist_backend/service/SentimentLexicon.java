@@ -0,0 +1,168 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Positive and negative word stems compiled into an Aho–Corasick automaton, so a text is
+ * scanned once for all stems. A stem counts when it starts a word ("хорош" matches
+ * "хороший" and "Хорошо", but not "нехороший"), case-insensitively.
+ *
+ * The automaton is a dense transition table over the letters used by the stems; characters
+ * outside that alphabet send it back to the root. Counting does not allocate.
+ */
+public class SentimentLexicon {
+
+    private static final int ROOT = 0;
+
+    // Maps a lowercased char to its column in the transition table, 0 means "not in any stem"
+    private final int[] charClass;
+    private final int alphabetSize;
+    private final int[] transitions;
+    // Per state: lengths and polarities (+1/-1) of the stems ending there, including via suffix links
+    private final int[][] outputLengths;
+    private final int[][] outputPolarities;
+
+    public SentimentLexicon(List<String> positiveStems, List<String> negativeStems) {
+        List<String> stems = new ArrayList<>();
+        List<Integer> polarities = new ArrayList<>();
+        addStems(positiveStems, 1, stems, polarities);
+        addStems(negativeStems, -1, stems, polarities);
+
+        char maxChar = 0;
+        for (String stem : stems) {
+            for (int i = 0; i < stem.length(); i++) {
+                maxChar = (char) Math.max(maxChar, stem.charAt(i));
+            }
+        }
+        charClass = new int[maxChar + 1];
+        int classes = 1;
+        for (String stem : stems) {
+            for (int i = 0; i < stem.length(); i++) {
+                char c = stem.charAt(i);
+                if (charClass[c] == 0) {
+                    charClass[c] = classes++;
+                }
+            }
+        }
+        alphabetSize = classes;
+
+        // Trie
+        List<int[]> trie = new ArrayList<>();
+        trie.add(new int[alphabetSize]);
+        List<List<int[]>> outputs = new ArrayList<>();
+        outputs.add(new ArrayList<>());
+        for (int s = 0; s < stems.size(); s++) {
+            String stem = stems.get(s);
+            int state = ROOT;
+            for (int i = 0; i < stem.length(); i++) {
+                int column = charClass[stem.charAt(i)];
+                if (trie.get(state)[column] == 0) {
+                    trie.get(state)[column] = trie.size();
+                    trie.add(new int[alphabetSize]);
+                    outputs.add(new ArrayList<>());
+                }
+                state = trie.get(state)[column];
+            }
+            outputs.get(state).add(new int[]{stem.length(), polarities.get(s)});
+        }
+
+        // Breadth-first: resolve failure links into a full transition table and merge outputs
+        int states = trie.size();
+        transitions = new int[states * alphabetSize];
+        int[] failure = new int[states];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int column = 1; column < alphabetSize; column++) {
+            int next = trie.get(ROOT)[column];
+            transitions[ROOT * alphabetSize + column] = next;
+            if (next != 0) {
+                queue.add(next);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            outputs.get(state).addAll(outputs.get(failure[state]));
+            for (int column = 1; column < alphabetSize; column++) {
+                int next = trie.get(state)[column];
+                int fallback = transitions[failure[state] * alphabetSize + column];
+                if (next != 0) {
+                    failure[next] = fallback;
+                    transitions[state * alphabetSize + column] = next;
+                    queue.add(next);
+                } else {
+                    transitions[state * alphabetSize + column] = fallback;
+                }
+            }
+        }
+
+        outputLengths = new int[states][];
+        outputPolarities = new int[states][];
+        for (int state = 0; state < states; state++) {
+            List<int[]> stateOutputs = outputs.get(state);
+            outputLengths[state] = new int[stateOutputs.size()];
+            outputPolarities[state] = new int[stateOutputs.size()];
+            for (int i = 0; i < stateOutputs.size(); i++) {
+                outputLengths[state][i] = stateOutputs.get(i)[0];
+                outputPolarities[state][i] = stateOutputs.get(i)[1];
+            }
+        }
+    }
+
+    public static SentimentLexicon of(String[] positiveStems, String[] negativeStems) {
+        return new SentimentLexicon(Arrays.asList(positiveStems), Arrays.asList(negativeStems));
+    }
+
+    /**
+     * Counts stem occurrences in one pass.
+     *
+     * @return positive count in the high 32 bits, negative count in the low 32 bits;
+     * read them with {@link #positive(long)} and {@link #negative(long)}
+     */
+    public long count(CharSequence text) {
+        int positive = 0;
+        int negative = 0;
+        int state = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            int column = c < charClass.length ? charClass[c] : 0;
+            state = transitions[state * alphabetSize + column];
+            int[] lengths = outputLengths[state];
+            for (int k = 0; k < lengths.length; k++) {
+                if (isWordStart(text, i - lengths[k] + 1)) {
+                    if (outputPolarities[state][k] > 0) {
+                        positive++;
+                    } else {
+                        negative++;
+                    }
+                }
+            }
+        }
+        return ((long) positive << 32) | (negative & 0xFFFFFFFFL);
+    }
+
+    public static int positive(long counts) {
+        return (int) (counts >>> 32);
+    }
+
+    public static int negative(long counts) {
+        return (int) counts;
+    }
+
+    private static boolean isWordStart(CharSequence text, int start) {
+        return start == 0 || !Character.isLetterOrDigit(text.charAt(start - 1));
+    }
+
+    private static void addStems(List<String> source, int polarity, List<String> stems, List<Integer> polarities) {
+        for (String stem : source) {
+            String normalized = stem.trim().toLowerCase(Locale.ROOT);
+            if (!normalized.isEmpty()) {
+                stems.add(normalized);
+                polarities.add(polarity);
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.service;
+
+import java.time.Duration;
+
+/**
+ * A token bucket holding up to {@code capacity} tokens and gaining {@code refillPerMinute}
+ * tokens a minute; every call takes one.
+ */
+public record TokenBucketLimit(int capacity, double refillPerMinute) {
+
+    public double tokensPerNano() {
+        return refillPerMinute / Duration.ofMinutes(1).toNanos();
+    }
+
+    /**
+     * Time for an empty bucket to become full again.
+     */
+    public Duration timeToFill() {
+        return Duration.ofNanos((long) Math.ceil(capacity / tokensPerNano()));
+    }
+}
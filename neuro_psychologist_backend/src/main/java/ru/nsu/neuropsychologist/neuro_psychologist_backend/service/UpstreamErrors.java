@@ -0,0 +1,23 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.service;
+
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Classifies failures of Yandex GPT calls. Reactor Netty reports a response timeout as
+ * io.netty.handler.timeout.ReadTimeoutException wrapped in a WebClientRequestException,
+ * so the whole cause chain is inspected rather than the outer exception.
+ */
+final class UpstreamErrors {
+
+    private UpstreamErrors() {
+    }
+
+    static boolean isTimeout(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TimeoutException || cause instanceof io.netty.handler.timeout.TimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,150 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Component;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.dto.AnalysisResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads result.alternatives[0].message.text from a Yandex GPT completion response with a
+ * streaming parser: no JsonNode tree is built and parsing stops as soon as the text is read.
+ * Bodies that are not the expected JSON fall back to a plain-text search.
+ *
+ * Also reads structured answers, where the text itself is a JSON object with rating,
+ * summary and recommendations.
+ */
+@Component
+public class YandexCompletionParser {
+
+    private static final Logger logger = LoggerFactory.getLogger(YandexCompletionParser.class);
+
+    private final ObjectMapper objectMapper;
+    private final ObjectReader structuredAnswerReader;
+
+    public YandexCompletionParser(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.structuredAnswerReader = objectMapper.readerFor(AnalysisResponse.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    /**
+     * Parses the response straight from the buffer, which is released afterwards.
+     */
+    public String extractText(DataBuffer buffer) {
+        int start = buffer.readPosition();
+        try {
+            try (JsonParser parser = objectMapper.getFactory().createParser(buffer.asInputStream())) {
+                String text = readFirstAlternativeText(parser);
+                if (text != null) {
+                    return text;
+                }
+            } catch (IOException e) {
+                logger.warn("Could not parse as JSON, using raw response");
+            }
+            buffer.readPosition(start);
+            return findTextInResponse(buffer.toString(StandardCharsets.UTF_8));
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+    }
+
+    public String extractText(String responseJson) {
+        try (JsonParser parser = objectMapper.getFactory().createParser(responseJson)) {
+            String text = readFirstAlternativeText(parser);
+            if (text != null) {
+                return text;
+            }
+        } catch (IOException e) {
+            logger.warn("Could not parse as JSON, using raw response");
+        }
+        return findTextInResponse(responseJson);
+    }
+
+    /**
+     * Deserializes a structured answer ({"rating", "summary", "recommendations"}) into an
+     * AnalysisResponse. Markdown code fences around the object are tolerated.
+     *
+     * @return the response, or null when the text is not valid JSON, the summary or
+     * recommendations are missing, or the rating is outside 1-10
+     */
+    public AnalysisResponse parseStructuredAnswer(String text) {
+        int start = text.indexOf('{');
+        int end = text.lastIndexOf('}');
+        if (start < 0 || end < start) {
+            return null;
+        }
+        AnalysisResponse answer;
+        try {
+            answer = structuredAnswerReader.readValue(text.substring(start, end + 1));
+        } catch (IOException e) {
+            logger.warn("Structured answer is not valid JSON: {}", e.getMessage());
+            return null;
+        }
+        Integer rating = answer.getDayRating();
+        if (answer.getAnalysisText() == null || answer.getAnalysisText().isBlank()
+                || answer.getRecommendations() == null || answer.getRecommendations().isEmpty()
+                || (rating != null && (rating < 1 || rating > 10))) {
+            return null;
+        }
+        return answer;
+    }
+
+    /**
+     * @return the text, an empty string when the first alternative has no text, or null when
+     * the response has no alternatives at all
+     */
+    private static String readFirstAlternativeText(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT
+                || !moveToField(parser, "result") || parser.nextToken() != JsonToken.START_OBJECT
+                || !moveToField(parser, "alternatives") || parser.nextToken() != JsonToken.START_ARRAY
+                || parser.nextToken() != JsonToken.START_OBJECT) {
+            return null;
+        }
+        if (!moveToField(parser, "message") || parser.nextToken() != JsonToken.START_OBJECT
+                || !moveToField(parser, "text")) {
+            return "";
+        }
+        parser.nextToken();
+        return parser.getValueAsString("");
+    }
+
+    /**
+     * Advances through the current object to the value of the given field, skipping other fields.
+     */
+    private static boolean moveToField(JsonParser parser, String name) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            if (name.equals(parser.currentName())) {
+                return true;
+            }
+            parser.nextToken();
+            parser.skipChildren();
+        }
+        return false;
+    }
+
+    private static String findTextInResponse(String response) {
+        // Ищем текстовый контент в ответе
+        if (response.contains("\"text\"")) {
+            int textStart = response.indexOf("\"text\":\"") + 8;
+            if (textStart > 8) {
+                int textEnd = response.indexOf("\"", textStart);
+                if (textEnd > textStart) {
+                    return response.substring(textStart, textEnd).replace("\\n", "\n");
+                }
+            }
+        }
+
+        // Если не нашли структурированный текст, возвращаем как есть
+        return response;
+    }
+}
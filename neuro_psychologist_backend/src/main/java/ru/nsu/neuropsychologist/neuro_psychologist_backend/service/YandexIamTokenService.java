@@ -4,14 +4,28 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.config.AiApiProperties;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.security.KeyFactory;
 import java.security.PrivateKey;
 import java.security.spec.PKCS8EncodedKeySpec;
@@ -19,83 +33,243 @@ import java.time.Instant;
 import java.util.Base64;
 import java.util.Date;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Service
 public class YandexIamTokenService {
     
     private static final Logger logger = LoggerFactory.getLogger(YandexIamTokenService.class);
-    private static final String IAM_TOKEN_URL = "https://iam.api.cloud.yandex.net/iam/v1/tokens";
-    private static final String SA_KEY_FILE = "./sa-key.json";
+    // JWT audience required by Yandex IAM, independent of the URL the token is exchanged at
+    private static final String IAM_TOKEN_AUDIENCE = "https://iam.api.cloud.yandex.net/iam/v1/tokens";
     private static final long TOKEN_LIFETIME_SECONDS = 3600; // 1 hour
+    // Callers never get a token this close to expiry
+    private static final long EXPIRY_MARGIN_SECONDS = 300;
+    // The background refresher renews tokens this long before expiry, well ahead of the margin
+    private static final long REFRESH_AHEAD_SECONDS = 900;
+    private static final long REFRESH_CHECK_INTERVAL_MS = 60_000;
     
-    private String cachedIamToken;
-    private Instant tokenExpirationTime;
+    private final AtomicReference<IamToken> currentToken = new AtomicReference<>();
+    // Parsed key material, dropped by the file watcher whenever sa-key.json changes
+    private final AtomicReference<ServiceAccountKey> serviceAccountKey = new AtomicReference<>();
+    private final ReentrantLock refreshLock = new ReentrantLock();
     private final ObjectMapper objectMapper;
     private final WebClient webClient;
+    private final String iamTokenUrl;
+    private final String saKeyFile;
+    private final Timer refreshTimer;
+    private final Counter refreshFailures;
+    private final Timer cachedAcquireTimer;
+    private final Timer slowAcquireTimer;
+    private WatchService keyFileWatchService;
     
-    public YandexIamTokenService() {
+    public YandexIamTokenService(AiApiProperties aiApiProperties, MeterRegistry meterRegistry) {
         this.objectMapper = new ObjectMapper();
         this.webClient = WebClient.builder().build();
+        this.iamTokenUrl = aiApiProperties.getIamTokenUrl();
+        this.saKeyFile = aiApiProperties.getSaKeyFile();
+        this.refreshTimer = Timer.builder("yandex.iam.token.refresh")
+                .description("Time to sign a JWT and exchange it for an IAM token")
+                .register(meterRegistry);
+        this.refreshFailures = Counter.builder("yandex.iam.token.refresh.failures")
+                .description("Failed IAM token refreshes")
+                .register(meterRegistry);
+        // "cache" is the lock-free path; "refresh" includes waiting for the lock and refreshing inline
+        this.cachedAcquireTimer = Timer.builder("yandex.iam.token.acquire")
+                .description("Time for a request to obtain an IAM token")
+                .tag("source", "cache")
+                .register(meterRegistry);
+        this.slowAcquireTimer = Timer.builder("yandex.iam.token.acquire")
+                .description("Time for a request to obtain an IAM token")
+                .tag("source", "refresh")
+                .register(meterRegistry);
     }
     
-    public synchronized String getIamToken() {
-        if (cachedIamToken != null && tokenExpirationTime != null &&
-            Instant.now().isBefore(tokenExpirationTime.minusSeconds(300))) {
+    @PostConstruct
+    public void startKeyFileWatcher() {
+        Path keyFile = Paths.get(saKeyFile).toAbsolutePath().normalize();
+        try {
+            keyFileWatchService = FileSystems.getDefault().newWatchService();
+            keyFile.getParent().register(keyFileWatchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException e) {
+            logger.warn("Could not watch service account key file, changes require a restart: {}", e.getMessage());
+            return;
+        }
+        
+        Thread watcher = new Thread(() -> watchKeyFile(keyFile), "sa-key-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+    
+    @PreDestroy
+    public void stopKeyFileWatcher() throws IOException {
+        if (keyFileWatchService != null) {
+            keyFileWatchService.close();
+        }
+    }
+    
+    private void watchKeyFile(Path keyFile) {
+        try {
+            while (true) {
+                WatchKey key = keyFileWatchService.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (keyFile.getFileName().equals(event.context())) {
+                        logger.info("Service account key file changed, it will be reloaded on the next refresh");
+                        serviceAccountKey.set(null);
+                    }
+                }
+                if (!key.reset()) {
+                    logger.warn("Service account key directory is no longer watched");
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // Application is shutting down
+        }
+    }
+    
+    /**
+     * Returns the current IAM token without locking. Only a cold start, or a refresher
+     * that has fallen behind, makes the caller refresh the token inline.
+     */
+    public String getIamToken() {
+        long start = System.nanoTime();
+        IamToken token = currentToken.get();
+        if (token != null && token.isUsableAt(Instant.now())) {
             logger.debug("Using cached IAM token");
-            return cachedIamToken;
+            cachedAcquireTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return token.value();
         }
         
+        Timer.Sample sample = Timer.start();
+        refreshLock.lock();
+        try {
+            // Another caller may have refreshed the token while we were waiting
+            token = currentToken.get();
+            if (token != null && token.isUsableAt(Instant.now())) {
+                return token.value();
+            }
+            return refreshToken().value();
+        } catch (Exception e) {
+            if (token != null && Instant.now().isBefore(token.expiresAt())) {
+                logger.warn("Failed to refresh IAM token, serving the previous one: {}", e.getMessage());
+                return token.value();
+            }
+            logger.error("Failed to get IAM token", e);
+            throw new RuntimeException("Failed to get IAM token: " + e.getMessage(), e);
+        } finally {
+            refreshLock.unlock();
+            sample.stop(slowAcquireTimer);
+        }
+    }
+    
+    /**
+     * Renews the token ahead of expiry so request threads never pay for the JWT signing
+     * and IAM exchange. On failure the current token keeps being served.
+     */
+    @Scheduled(fixedDelay = REFRESH_CHECK_INTERVAL_MS)
+    public void refreshIfExpiring() {
+        IamToken token = currentToken.get();
+        if (token != null && Instant.now().isBefore(token.expiresAt().minusSeconds(REFRESH_AHEAD_SECONDS))) {
+            return;
+        }
+        if (!new File(saKeyFile).exists()) {
+            logger.debug("Service account key file not found, skipping proactive IAM token refresh");
+            return;
+        }
+        // An inline refresh is already in progress
+        if (!refreshLock.tryLock()) {
+            return;
+        }
+        try {
+            refreshToken();
+        } catch (Exception e) {
+            logger.warn("Proactive IAM token refresh failed, keeping the current token: {}", e.getMessage());
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+    
+    private IamToken refreshToken() throws Exception {
+        Timer.Sample sample = Timer.start();
         try {
             logger.info("Generating new IAM token");
             String jwtToken = createJwtToken();
             logger.debug("JWT token created successfully");
-            cachedIamToken = exchangeJwtForIamToken(jwtToken);
-            tokenExpirationTime = Instant.now().plusSeconds(TOKEN_LIFETIME_SECONDS);
-            logger.info("IAM token obtained and cached successfully");
-            return cachedIamToken;
+            IamToken token = exchangeJwtForIamToken(jwtToken);
+            currentToken.set(token);
+            logger.info("IAM token obtained and cached successfully, expires at {}", token.expiresAt());
+            return token;
         } catch (Exception e) {
-            logger.error("Failed to get IAM token", e);
-            throw new RuntimeException("Failed to get IAM token: " + e.getMessage(), e);
+            refreshFailures.increment();
+            throw e;
+        } finally {
+            sample.stop(refreshTimer);
         }
     }
     
     private String createJwtToken() throws Exception {
-        logger.debug("Loading service account key");
-        JsonNode saKey = loadServiceAccountKey();
-        
-        String keyId = saKey.get("id").asText();
-        String serviceAccountId = saKey.get("service_account_id").asText();
-        String privateKeyPem = saKey.get("private_key").asText();
-        
-        logger.debug("Parsing private key");
-        PrivateKey privateKey = parsePrivateKey(privateKeyPem);
+        ServiceAccountKey saKey = getServiceAccountKey();
         
         Instant now = Instant.now();
         Instant expiration = now.plusSeconds(3600);
         
         return Jwts.builder()
-                .setIssuer(serviceAccountId)
-                .setAudience(IAM_TOKEN_URL)
+                .setIssuer(saKey.serviceAccountId())
+                .setAudience(IAM_TOKEN_AUDIENCE)
                 .setIssuedAt(Date.from(now))
                 .setExpiration(Date.from(expiration))
-                .setHeaderParam("kid", keyId)
-                .signWith(privateKey, SignatureAlgorithm.PS256)
+                .setHeaderParam("kid", saKey.keyId())
+                .signWith(saKey.privateKey(), SignatureAlgorithm.PS256)
                 .compact();
     }
     
-    private String exchangeJwtForIamToken(String jwtToken) {
+    private ServiceAccountKey getServiceAccountKey() throws Exception {
+        ServiceAccountKey saKey = serviceAccountKey.get();
+        if (saKey != null) {
+            return saKey;
+        }
+        
+        logger.debug("Loading service account key");
+        JsonNode keyJson = loadServiceAccountKey();
+        
+        String keyId = keyJson.get("id").asText();
+        String serviceAccountId = keyJson.get("service_account_id").asText();
+        String privateKeyPem = keyJson.get("private_key").asText();
+        
+        logger.debug("Parsing private key");
+        saKey = new ServiceAccountKey(keyId, serviceAccountId, parsePrivateKey(privateKeyPem));
+        serviceAccountKey.set(saKey);
+        return saKey;
+    }
+    
+    private IamToken exchangeJwtForIamToken(String jwtToken) {
         try {
             Map<String, Object> requestBody = Map.of("jwt", jwtToken);
             
             Map<String, Object> response = webClient.post()
-                    .uri(IAM_TOKEN_URL)
+                    .uri(iamTokenUrl)
                     .bodyValue(requestBody)
                     .retrieve()
                     .bodyToMono(Map.class)
                     .block();
             
             if (response != null && response.containsKey("iamToken")) {
-                return (String) response.get("iamToken");
+                Instant expiresAt = Instant.now().plusSeconds(TOKEN_LIFETIME_SECONDS);
+                // Never trust a cached token past the expiry reported by IAM
+                if (response.get("expiresAt") instanceof String reportedExpiry) {
+                    Instant reported = Instant.parse(reportedExpiry);
+                    if (reported.isBefore(expiresAt)) {
+                        expiresAt = reported;
+                    }
+                }
+                return new IamToken((String) response.get("iamToken"), expiresAt);
             }
             
             throw new RuntimeException("No IAM token in response");
@@ -105,7 +279,7 @@ public class YandexIamTokenService {
     }
     
     private JsonNode loadServiceAccountKey() throws IOException {
-        File keyFile = new File(SA_KEY_FILE);
+        File keyFile = new File(saKeyFile);
         if (!keyFile.exists()) {
             String absolutePath = keyFile.getAbsolutePath();
             throw new IOException("Service account key file not found at: " + absolutePath +
@@ -137,4 +311,14 @@ public class YandexIamTokenService {
         KeyFactory keyFactory = KeyFactory.getInstance("RSA");
         return keyFactory.generatePrivate(keySpec);
     }
+    
+    private record ServiceAccountKey(String keyId, String serviceAccountId, PrivateKey privateKey) {
+    }
+    
+    private record IamToken(String value, Instant expiresAt) {
+        
+        boolean isUsableAt(Instant now) {
+            return now.isBefore(expiresAt.minusSeconds(EXPIRY_MARGIN_SECONDS));
+        }
+    }
 }
\ No newline at end of file
@@ -50,5 +50,8 @@ class AiApiPropertiesTest {
         assertNull(properties.getKeyId());
         assertNull(properties.getSystemPrompt());
         assertNull(properties.getUserPromptTemplate());
+        assertEquals(50, properties.getPoolMaxConnections());
+        assertEquals(200, properties.getPoolPendingAcquireMaxCount());
+        assertEquals(60, properties.getResponseTimeoutSeconds());
     }
 }
\ No newline at end of file
@@ -0,0 +1,53 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.security.BoundedPasswordEncoder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SecurityConfigTest {
+
+    private BoundedPasswordEncoder passwordEncoder;
+
+    @BeforeEach
+    void setUp() {
+        passwordEncoder = new SecurityConfig(null, null)
+                .passwordEncoder(new SimpleMeterRegistry(), 6, 1, 10, 5000, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        passwordEncoder.shutdown();
+    }
+
+    @Test
+    void testPasswordEncoder_NewHashesArePrefixedAndCurrent() {
+        String encoded = passwordEncoder.encode("SecurePass123!");
+
+        assertTrue(encoded.startsWith("{bcrypt}$2a$06$"), encoded);
+        assertTrue(passwordEncoder.matches("SecurePass123!", encoded));
+        assertFalse(passwordEncoder.upgradeEncoding(encoded));
+    }
+
+    @Test
+    void testPasswordEncoder_AcceptsAndUpgradesUnprefixedHashes() {
+        // Hashes stored before the {bcrypt} prefix was introduced
+        String legacy = new BCryptPasswordEncoder(6).encode("SecurePass123!");
+
+        assertTrue(passwordEncoder.matches("SecurePass123!", legacy));
+        assertFalse(passwordEncoder.matches("wrong", legacy));
+        assertTrue(passwordEncoder.upgradeEncoding(legacy));
+    }
+
+    @Test
+    void testPasswordEncoder_UpgradesHashesOfLowerCost() {
+        String weaker = "{bcrypt}" + new BCryptPasswordEncoder(4).encode("SecurePass123!");
+
+        assertTrue(passwordEncoder.matches("SecurePass123!", weaker));
+        assertTrue(passwordEncoder.upgradeEncoding(weaker));
+    }
+}
@@ -0,0 +1,40 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ThreadingConfigTest {
+
+    private final ThreadingConfig threadingConfig = new ThreadingConfig();
+
+    @Test
+    void testBlockingScheduler_DefaultsToBoundedElastic() {
+        Scheduler scheduler = threadingConfig.blockingScheduler(new MockEnvironment());
+
+        assertSame(Schedulers.boundedElastic(), scheduler);
+    }
+
+    @Test
+    void testBlockingScheduler_UsesVirtualThreadsWhenEnabled() {
+        assumeTrue(Runtime.version().feature() >= 21, "virtual threads need Java 21");
+        MockEnvironment environment = new MockEnvironment().withProperty("spring.threads.virtual.enabled", "true");
+        Scheduler scheduler = threadingConfig.blockingScheduler(environment);
+
+        try {
+            String threadName = Mono.fromCallable(() -> Thread.currentThread().getName())
+                    .subscribeOn(scheduler)
+                    .block();
+
+            assertNotNull(threadName);
+            assertTrue(threadName.startsWith("blocking-io-"), threadName);
+        } finally {
+            scheduler.dispose();
+        }
+    }
+}
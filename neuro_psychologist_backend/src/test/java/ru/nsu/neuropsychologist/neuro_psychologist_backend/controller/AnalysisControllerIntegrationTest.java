@@ -1,22 +1,33 @@
 package ru.nsu.neuropsychologist.neuro_psychologist_backend.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.config.RateLimitProperties;
 import ru.nsu.neuropsychologist.neuro_psychologist_backend.dto.AnalysisRequest;
 import ru.nsu.neuropsychologist.neuro_psychologist_backend.dto.AnalysisResponse;
 import ru.nsu.neuropsychologist.neuro_psychologist_backend.entity.DayAnalysis;
 import ru.nsu.neuropsychologist.neuro_psychologist_backend.entity.User;
 import ru.nsu.neuropsychologist.neuro_psychologist_backend.repository.DayAnalysisRepository;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.repository.DayMetricsRollupRepository;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.repository.DayMetricsView;
 import ru.nsu.neuropsychologist.neuro_psychologist_backend.repository.UserRepository;
 import ru.nsu.neuropsychologist.neuro_psychologist_backend.service.AiAnalysisService;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.service.AnalysisMetrics;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.service.AnalysisJobService;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.service.AnalysisRateLimiter;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.service.DayAnalysisService;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.service.DayMetricsRollupService;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.service.InMemoryRateLimitStore;
 
 import java.time.ZonedDateTime;
 import java.util.Arrays;
@@ -41,10 +52,20 @@ class AnalysisControllerIntegrationTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private DayMetricsRollupRepository dayMetricsRollupRepository;
+
+    @Mock
+    private DayMetricsRollupService dayMetricsRollupService;
+
     @Mock
     private Authentication authentication;
 
-    @InjectMocks
+    @Mock
+    private AnalysisJobService analysisJobService;
+
+    private final RateLimitProperties rateLimitProperties = new RateLimitProperties();
+
     private AnalysisController analysisController;
 
     private User mockUser;
@@ -52,6 +73,14 @@ class AnalysisControllerIntegrationTest {
 
     @BeforeEach
     void setUp() {
+        analysisController = new AnalysisController(aiAnalysisService,
+                new DayAnalysisService(dayAnalysisRepository, new ObjectMapper(),
+                        new AnalysisMetrics(new SimpleMeterRegistry()), dayMetricsRollupService),
+                analysisJobService, dayAnalysisRepository, dayMetricsRollupRepository, userRepository,
+                new AnalysisRateLimiter(rateLimitProperties, new InMemoryRateLimitStore(rateLimitProperties),
+                        new SimpleMeterRegistry(), userRepository),
+                Schedulers.boundedElastic());
+
         mockUser = new User();
         mockUser.setId(1);
         mockUser.setEmail("test@example.com");
@@ -77,8 +106,8 @@ class AnalysisControllerIntegrationTest {
         request.setEnergyMomentsText("Morning walk");
         request.setMissingElementText("More sleep");
 
-        when(aiAnalysisService.analyzeUserText(any(AnalysisRequest.class)))
-                .thenReturn(mockAnalysisResponse);
+        when(aiAnalysisService.analyzeUserTextReactive(any(AnalysisRequest.class)))
+                .thenReturn(Mono.just(mockAnalysisResponse));
         when(authentication.isAuthenticated()).thenReturn(true);
         when(authentication.getName()).thenReturn("test@example.com");
         when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(mockUser));
@@ -88,7 +117,7 @@ class AnalysisControllerIntegrationTest {
         when(dayAnalysisRepository.save(any(DayAnalysis.class))).thenReturn(savedAnalysis);
 
         // Act
-        ResponseEntity<AnalysisResponse> result = analysisController.analyzeText(request, authentication);
+        ResponseEntity<AnalysisResponse> result = analysisController.analyzeText(request, authentication).block();
 
         // Assert
         assertEquals(HttpStatus.OK, result.getStatusCode());
@@ -111,13 +140,13 @@ class AnalysisControllerIntegrationTest {
         request.setMissingElementText("More sleep");
 
         // Act
-        ResponseEntity<AnalysisResponse> result = analysisController.analyzeText(request, null);
+        ResponseEntity<AnalysisResponse> result = analysisController.analyzeText(request, null).block();
 
         // Assert
         assertEquals(HttpStatus.BAD_REQUEST, result.getStatusCode());
         assertNotNull(result.getBody());
         assertFalse(result.getBody().isSuccess());
-        verify(aiAnalysisService, never()).analyzeUserText(any(AnalysisRequest.class));
+        verify(aiAnalysisService, never()).analyzeUserTextReactive(any(AnalysisRequest.class));
     }
 
     @Test
@@ -134,22 +163,22 @@ class AnalysisControllerIntegrationTest {
         request.setMissingElementText("More sleep");
 
         // Act
-        ResponseEntity<AnalysisResponse> result = analysisController.analyzeText(request, null);
+        ResponseEntity<AnalysisResponse> result = analysisController.analyzeText(request, null).block();
 
         // Assert
         assertEquals(HttpStatus.BAD_REQUEST, result.getStatusCode());
-        verify(aiAnalysisService, never()).analyzeUserText(any(AnalysisRequest.class));
+        verify(aiAnalysisService, never()).analyzeUserTextReactive(any(AnalysisRequest.class));
     }
 
     @Test
     void testAnalyzeText_UnauthenticatedUser() {
         // Arrange
         AnalysisRequest request = new AnalysisRequest("Test text");
-        when(aiAnalysisService.analyzeUserText(any(AnalysisRequest.class)))
-                .thenReturn(mockAnalysisResponse);
+        when(aiAnalysisService.analyzeUserTextReactive(any(AnalysisRequest.class)))
+                .thenReturn(Mono.just(mockAnalysisResponse));
 
         // Act
-        ResponseEntity<AnalysisResponse> result = analysisController.analyzeText(request, null);
+        ResponseEntity<AnalysisResponse> result = analysisController.analyzeText(request, null).block();
 
         // Assert
         assertEquals(HttpStatus.OK, result.getStatusCode());
@@ -160,8 +189,8 @@ class AnalysisControllerIntegrationTest {
     void testAnalyzeText_SaveError() {
         // Arrange
         AnalysisRequest request = new AnalysisRequest("Test text");
-        when(aiAnalysisService.analyzeUserText(any(AnalysisRequest.class)))
-                .thenReturn(mockAnalysisResponse);
+        when(aiAnalysisService.analyzeUserTextReactive(any(AnalysisRequest.class)))
+                .thenReturn(Mono.just(mockAnalysisResponse));
         when(authentication.isAuthenticated()).thenReturn(true);
         when(authentication.getName()).thenReturn("test@example.com");
         when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(mockUser));
@@ -169,7 +198,7 @@ class AnalysisControllerIntegrationTest {
                 .thenThrow(new RuntimeException("Database error"));
 
         // Act
-        ResponseEntity<AnalysisResponse> result = analysisController.analyzeText(request, authentication);
+        ResponseEntity<AnalysisResponse> result = analysisController.analyzeText(request, authentication).block();
 
         // Assert
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, result.getStatusCode());
@@ -196,7 +225,7 @@ class AnalysisControllerIntegrationTest {
                 .thenReturn(new org.springframework.data.domain.PageImpl<>(Arrays.asList(analysis1)));
 
         // Act
-        ResponseEntity<?> result = analysisController.getChatHistory(0, 20, authentication);
+        ResponseEntity<?> result = analysisController.getChatHistory(0, 20, null, null, false, authentication);
 
         // Assert
         assertEquals(HttpStatus.OK, result.getStatusCode());
@@ -207,7 +236,7 @@ class AnalysisControllerIntegrationTest {
     @Test
     void testGetChatHistory_Unauthorized() {
         // Act
-        ResponseEntity<?> result = analysisController.getChatHistory(0, 20, null);
+        ResponseEntity<?> result = analysisController.getChatHistory(0, 20, null, null, false, null);
 
         // Assert
         assertEquals(HttpStatus.UNAUTHORIZED, result.getStatusCode());
@@ -221,7 +250,7 @@ class AnalysisControllerIntegrationTest {
         when(userRepository.findByEmail(anyString())).thenThrow(new RuntimeException("Database error"));
 
         // Act
-        ResponseEntity<?> result = analysisController.getChatHistory(0, 20, authentication);
+        ResponseEntity<?> result = analysisController.getChatHistory(0, 20, null, null, false, authentication);
 
         // Assert
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, result.getStatusCode());
@@ -234,13 +263,10 @@ class AnalysisControllerIntegrationTest {
         when(authentication.getName()).thenReturn("test@example.com");
         when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(mockUser));
         
-        DayAnalysis analysis = new DayAnalysis();
-        analysis.setId(1L);
-        analysis.setDayRating(8);
-        analysis.setAnalyzedAt(ZonedDateTime.now());
-        analysis.setIsCheckin(false);
+        DayMetricsView analysis = new DayMetricsView(1L, ZonedDateTime.now(), false, 8,
+                null, null, null, null, null);
         
-        when(dayAnalysisRepository.findByUserAndAnalyzedAtBetweenOrderByAnalyzedAtDesc(any(), any(), any()))
+        when(dayAnalysisRepository.findMetricsByUserAndAnalyzedAtBetweenOrderByAnalyzedAtDesc(any(), any(), any()))
                 .thenReturn(Arrays.asList(analysis));
 
         // Act
@@ -258,7 +284,7 @@ class AnalysisControllerIntegrationTest {
         when(authentication.isAuthenticated()).thenReturn(true);
         when(authentication.getName()).thenReturn("test@example.com");
         when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(mockUser));
-        when(dayAnalysisRepository.findByUserAndAnalyzedAtBetweenOrderByAnalyzedAtDesc(any(), any(), any()))
+        when(dayAnalysisRepository.findMetricsByUserAndAnalyzedAtBetweenOrderByAnalyzedAtDesc(any(), any(), any()))
                 .thenReturn(Arrays.asList());
 
         // Act
@@ -302,7 +328,7 @@ class AnalysisControllerIntegrationTest {
         );
         response.setAnalysisText("Analysis");
         
-        when(aiAnalysisService.analyzeUserText(any(AnalysisRequest.class))).thenReturn(response);
+        when(aiAnalysisService.analyzeUserTextReactive(any(AnalysisRequest.class))).thenReturn(Mono.just(response));
         when(authentication.isAuthenticated()).thenReturn(true);
         when(authentication.getName()).thenReturn("test@example.com");
         when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(mockUser));
@@ -312,7 +338,7 @@ class AnalysisControllerIntegrationTest {
         when(dayAnalysisRepository.save(any(DayAnalysis.class))).thenReturn(savedAnalysis);
 
         // Act
-        ResponseEntity<AnalysisResponse> result = analysisController.analyzeText(request, authentication);
+        ResponseEntity<AnalysisResponse> result = analysisController.analyzeText(request, authentication).block();
 
         // Assert
         assertEquals(HttpStatus.OK, result.getStatusCode());
@@ -1,27 +1,60 @@
 package ru.nsu.neuropsychologist.neuro_psychologist_backend.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.config.RateLimitProperties;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.dto.AnalysisJobResponse;
 import ru.nsu.neuropsychologist.neuro_psychologist_backend.dto.AnalysisRequest;
 import ru.nsu.neuropsychologist.neuro_psychologist_backend.dto.AnalysisResponse;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.dto.ChatHistoryResponse;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.dto.DailyMetricsResponse;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.dto.HistoryCursor;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.entity.AnalysisJob;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.entity.AnalysisJobStatus;
 import ru.nsu.neuropsychologist.neuro_psychologist_backend.entity.DayAnalysis;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.entity.DayMetricsRollup;
 import ru.nsu.neuropsychologist.neuro_psychologist_backend.entity.User;
 import ru.nsu.neuropsychologist.neuro_psychologist_backend.repository.DayAnalysisRepository;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.repository.DayMetricsRollupRepository;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.repository.HistoryEntryView;
 import ru.nsu.neuropsychologist.neuro_psychologist_backend.repository.UserRepository;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.security.JwtPrincipal;
 import ru.nsu.neuropsychologist.neuro_psychologist_backend.service.AiAnalysisService;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.service.AnalysisMetrics;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.service.AnalysisJobService;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.service.AnalysisRateLimiter;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.service.DayAnalysisService;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.service.DayMetricsRollupService;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.service.InMemoryRateLimitStore;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.service.LlmOverloadedException;
 
+import java.time.LocalDate;
 import java.time.ZonedDateTime;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -36,12 +69,33 @@ class AnalysisControllerTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private DayMetricsRollupRepository dayMetricsRollupRepository;
+
+    @Mock
+    private DayMetricsRollupService dayMetricsRollupService;
+
     @Mock
     private Authentication authentication;
 
-    @InjectMocks
+    @Mock
+    private AnalysisJobService analysisJobService;
+
+    private final RateLimitProperties rateLimitProperties = new RateLimitProperties();
+
     private AnalysisController analysisController;
 
+    @BeforeEach
+    void setUp() {
+        analysisController = new AnalysisController(aiAnalysisService,
+                new DayAnalysisService(dayAnalysisRepository, new ObjectMapper(),
+                        new AnalysisMetrics(new SimpleMeterRegistry()), dayMetricsRollupService),
+                analysisJobService, dayAnalysisRepository, dayMetricsRollupRepository, userRepository,
+                new AnalysisRateLimiter(rateLimitProperties, new InMemoryRateLimitStore(rateLimitProperties),
+                        new SimpleMeterRegistry(), userRepository),
+                Schedulers.boundedElastic());
+    }
+
     @Test
     void testAnalyzeText_Success() {
         // Arrange
@@ -52,8 +106,8 @@ class AnalysisControllerTest {
                 ZonedDateTime.now()
         );
         
-        when(aiAnalysisService.analyzeUserText(any(AnalysisRequest.class)))
-                .thenReturn(mockResponse);
+        when(aiAnalysisService.analyzeUserTextReactive(any(AnalysisRequest.class)))
+                .thenReturn(Mono.just(mockResponse));
         when(authentication.isAuthenticated()).thenReturn(true);
         when(authentication.getName()).thenReturn("test@example.com");
         
@@ -67,7 +121,7 @@ class AnalysisControllerTest {
         when(dayAnalysisRepository.save(any(DayAnalysis.class))).thenReturn(savedAnalysis);
 
         // Act
-        ResponseEntity<AnalysisResponse> result = analysisController.analyzeText(request, authentication);
+        ResponseEntity<AnalysisResponse> result = analysisController.analyzeText(request, authentication).block();
 
         // Assert
         assertEquals(HttpStatus.OK, result.getStatusCode());
@@ -75,7 +129,7 @@ class AnalysisControllerTest {
         assertTrue(result.getBody().isSuccess());
         assertEquals(8, result.getBody().getDayRating());
         
-        verify(aiAnalysisService, times(1)).analyzeUserText(any(AnalysisRequest.class));
+        verify(aiAnalysisService, times(1)).analyzeUserTextReactive(any(AnalysisRequest.class));
         verify(dayAnalysisRepository, times(1)).save(any(DayAnalysis.class));
     }
 
@@ -85,7 +139,7 @@ class AnalysisControllerTest {
         AnalysisRequest request = new AnalysisRequest("");
 
         // Act
-        ResponseEntity<AnalysisResponse> result = analysisController.analyzeText(request, null);
+        ResponseEntity<AnalysisResponse> result = analysisController.analyzeText(request, null).block();
 
         // Assert
         assertEquals(HttpStatus.BAD_REQUEST, result.getStatusCode());
@@ -93,7 +147,7 @@ class AnalysisControllerTest {
         assertFalse(result.getBody().isSuccess());
         assertEquals("Текст для анализа не может быть пустым", result.getBody().getError());
         
-        verify(aiAnalysisService, never()).analyzeUserText(anyString());
+        verify(aiAnalysisService, never()).analyzeUserTextReactive(any(AnalysisRequest.class));
     }
 
     @Test
@@ -102,7 +156,7 @@ class AnalysisControllerTest {
         AnalysisRequest request = new AnalysisRequest(null);
 
         // Act
-        ResponseEntity<AnalysisResponse> result = analysisController.analyzeText(request, null);
+        ResponseEntity<AnalysisResponse> result = analysisController.analyzeText(request, null).block();
 
         // Assert
         assertEquals(HttpStatus.BAD_REQUEST, result.getStatusCode());
@@ -110,7 +164,7 @@ class AnalysisControllerTest {
         assertFalse(result.getBody().isSuccess());
         assertEquals("Текст для анализа не может быть пустым", result.getBody().getError());
         
-        verify(aiAnalysisService, never()).analyzeUserText(anyString());
+        verify(aiAnalysisService, never()).analyzeUserTextReactive(any(AnalysisRequest.class));
     }
 
     @Test
@@ -119,11 +173,11 @@ class AnalysisControllerTest {
         AnalysisRequest request = new AnalysisRequest("Тестовый текст");
         AnalysisResponse mockResponse = new AnalysisResponse("Ошибка сервиса");
         
-        when(aiAnalysisService.analyzeUserText(any(AnalysisRequest.class)))
-                .thenReturn(mockResponse);
+        when(aiAnalysisService.analyzeUserTextReactive(any(AnalysisRequest.class)))
+                .thenReturn(Mono.just(mockResponse));
 
         // Act
-        ResponseEntity<AnalysisResponse> result = analysisController.analyzeText(request, null);
+        ResponseEntity<AnalysisResponse> result = analysisController.analyzeText(request, null).block();
 
         // Assert
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, result.getStatusCode());
@@ -131,7 +185,442 @@ class AnalysisControllerTest {
         assertFalse(result.getBody().isSuccess());
         assertEquals("Ошибка сервиса", result.getBody().getError());
         
-        verify(aiAnalysisService, times(1)).analyzeUserText(any(AnalysisRequest.class));
+        verify(aiAnalysisService, times(1)).analyzeUserTextReactive(any(AnalysisRequest.class));
+    }
+
+    @Test
+    void testAnalyzeText_Overloaded() {
+        // Arrange
+        AnalysisRequest request = new AnalysisRequest("Тестовый текст");
+
+        when(aiAnalysisService.analyzeUserTextReactive(any(AnalysisRequest.class)))
+                .thenReturn(Mono.error(new LlmOverloadedException("Too many concurrent LLM calls", 10)));
+
+        // Act
+        ResponseEntity<AnalysisResponse> result = analysisController.analyzeText(request, null).block();
+
+        // Assert
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, result.getStatusCode());
+        assertEquals("10", result.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertNotNull(result.getBody());
+        assertFalse(result.getBody().isSuccess());
+        verify(dayAnalysisRepository, never()).save(any(DayAnalysis.class));
+    }
+
+    @Test
+    void testAnalyzeText_RateLimitedPerUser() {
+        // Arrange
+        rateLimitProperties.setUserTextCapacity(1);
+        AnalysisRequest request = new AnalysisRequest("Тестовый текст");
+        Authentication user = new UsernamePasswordAuthenticationToken(new JwtPrincipal(1, "a@example.com"), null, List.of());
+        Authentication otherUser = new UsernamePasswordAuthenticationToken(new JwtPrincipal(2, "b@example.com"), null, List.of());
+
+        when(aiAnalysisService.analyzeUserTextReactive(any(AnalysisRequest.class)))
+                .thenReturn(Mono.error(new LlmOverloadedException("Too many concurrent LLM calls", 10)));
+
+        // Act
+        analysisController.analyzeText(request, user).block();
+        ResponseEntity<AnalysisResponse> limited = analysisController.analyzeText(request, user).block();
+        ResponseEntity<AnalysisResponse> other = analysisController.analyzeText(request, otherUser).block();
+
+        // Assert
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, limited.getStatusCode());
+        assertNotNull(limited.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals("Слишком много запросов на анализ, попробуйте позже", limited.getBody().getError());
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, other.getStatusCode());
+        verify(aiAnalysisService, times(2)).analyzeUserTextReactive(any(AnalysisRequest.class));
+    }
+
+    @Test
+    void testAnalyzeTextStream_RateLimited() {
+        // Arrange
+        rateLimitProperties.setGlobalTextCapacity(0);
+        AnalysisRequest request = new AnalysisRequest("Тестовый текст");
+
+        // Act
+        ResponseEntity<Flux<ServerSentEvent<Object>>> result = analysisController.analyzeTextStream(request, null);
+        ServerSentEvent<Object> event = result.getBody().blockFirst();
+
+        // Assert
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, result.getStatusCode());
+        assertNotNull(result.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals("error", event.event());
+        verify(aiAnalysisService, never()).streamUserTextReactive(any(AnalysisRequest.class));
+    }
+
+    @Test
+    void testAnalyzeTextStream_RelaysChunksAndSaves() {
+        // Arrange
+        AnalysisRequest request = new AnalysisRequest("Тестовый текст для анализа");
+        AnalysisResponse finalResponse = new AnalysisResponse();
+        finalResponse.setAnalysisText("Хороший день");
+        finalResponse.setSuccess(true);
+        finalResponse.setAnalyzedAt(ZonedDateTime.now());
+
+        when(aiAnalysisService.streamUserTextReactive(any(AnalysisRequest.class)))
+                .thenReturn(Flux.just("Хороший", " день"));
+        when(aiAnalysisService.createAnalysisResponse(request, "Хороший день")).thenReturn(finalResponse);
+        when(authentication.isAuthenticated()).thenReturn(true);
+        when(authentication.getName()).thenReturn("test@example.com");
+
+        User mockUser = new User();
+        mockUser.setEmail("test@example.com");
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(mockUser));
+
+        DayAnalysis savedAnalysis = new DayAnalysis();
+        savedAnalysis.setId(5L);
+        when(dayAnalysisRepository.save(any(DayAnalysis.class))).thenReturn(savedAnalysis);
+
+        // Act
+        ResponseEntity<Flux<ServerSentEvent<Object>>> result = analysisController.analyzeTextStream(request, authentication);
+        List<ServerSentEvent<Object>> events = result.getBody().collectList().block();
+
+        // Assert
+        assertEquals(HttpStatus.OK, result.getStatusCode());
+        assertEquals(3, events.size());
+        assertEquals("chunk", events.get(0).event());
+        assertEquals(Map.of("text", "Хороший"), events.get(0).data());
+        assertEquals(Map.of("text", " день"), events.get(1).data());
+        assertEquals("done", events.get(2).event());
+        assertEquals(5L, ((AnalysisResponse) events.get(2).data()).getId());
+        verify(dayAnalysisRepository, times(1)).save(any(DayAnalysis.class));
+    }
+
+    @Test
+    void testAnalyzeTextStream_EmptyText() {
+        // Arrange
+        AnalysisRequest request = new AnalysisRequest("");
+
+        // Act
+        ResponseEntity<Flux<ServerSentEvent<Object>>> result = analysisController.analyzeTextStream(request, null);
+        ServerSentEvent<Object> event = result.getBody().blockFirst();
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, result.getStatusCode());
+        assertEquals("error", event.event());
+        assertEquals("Текст для анализа не может быть пустым", ((AnalysisResponse) event.data()).getError());
+        verify(aiAnalysisService, never()).streamUserTextReactive(any(AnalysisRequest.class));
+    }
+
+    @Test
+    void testAnalyzeTextStream_OverloadedEndsWithErrorEvent() {
+        // Arrange
+        AnalysisRequest request = new AnalysisRequest("Тестовый текст");
+
+        when(aiAnalysisService.streamUserTextReactive(any(AnalysisRequest.class)))
+                .thenReturn(Flux.error(new LlmOverloadedException("Too many concurrent LLM calls", 10)));
+
+        // Act
+        List<ServerSentEvent<Object>> events = analysisController.analyzeTextStream(request, null)
+                .getBody().collectList().block();
+
+        // Assert
+        assertEquals(1, events.size());
+        assertEquals("error", events.get(0).event());
+        assertFalse(((AnalysisResponse) events.get(0).data()).isSuccess());
+        verify(dayAnalysisRepository, never()).save(any(DayAnalysis.class));
+    }
+
+    @Test
+    void testSubmitAnalysisJob_Accepted() throws Exception {
+        // Arrange
+        AnalysisRequest request = new AnalysisRequest("Тестовый текст для анализа");
+        User mockUser = new User();
+        mockUser.setEmail("test@example.com");
+        AnalysisJob job = new AnalysisJob();
+        job.setId(3L);
+        AnalysisJobResponse jobResponse = new AnalysisJobResponse();
+        jobResponse.setId(3L);
+        jobResponse.setStatus("PENDING");
+
+        when(authentication.isAuthenticated()).thenReturn(true);
+        when(authentication.getName()).thenReturn("test@example.com");
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(mockUser));
+        when(analysisJobService.submit(request, mockUser, "key-1")).thenReturn(job);
+        when(analysisJobService.toResponse(job)).thenReturn(jobResponse);
+
+        // Act
+        ResponseEntity<?> result = analysisController.submitAnalysisJob(request, "key-1", authentication);
+
+        // Assert
+        assertEquals(HttpStatus.ACCEPTED, result.getStatusCode());
+        assertEquals("/api/analysis/jobs/3", result.getHeaders().getLocation().toString());
+        assertSame(jobResponse, result.getBody());
+        verify(aiAnalysisService, never()).analyzeUserTextReactive(any(AnalysisRequest.class));
     }
 
-}
\ No newline at end of file
+    @Test
+    void testSubmitAnalysisJob_RepeatedKeyIsNotRateLimited() throws Exception {
+        // Arrange
+        rateLimitProperties.setUserTextCapacity(0);
+        AnalysisRequest request = new AnalysisRequest("Тестовый текст для анализа");
+        User mockUser = new User();
+        AnalysisJob job = new AnalysisJob();
+        job.setId(3L);
+        AnalysisJobResponse jobResponse = new AnalysisJobResponse();
+
+        when(authentication.isAuthenticated()).thenReturn(true);
+        when(authentication.getName()).thenReturn("test@example.com");
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(mockUser));
+        when(analysisJobService.findJobByIdempotencyKey(mockUser, "key-1")).thenReturn(Optional.of(job));
+        when(analysisJobService.toResponse(job)).thenReturn(jobResponse);
+
+        // Act
+        ResponseEntity<?> result = analysisController.submitAnalysisJob(request, "key-1", authentication);
+
+        // Assert
+        assertEquals(HttpStatus.ACCEPTED, result.getStatusCode());
+        assertSame(jobResponse, result.getBody());
+        verify(analysisJobService, never()).submit(any(), any(), any());
+    }
+
+    @Test
+    void testSubmitAnalysisJob_EmptyText() throws Exception {
+        // Arrange
+        when(authentication.isAuthenticated()).thenReturn(true);
+
+        // Act
+        ResponseEntity<?> result = analysisController.submitAnalysisJob(new AnalysisRequest(""), null, authentication);
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, result.getStatusCode());
+        verify(analysisJobService, never()).submit(any(), any(), any());
+    }
+
+    @Test
+    void testGetAnalysisJob_RunningJobAsksToPollLater() {
+        // Arrange
+        User mockUser = new User();
+        AnalysisJob job = new AnalysisJob();
+        job.setId(3L);
+        job.setStatus(AnalysisJobStatus.RUNNING);
+
+        when(authentication.isAuthenticated()).thenReturn(true);
+        when(authentication.getName()).thenReturn("test@example.com");
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(mockUser));
+        when(analysisJobService.findJob(3L, mockUser)).thenReturn(Optional.of(job));
+        when(analysisJobService.toResponse(job)).thenReturn(new AnalysisJobResponse());
+
+        // Act
+        ResponseEntity<?> result = analysisController.getAnalysisJob(3L, authentication);
+
+        // Assert
+        assertEquals(HttpStatus.OK, result.getStatusCode());
+        assertNotNull(result.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+    }
+
+    @Test
+    void testGetAnalysisJob_NotFound() {
+        // Arrange
+        User mockUser = new User();
+        when(authentication.isAuthenticated()).thenReturn(true);
+        when(authentication.getName()).thenReturn("test@example.com");
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(mockUser));
+        when(analysisJobService.findJob(99L, mockUser)).thenReturn(Optional.empty());
+
+        // Act
+        ResponseEntity<?> result = analysisController.getAnalysisJob(99L, authentication);
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, result.getStatusCode());
+    }
+
+    @Test
+    void testGetChatHistory_DefaultsToOffsetPage() {
+        // Arrange
+        User mockUser = new User();
+        when(authentication.isAuthenticated()).thenReturn(true);
+        when(authentication.getName()).thenReturn("test@example.com");
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(mockUser));
+        when(dayAnalysisRepository.findByUserOrderByAnalyzedAtDesc(mockUser, PageRequest.of(0, 20)))
+                .thenReturn(new PageImpl<>(List.of(new DayAnalysis()), PageRequest.of(0, 20), 1));
+
+        // Act
+        ResponseEntity<?> result = analysisController.getChatHistory(0, 20, null, null, false, authentication);
+
+        // Assert
+        assertEquals(HttpStatus.OK, result.getStatusCode());
+        Map<?, ?> body = (Map<?, ?>) result.getBody();
+        assertEquals(1, ((List<?>) body.get("content")).size());
+        assertEquals(0, body.get("currentPage"));
+        assertEquals(1L, body.get("totalItems"));
+        assertEquals(1, body.get("totalPages"));
+        assertFalse(body.containsKey("nextCursor"));
+        verify(dayAnalysisRepository, never()).findHistoryByUserOrderByAnalyzedAtDescIdDesc(any(), any());
+    }
+
+    @Test
+    void testGetChatHistory_KeysetFirstPageReturnsCursor() {
+        // Arrange
+        User mockUser = new User();
+        when(authentication.isAuthenticated()).thenReturn(true);
+        when(authentication.getName()).thenReturn("test@example.com");
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(mockUser));
+        ZonedDateTime now = ZonedDateTime.parse("2025-03-01T12:00:00Z");
+        when(dayAnalysisRepository.findHistoryByUserOrderByAnalyzedAtDescIdDesc(mockUser, Limit.of(3)))
+                .thenReturn(List.of(historyEntry(9L, now), historyEntry(8L, now), historyEntry(7L, now.minusHours(1))));
+
+        // Act
+        ResponseEntity<?> result = analysisController.getChatHistory(0, 2, null, "keyset", false, authentication);
+
+        // Assert
+        assertEquals(HttpStatus.OK, result.getStatusCode());
+        Map<?, ?> body = (Map<?, ?>) result.getBody();
+        assertEquals(2, ((List<?>) body.get("content")).size());
+        assertEquals(true, body.get("hasNext"));
+        assertFalse(body.containsKey("totalItems"));
+        HistoryCursor next = HistoryCursor.decode((String) body.get("nextCursor"));
+        assertEquals(8L, next.getId());
+        assertEquals(now.toInstant(), next.getAnalyzedAt().toInstant());
+        verify(dayAnalysisRepository, never()).countByUser(any());
+    }
+
+    @Test
+    void testGetChatHistory_TokenPrincipalSkipsUserLookup() {
+        // Arrange
+        User userReference = new User();
+        userReference.setId(7);
+        Authentication tokenAuthentication = new UsernamePasswordAuthenticationToken(
+                new JwtPrincipal(7, "test@example.com"), null, List.of());
+        when(userRepository.getReferenceById(7)).thenReturn(userReference);
+        when(dayAnalysisRepository.findHistoryByUserOrderByAnalyzedAtDescIdDesc(userReference, Limit.of(21)))
+                .thenReturn(List.of());
+
+        // Act
+        ResponseEntity<?> result = analysisController.getChatHistory(0, 20, null, "keyset", false, tokenAuthentication);
+
+        // Assert
+        assertEquals(HttpStatus.OK, result.getStatusCode());
+        verify(userRepository, never()).findByEmail(any());
+    }
+
+    @Test
+    void testGetChatHistory_KeysetNextPageContinuesAfterCursor() {
+        // Arrange
+        User mockUser = new User();
+        when(authentication.isAuthenticated()).thenReturn(true);
+        when(authentication.getName()).thenReturn("test@example.com");
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(mockUser));
+        ZonedDateTime analyzedAt = ZonedDateTime.parse("2025-03-01T12:00:00Z");
+        String cursor = new HistoryCursor(analyzedAt, 8L).encode();
+        when(dayAnalysisRepository.findHistoryAfter(eq(mockUser), any(), eq(8L), eq(Limit.of(21))))
+                .thenReturn(List.of(historyEntry(7L, analyzedAt.minusHours(1))));
+        when(dayAnalysisRepository.countByUser(mockUser)).thenReturn(3L);
+
+        // Act
+        ResponseEntity<?> result = analysisController.getChatHistory(0, 20, cursor, null, true, authentication);
+
+        // Assert
+        assertEquals(HttpStatus.OK, result.getStatusCode());
+        Map<?, ?> body = (Map<?, ?>) result.getBody();
+        assertEquals(1, ((List<?>) body.get("content")).size());
+        assertEquals(false, body.get("hasNext"));
+        assertNull(body.get("nextCursor"));
+        assertEquals(3L, body.get("totalItems"));
+    }
+
+    @Test
+    void testGetChatHistory_InvalidCursor() {
+        // Arrange
+        when(authentication.isAuthenticated()).thenReturn(true);
+        when(authentication.getName()).thenReturn("test@example.com");
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(new User()));
+
+        // Act
+        ResponseEntity<?> result = analysisController.getChatHistory(0, 20, "not-a-cursor", null, false, authentication);
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, result.getStatusCode());
+        verifyNoInteractions(dayAnalysisRepository);
+    }
+
+    @Test
+    void testGetChatHistoryEntry_ReturnsTexts() {
+        // Arrange
+        User mockUser = new User();
+        when(authentication.isAuthenticated()).thenReturn(true);
+        when(authentication.getName()).thenReturn("test@example.com");
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(mockUser));
+        DayAnalysis analysis = new DayAnalysis();
+        analysis.setId(5L);
+        analysis.setUserText("Длинный текст дня");
+        analysis.setLlmResponse("Ответ модели");
+        analysis.setRecommendations("[\"Погуляйте\"]");
+        analysis.setIsCheckin(false);
+        when(dayAnalysisRepository.findByIdAndUser(5L, mockUser)).thenReturn(Optional.of(analysis));
+
+        // Act
+        ResponseEntity<?> result = analysisController.getChatHistoryEntry(5L, authentication);
+
+        // Assert
+        assertEquals(HttpStatus.OK, result.getStatusCode());
+        ChatHistoryResponse body = (ChatHistoryResponse) result.getBody();
+        assertEquals("Ответ модели", body.getLlmResponse());
+        assertEquals(List.of("Погуляйте"), body.getRecommendations());
+    }
+
+    @Test
+    void testGetChatHistoryEntry_OtherUsersEntryNotFound() {
+        // Arrange
+        User mockUser = new User();
+        when(authentication.isAuthenticated()).thenReturn(true);
+        when(authentication.getName()).thenReturn("test@example.com");
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(mockUser));
+        when(dayAnalysisRepository.findByIdAndUser(6L, mockUser)).thenReturn(Optional.empty());
+
+        // Act
+        ResponseEntity<?> result = analysisController.getChatHistoryEntry(6L, authentication);
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, result.getStatusCode());
+    }
+
+    @Test
+    void testGetDailyMetrics_ReturnsRollupAverages() {
+        // Arrange
+        User mockUser = new User();
+        when(authentication.isAuthenticated()).thenReturn(true);
+        when(authentication.getName()).thenReturn("test@example.com");
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(mockUser));
+        LocalDate date = LocalDate.of(2025, 3, 10);
+        DayMetricsRollup rollup = new DayMetricsRollup(mockUser, date);
+        rollup.add(6, 5, null, null, null, null);
+        rollup.add(9, null, null, null, null, null);
+        when(dayMetricsRollupRepository.findByUserAndMetricDateBetweenOrderByMetricDateAsc(
+                mockUser, date.minusDays(7), date)).thenReturn(List.of(rollup));
+
+        // Act
+        ResponseEntity<?> result = analysisController.getDailyMetrics(
+                "2025-03-03", "2025-03-10", authentication);
+
+        // Assert
+        assertEquals(HttpStatus.OK, result.getStatusCode());
+        @SuppressWarnings("unchecked")
+        List<DailyMetricsResponse> days = (List<DailyMetricsResponse>) result.getBody();
+        assertEquals(1, days.size());
+        assertEquals(2, days.get(0).getAnalysisCount());
+        assertEquals(7.5, days.get(0).getDayRating().getAverage());
+        assertEquals(6, days.get(0).getDayRating().getMin());
+        assertEquals(1, days.get(0).getCalmness().getCount());
+        assertNull(days.get(0).getEnergy().getAverage());
+        verifyNoInteractions(dayAnalysisRepository);
+    }
+
+    @Test
+    void testGetDailyMetrics_InvalidDate() {
+        // Arrange
+        when(authentication.isAuthenticated()).thenReturn(true);
+        when(authentication.getName()).thenReturn("test@example.com");
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(new User()));
+
+        // Act
+        ResponseEntity<?> result = analysisController.getDailyMetrics("вчера", "2025-03-10", authentication);
+
+        // Assert
+        assertEquals(HttpStatus.BAD_REQUEST, result.getStatusCode());
+    }
+
+    private static HistoryEntryView historyEntry(Long id, ZonedDateTime analyzedAt) {
+        return new HistoryEntryView(id, analyzedAt, analyzedAt, false, 7, null, null, null, null, null);
+    }
+}
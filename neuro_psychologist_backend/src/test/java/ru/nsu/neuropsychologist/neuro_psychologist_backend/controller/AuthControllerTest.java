@@ -5,12 +5,14 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import ru.nsu.neuropsychologist.neuro_psychologist_backend.dto.AuthResponse;
 import ru.nsu.neuropsychologist.neuro_psychologist_backend.dto.LoginRequest;
 import ru.nsu.neuropsychologist.neuro_psychologist_backend.dto.RegisterRequest;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.security.PasswordHashingOverloadedException;
 import ru.nsu.neuropsychologist.neuro_psychologist_backend.service.AuthService;
 
 import java.util.Map;
@@ -143,6 +145,24 @@ class AuthControllerTest {
         verify(authService, times(1)).login(request);
     }
 
+    @Test
+    void testLogin_HashingOverloaded() {
+        // Arrange
+        LoginRequest request = new LoginRequest();
+        request.setEmail("test@example.com");
+        request.setPassword("SecurePass123!");
+
+        when(authService.login(request))
+                .thenThrow(new PasswordHashingOverloadedException("Password hashing queue is full", 2));
+
+        // Act
+        ResponseEntity<?> result = authController.login(request);
+
+        // Assert
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, result.getStatusCode());
+        assertEquals("2", result.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+    }
+
     @Test
     void testLogin_UserNotFound() {
         // Arrange
@@ -4,14 +4,21 @@ import jakarta.servlet.http.HttpServletRequest;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import ru.nsu.neuropsychologist.neuro_psychologist_backend.service.FrontendCacheService;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
@@ -28,21 +35,21 @@ class FrontendControllerTest {
     @InjectMocks
     private FrontendController frontendController;
 
-    private byte[] mockContent;
+    private Resource mockContent;
 
     @BeforeEach
     void setUp() {
-        mockContent = "test content".getBytes();
+        mockContent = new ByteArrayResource("test content".getBytes());
     }
 
     @Test
     void testServeIndex_Success() {
         when(frontendCacheService.getFile("/index.html")).thenReturn(mockContent);
 
-        ResponseEntity<byte[]> response = frontendController.serveIndex();
+        ResponseEntity<Resource> response = frontendController.serveIndex();
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        assertArrayEquals(mockContent, response.getBody());
+        assertSame(mockContent, response.getBody());
         assertEquals(MediaType.TEXT_HTML, response.getHeaders().getContentType());
         verify(frontendCacheService, times(1)).getFile("/index.html");
     }
@@ -51,7 +58,7 @@ class FrontendControllerTest {
     void testServeIndex_NotFound() {
         when(frontendCacheService.getFile("/index.html")).thenReturn(null);
 
-        ResponseEntity<byte[]> response = frontendController.serveIndex();
+        ResponseEntity<Resource> response = frontendController.serveIndex();
 
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
         verify(frontendCacheService, times(1)).getFile("/index.html");
@@ -62,10 +69,10 @@ class FrontendControllerTest {
         when(request.getRequestURI()).thenReturn("/assets/main.js");
         when(frontendCacheService.getFile("/assets/main.js")).thenReturn(mockContent);
 
-        ResponseEntity<byte[]> response = frontendController.serveAssets(request);
+        ResponseEntity<Resource> response = frontendController.serveAssets(request);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        assertArrayEquals(mockContent, response.getBody());
+        assertSame(mockContent, response.getBody());
         verify(frontendCacheService, times(1)).getFile("/assets/main.js");
     }
 
@@ -73,10 +80,10 @@ class FrontendControllerTest {
     void testServeSpaRoutes_Success() {
         when(frontendCacheService.getFile("/index.html")).thenReturn(mockContent);
 
-        ResponseEntity<byte[]> response = frontendController.serveSpaRoutes("dashboard");
+        ResponseEntity<Resource> response = frontendController.serveSpaRoutes("dashboard");
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        assertArrayEquals(mockContent, response.getBody());
+        assertSame(mockContent, response.getBody());
         verify(frontendCacheService, times(1)).getFile("/index.html");
     }
 
@@ -84,10 +91,10 @@ class FrontendControllerTest {
     void testServeStaticFile_Success() {
         when(frontendCacheService.getFile("/favicon.ico")).thenReturn(mockContent);
 
-        ResponseEntity<byte[]> response = frontendController.serveStaticFile("favicon.ico");
+        ResponseEntity<Resource> response = frontendController.serveStaticFile("favicon.ico");
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        assertArrayEquals(mockContent, response.getBody());
+        assertSame(mockContent, response.getBody());
         verify(frontendCacheService, times(1)).getFile("/favicon.ico");
     }
 
@@ -96,10 +103,10 @@ class FrontendControllerTest {
         when(frontendCacheService.getFile("/nonexistent.html")).thenReturn(null);
         when(frontendCacheService.getFile("/index.html")).thenReturn(mockContent);
 
-        ResponseEntity<byte[]> response = frontendController.serveStaticFile("nonexistent.html");
+        ResponseEntity<Resource> response = frontendController.serveStaticFile("nonexistent.html");
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        assertArrayEquals(mockContent, response.getBody());
+        assertSame(mockContent, response.getBody());
         verify(frontendCacheService, times(1)).getFile("/nonexistent.html");
         verify(frontendCacheService, times(1)).getFile("/index.html");
     }
@@ -108,7 +115,7 @@ class FrontendControllerTest {
     void testServeFile_Exception() {
         when(frontendCacheService.getFile(anyString())).thenThrow(new RuntimeException("Test exception"));
 
-        ResponseEntity<byte[]> response = frontendController.serveIndex();
+        ResponseEntity<Resource> response = frontendController.serveIndex();
 
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
     }
@@ -117,7 +124,7 @@ class FrontendControllerTest {
     void testGetContentType_Html() {
         when(frontendCacheService.getFile("/index.html")).thenReturn(mockContent);
         
-        ResponseEntity<byte[]> response = frontendController.serveIndex();
+        ResponseEntity<Resource> response = frontendController.serveIndex();
         
         assertEquals(MediaType.TEXT_HTML, response.getHeaders().getContentType());
     }
@@ -127,7 +134,7 @@ class FrontendControllerTest {
         when(frontendCacheService.getFile("/assets/main.js")).thenReturn(mockContent);
         when(request.getRequestURI()).thenReturn("/assets/main.js");
         
-        ResponseEntity<byte[]> response = frontendController.serveAssets(request);
+        ResponseEntity<Resource> response = frontendController.serveAssets(request);
         
         assertEquals(MediaType.valueOf("application/javascript"), response.getHeaders().getContentType());
     }
@@ -137,7 +144,7 @@ class FrontendControllerTest {
         when(frontendCacheService.getFile("/assets/style.css")).thenReturn(mockContent);
         when(request.getRequestURI()).thenReturn("/assets/style.css");
         
-        ResponseEntity<byte[]> response = frontendController.serveAssets(request);
+        ResponseEntity<Resource> response = frontendController.serveAssets(request);
         
         assertEquals(MediaType.valueOf("text/css"), response.getHeaders().getContentType());
     }
@@ -147,7 +154,7 @@ class FrontendControllerTest {
         when(frontendCacheService.getFile("/assets/main.js")).thenReturn(mockContent);
         when(request.getRequestURI()).thenReturn("/assets/main.js");
         
-        ResponseEntity<byte[]> response = frontendController.serveAssets(request);
+        ResponseEntity<Resource> response = frontendController.serveAssets(request);
         
         String cacheControl = response.getHeaders().getCacheControl();
         assertNotNull(cacheControl);
@@ -159,10 +166,23 @@ class FrontendControllerTest {
     void testCacheHeaders_NonAssets() {
         when(frontendCacheService.getFile("/index.html")).thenReturn(mockContent);
         
-        ResponseEntity<byte[]> response = frontendController.serveIndex();
+        ResponseEntity<Resource> response = frontendController.serveIndex();
         
         String cacheControl = response.getHeaders().getCacheControl();
         assertNotNull(cacheControl);
         assertTrue(cacheControl.contains("no-cache"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testServeFile_CachedFileHasLastModified(@TempDir Path tempDir) throws Exception {
+        Path indexFile = Files.writeString(tempDir.resolve("index.html"), "<html></html>");
+        Resource resource = new FileSystemResource(indexFile);
+        when(frontendCacheService.getFile("/index.html")).thenReturn(resource);
+
+        ResponseEntity<Resource> response = frontendController.serveIndex();
+
+        assertSame(resource, response.getBody());
+        assertEquals(Files.getLastModifiedTime(indexFile).toMillis() / 1000 * 1000,
+                response.getHeaders().getLastModified());
+    }
+}
@@ -0,0 +1,209 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Repeatable load scenario against the full application, with Yandex GPT and IAM replaced by
+ * {@link MockYandexGptServer}. Each virtual user logs in, then loops over
+ * analyze -> history -> metrics, logging in again every few iterations.
+ * Throughput and latency percentiles per endpoint are printed and written to
+ * target/load-test/report.txt.
+ *
+ * Run with: ./mvnw -Pload-test test
+ * Tune with -Dload.users, -Dload.duration-seconds, -Dload.login-every and the mock.* properties
+ * of {@link MockYandexGptServer.Settings}.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class AnalysisLoadTest {
+
+    private static final int USERS = Integer.getInteger("load.users", 50);
+    private static final long DURATION_SECONDS = Long.getLong("load.duration-seconds", 60);
+    private static final int LOGIN_EVERY = Integer.getInteger("load.login-every", 10);
+    private static final String PASSWORD = "load-test-password";
+    private static final String DAY_TEXT = "Сегодня был насыщенный день: утром совещание, днём много задач, "
+            + "вечером встретился с друзьями и немного отдохнул. Чувствую усталость, но настроение хорошее.";
+
+    private static final MockYandexGptServer mockServer = startMockServer();
+    private static final String SA_KEY_FILE = MockYandexGptServer.writeServiceAccountKey().toString();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .executor(Executors.newFixedThreadPool(Math.max(4, USERS / 4)))
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    @LocalServerPort
+    private int port;
+
+    @DynamicPropertySource
+    static void mockYandex(DynamicPropertyRegistry registry) {
+        registry.add("ai.api.url", mockServer::completionUrl);
+        registry.add("ai.api.iam-token-url", mockServer::iamTokenUrl);
+        registry.add("ai.api.sa-key-file", () -> SA_KEY_FILE);
+        // Every analysis should reach the (mock) model
+        registry.add("ai.api.response-cache-enabled", () -> "false");
+        registry.add("analysis.jobs.worker-enabled", () -> "false");
+        registry.add("logging.level.org.springframework.web", () -> "INFO");
+    }
+
+    @AfterAll
+    static void stopMockServer() {
+        mockServer.close();
+    }
+
+    @Test
+    void analysisScenario() throws Exception {
+        for (int i = 0; i < USERS; i++) {
+            HttpResponse<String> response = post("/api/auth/register", null, Map.of(
+                    "email", email(i), "password", PASSWORD, "firstName", "Load" + i));
+            assertEquals(201, response.statusCode(), response.body());
+        }
+
+        LoadReport report = new LoadReport();
+        ExecutorService users = Executors.newFixedThreadPool(USERS);
+        long deadline = System.nanoTime() + Duration.ofSeconds(DURATION_SECONDS).toNanos();
+        long started = System.nanoTime();
+        List<Future<?>> running = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            int user = i;
+            running.add(users.submit(() -> {
+                runUser(user, deadline, report);
+                return null;
+            }));
+        }
+        for (Future<?> future : running) {
+            future.get();
+        }
+        users.shutdown();
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - started);
+
+        String summary = report.format(elapsed)
+                + String.format("%nmock: %d completions, %d injected failures, %d IAM token exchanges%n",
+                mockServer.getCompletions(), mockServer.getFailures(), mockServer.getTokenExchanges());
+        System.out.println(summary);
+        Path reportFile = Path.of("target", "load-test", "report.txt");
+        Files.createDirectories(reportFile.getParent());
+        Files.writeString(reportFile, summary);
+
+        for (String endpoint : List.of("login", "analyze", "history", "metrics")) {
+            assertTrue(report.successes(endpoint) > 0, "No successful " + endpoint + " requests");
+        }
+        assertEquals(0, report.failures("history"), "history requests failed");
+        assertEquals(0, report.failures("metrics"), "metrics requests failed");
+    }
+
+    private void runUser(int user, long deadline, LoadReport report) throws Exception {
+        String token = null;
+        for (int iteration = 0; System.nanoTime() < deadline; iteration++) {
+            if (token == null || iteration % LOGIN_EVERY == 0) {
+                HttpResponse<String> login = timed(report, "login", () -> post("/api/auth/login", null,
+                        Map.of("email", email(user), "password", PASSWORD)));
+                if (login == null || login.statusCode() != 200) {
+                    continue;
+                }
+                token = objectMapper.readTree(login.body()).path("token").asText();
+            }
+            String bearer = token;
+            timed(report, "analyze", () -> post("/api/analysis/analyze", bearer, Map.of("userText", DAY_TEXT)));
+            timed(report, "history", () -> get("/api/analysis/history?size=20", bearer));
+            timed(report, "metrics", () -> get("/api/analysis/metrics", bearer));
+        }
+    }
+
+    /**
+     * @return the response, or null when the request failed at the connection level
+     */
+    private HttpResponse<String> timed(LoadReport report, String endpoint, HttpCall call) throws Exception {
+        long start = System.nanoTime();
+        HttpResponse<String> response;
+        try {
+            response = call.execute();
+        } catch (IOException e) {
+            report.record(endpoint, System.nanoTime() - start, false);
+            return null;
+        }
+        report.record(endpoint, System.nanoTime() - start, isSuccess(endpoint, response));
+        return response;
+    }
+
+    private boolean isSuccess(String endpoint, HttpResponse<String> response) {
+        if (response.statusCode() != 200) {
+            return false;
+        }
+        if (!"analyze".equals(endpoint)) {
+            return true;
+        }
+        // A failed upstream call is still answered with 200 and success=false
+        try {
+            JsonNode body = objectMapper.readTree(response.body());
+            return body.path("success").asBoolean(false);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private HttpResponse<String> post(String path, String token, Object body) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .timeout(Duration.ofSeconds(120))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)));
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> get(String path, String token) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .timeout(Duration.ofSeconds(120))
+                .header("Authorization", "Bearer " + token)
+                .GET()
+                .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String email(int user) {
+        return "load-user-" + user + "@example.com";
+    }
+
+    private static MockYandexGptServer startMockServer() {
+        try {
+            return new MockYandexGptServer(MockYandexGptServer.Settings.fromSystemProperties()).start();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not start mock Yandex GPT server", e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface HttpCall {
+        HttpResponse<String> execute() throws Exception;
+    }
+}
@@ -0,0 +1,84 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.loadtest;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Collects request latencies per endpoint and formats throughput and latency percentiles.
+ */
+class LoadReport {
+
+    private final Map<String, EndpointStats> endpoints = new ConcurrentSkipListMap<>();
+
+    void record(String endpoint, long latencyNanos, boolean success) {
+        endpoints.computeIfAbsent(endpoint, name -> new EndpointStats()).record(latencyNanos, success);
+    }
+
+    long successes(String endpoint) {
+        EndpointStats stats = endpoints.get(endpoint);
+        return stats == null ? 0 : stats.successes();
+    }
+
+    long failures(String endpoint) {
+        EndpointStats stats = endpoints.get(endpoint);
+        return stats == null ? 0 : stats.failures();
+    }
+
+    String format(Duration elapsed) {
+        double seconds = elapsed.toMillis() / 1000.0;
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Load test: %.1f s%n", seconds));
+        report.append(String.format("%-10s %8s %8s %9s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "req/s", "req/min", "p50 ms", "p90 ms", "p99 ms", "max ms"));
+        endpoints.forEach((endpoint, stats) -> {
+            long[] latencies = stats.sortedLatencies();
+            report.append(String.format("%-10s %8d %8d %9.1f %9.0f %9.1f %9.1f %9.1f %9.1f%n",
+                    endpoint, latencies.length, stats.failures(),
+                    latencies.length / seconds, latencies.length / seconds * 60,
+                    percentileMillis(latencies, 0.50), percentileMillis(latencies, 0.90),
+                    percentileMillis(latencies, 0.99), percentileMillis(latencies, 1.0)));
+        });
+        return report.toString();
+    }
+
+    private static double percentileMillis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    private static final class EndpointStats {
+
+        private long[] latencies = new long[1024];
+        private int count;
+        private long failures;
+
+        synchronized void record(long latencyNanos, boolean success) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latencyNanos;
+            if (!success) {
+                failures++;
+            }
+        }
+
+        synchronized long successes() {
+            return count - failures;
+        }
+
+        synchronized long failures() {
+            return failures;
+        }
+
+        synchronized long[] sortedLatencies() {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.resources.ConnectionProvider;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.config.AiApiProperties;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.config.AiWebClientConfig;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.dto.AnalysisResponse;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.service.AdaptiveConcurrencyLimit;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.service.AiAnalysisService;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.service.AnalysisMetrics;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.service.AnalysisResponseCache;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.service.AnalysisTextParser;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.service.LlmBulkhead;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.service.YandexCompletionParser;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.service.YandexIamTokenService;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Blocking analyses (the way servlet threads, job workers and other synchronous callers use
+ * {@link AiAnalysisService#analyzeUserText}) with many more concurrent callers than Tomcat's
+ * default 200 worker threads. A 200-thread platform pool serves them in waves; virtual threads
+ * run them all at once and are only limited by the mock's latency.
+ * Results are printed and written to target/load-test/virtual-threads.txt.
+ *
+ * Run with: ./mvnw -Pload-test test -Dtest=VirtualThreadScalingLoadTest (Java 21+)
+ * Tune with -Dload.callers, -Dload.platform-threads and -Dload.latency-ms.
+ */
+@Tag("load")
+class VirtualThreadScalingLoadTest {
+
+    private static final int CALLERS = Integer.getInteger("load.callers", 1000);
+    private static final int PLATFORM_THREADS = Integer.getInteger("load.platform-threads", 200);
+    private static final long LATENCY_MS = Long.getLong("load.latency-ms", 2000);
+    private static final String DAY_TEXT = "Сегодня был обычный рабочий день, немного устал, вечером погулял в парке.";
+
+    private static MockYandexGptServer mockServer;
+    private static ConnectionProvider connectionProvider;
+    private static AiAnalysisService aiAnalysisService;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        assumeTrue(Runtime.version().feature() >= 21, "virtual threads need Java 21");
+        mockServer = new MockYandexGptServer(
+                new MockYandexGptServer.Settings(0, LATENCY_MS, LATENCY_MS, 0, 0, 1, 0, 42)).start();
+
+        AiApiProperties properties = new AiApiProperties();
+        properties.setUrl(mockServer.completionUrl());
+        properties.setIamTokenUrl(mockServer.iamTokenUrl());
+        properties.setSaKeyFile(MockYandexGptServer.writeServiceAccountKey().toString());
+        properties.setFolderId("mock-folder");
+        properties.setModel("gpt://mock-folder/yandexgpt-lite/latest");
+        properties.setMaxTokens(1000);
+        properties.setTemperature(0.7);
+        // Only the callers' threads should limit concurrency here
+        properties.setPoolMaxConnections(CALLERS);
+        properties.setPoolPendingAcquireMaxCount(CALLERS);
+        properties.setPoolMaxIdleTimeSeconds(300);
+        properties.setBulkheadMaxConcurrentCalls(CALLERS);
+        properties.setBulkheadMaxQueueSize(CALLERS);
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AiWebClientConfig webClientConfig = new AiWebClientConfig();
+        connectionProvider = webClientConfig.yandexGptConnectionProvider(properties);
+        WebClient webClient = webClientConfig.yandexGptWebClient(properties, connectionProvider,
+                new YandexIamTokenService(properties, meterRegistry), Schedulers.boundedElastic());
+        LlmBulkhead bulkhead = new LlmBulkhead(properties, meterRegistry);
+        aiAnalysisService = new AiAnalysisService(properties, webClient,
+                new AnalysisResponseCache(properties, meterRegistry), bulkhead,
+                new AdaptiveConcurrencyLimit(properties, bulkhead, meterRegistry),
+                new AnalysisMetrics(meterRegistry), new AnalysisTextParser(),
+                new YandexCompletionParser(new ObjectMapper()));
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (connectionProvider != null) {
+            connectionProvider.dispose();
+        }
+        if (mockServer != null) {
+            mockServer.close();
+        }
+    }
+
+    @Test
+    void virtualThreadsScalePastPlatformPool() throws Exception {
+        VirtualThreadTaskExecutor virtualThreads = new VirtualThreadTaskExecutor("analysis-");
+        // Opens the connections and fetches the IAM token before anything is measured
+        run(new LoadReport(), "warm-up", virtualThreads);
+
+        LoadReport platformReport = new LoadReport();
+        ExecutorService platformThreads = Executors.newFixedThreadPool(PLATFORM_THREADS);
+        Duration platform;
+        try {
+            platform = run(platformReport, "platform", platformThreads);
+        } finally {
+            platformThreads.shutdown();
+        }
+        LoadReport virtualReport = new LoadReport();
+        Duration virtual = run(virtualReport, "virtual", virtualThreads);
+
+        String summary = String.format("%d concurrent blocking analyses, %d ms model latency, "
+                        + "platform pool of %d threads vs a virtual thread per call%n%n",
+                CALLERS, LATENCY_MS, PLATFORM_THREADS)
+                + platformReport.format(platform) + System.lineSeparator()
+                + virtualReport.format(virtual);
+        System.out.println(summary);
+        Path reportFile = Path.of("target", "load-test", "virtual-threads.txt");
+        Files.createDirectories(reportFile.getParent());
+        Files.writeString(reportFile, summary);
+
+        assertEquals(0, platformReport.failures("platform"), "platform analyses failed");
+        assertEquals(0, virtualReport.failures("virtual"), "virtual analyses failed");
+        if (CALLERS > PLATFORM_THREADS) {
+            assertTrue(virtual.toMillis() * 2 < platform.toMillis(),
+                    "virtual threads did not scale past the platform pool: " + summary);
+        }
+    }
+
+    private Duration run(LoadReport report, String label, Executor executor) {
+        long started = System.nanoTime();
+        List<CompletableFuture<Void>> calls = new ArrayList<>(CALLERS);
+        for (int i = 0; i < CALLERS; i++) {
+            // Latency counts from submission, so waiting for a free platform thread is included
+            long submitted = System.nanoTime();
+            calls.add(CompletableFuture.runAsync(() -> {
+                boolean success;
+                try {
+                    AnalysisResponse response = aiAnalysisService.analyzeUserText(DAY_TEXT);
+                    success = response != null && response.isSuccess();
+                } catch (RuntimeException e) {
+                    success = false;
+                }
+                report.record(label, System.nanoTime() - submitted, success);
+            }, executor));
+        }
+        CompletableFuture.allOf(calls.toArray(CompletableFuture[]::new)).join();
+        return Duration.ofNanos(System.nanoTime() - started);
+    }
+}
@@ -1,5 +1,6 @@
 package ru.nsu.neuropsychologist.neuro_psychologist_backend.security;
 
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -10,11 +11,13 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 
 import java.io.IOException;
+import java.time.Instant;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -24,7 +27,7 @@ import static org.mockito.Mockito.*;
 class JwtAuthenticationFilterTest {
 
     @Mock
-    private JwtUtil jwtUtil;
+    private VerifiedTokenCache verifiedTokenCache;
 
     @Mock
     private UserDetailsService userDetailsService;
@@ -52,16 +55,34 @@ class JwtAuthenticationFilterTest {
     @Test
     void testDoFilterInternal_ValidToken() throws ServletException, IOException {
         String token = "valid.jwt.token";
+        
+        when(request.getHeader("Authorization")).thenReturn("Bearer " + token);
+        when(verifiedTokenCache.verify(token)).thenReturn(verifiedToken("test@example.com", 7));
+        
+        jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
+        
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertNotNull(authentication);
+        JwtPrincipal principal = assertInstanceOf(JwtPrincipal.class, authentication.getPrincipal());
+        assertEquals(7, principal.getUserId());
+        assertEquals("test@example.com", authentication.getName());
+        // The user comes from the token, not from the database
+        verifyNoInteractions(userDetailsService);
+        verify(filterChain, times(1)).doFilter(request, response);
+    }
+
+    @Test
+    void testDoFilterInternal_TokenWithoutUserIdLoadsUser() throws ServletException, IOException {
+        String token = "old.jwt.token";
         String username = "test@example.com";
         
         when(request.getHeader("Authorization")).thenReturn("Bearer " + token);
-        when(jwtUtil.extractUsername(token)).thenReturn(username);
+        when(verifiedTokenCache.verify(token)).thenReturn(verifiedToken(username, null));
         when(userDetailsService.loadUserByUsername(username)).thenReturn(userDetails);
-        when(jwtUtil.validateToken(token, userDetails)).thenReturn(true);
         
         jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
         
-        assertNotNull(SecurityContextHolder.getContext().getAuthentication());
+        assertSame(userDetails, SecurityContextHolder.getContext().getAuthentication().getPrincipal());
         verify(filterChain, times(1)).doFilter(request, response);
     }
 
@@ -73,7 +94,7 @@ class JwtAuthenticationFilterTest {
         
         assertNull(SecurityContextHolder.getContext().getAuthentication());
         verify(filterChain, times(1)).doFilter(request, response);
-        verify(jwtUtil, never()).extractUsername(anyString());
+        verify(verifiedTokenCache, never()).verify(anyString());
     }
 
     @Test
@@ -84,7 +105,7 @@ class JwtAuthenticationFilterTest {
         
         assertNull(SecurityContextHolder.getContext().getAuthentication());
         verify(filterChain, times(1)).doFilter(request, response);
-        verify(jwtUtil, never()).extractUsername(anyString());
+        verify(verifiedTokenCache, never()).verify(anyString());
     }
 
     @Test
@@ -92,7 +113,7 @@ class JwtAuthenticationFilterTest {
         String token = "invalid.jwt.token";
         
         when(request.getHeader("Authorization")).thenReturn("Bearer " + token);
-        when(jwtUtil.extractUsername(token)).thenThrow(new RuntimeException("Invalid token"));
+        when(verifiedTokenCache.verify(token)).thenThrow(new RuntimeException("Invalid token"));
         
         jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
         
@@ -102,17 +123,15 @@ class JwtAuthenticationFilterTest {
 
     @Test
     void testDoFilterInternal_InvalidToken() throws ServletException, IOException {
-        String token = "invalid.jwt.token";
-        String username = "test@example.com";
+        String token = "expired.jwt.token";
         
         when(request.getHeader("Authorization")).thenReturn("Bearer " + token);
-        when(jwtUtil.extractUsername(token)).thenReturn(username);
-        when(userDetailsService.loadUserByUsername(username)).thenReturn(userDetails);
-        when(jwtUtil.validateToken(token, userDetails)).thenReturn(false);
+        when(verifiedTokenCache.verify(token)).thenThrow(new JwtException("JWT expired"));
         
         jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
         
         assertNull(SecurityContextHolder.getContext().getAuthentication());
+        verifyNoInteractions(userDetailsService);
         verify(filterChain, times(1)).doFilter(request, response);
     }
 
@@ -129,7 +148,7 @@ class JwtAuthenticationFilterTest {
         );
         
         when(request.getHeader("Authorization")).thenReturn("Bearer " + token);
-        when(jwtUtil.extractUsername(token)).thenReturn(username);
+        when(verifiedTokenCache.verify(token)).thenReturn(verifiedToken(username, null));
         
         jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
         
@@ -137,4 +156,8 @@ class JwtAuthenticationFilterTest {
         verify(userDetailsService, never()).loadUserByUsername(anyString());
         verify(filterChain, times(1)).doFilter(request, response);
     }
-}
\ No newline at end of file
+
+    private static VerifiedToken verifiedToken(String subject, Integer userId) {
+        return new VerifiedToken(subject, userId, Instant.now().plusSeconds(3600));
+    }
+}
@@ -1,9 +1,9 @@
 package ru.nsu.neuropsychologist.neuro_psychologist_backend.security;
 
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.springframework.test.util.ReflectionTestUtils;
 import ru.nsu.neuropsychologist.neuro_psychologist_backend.entity.User;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -15,11 +15,8 @@ class JwtUtilTest {
 
     @BeforeEach
     void setUp() {
-        // Создаём JwtUtil и устанавливаем значения через Reflection
-        jwtUtil = new JwtUtil();
-        ReflectionTestUtils.setField(jwtUtil, "secret",
-            "testSecretKeyForJWTTokenGenerationThatShouldBeAtLeast256BitsLongForHS256Algorithm");
-        ReflectionTestUtils.setField(jwtUtil, "expiration", 3600000L); 
+        jwtUtil = new JwtUtil(
+            "testSecretKeyForJWTTokenGenerationThatShouldBeAtLeast256BitsLongForHS256Algorithm", 3600000L);
         
         testUser = new User();
         testUser.setId(1);
@@ -85,10 +82,8 @@ class JwtUtilTest {
     void testValidateToken_ExpiredToken() {
         // Arrange
         // Создаём JwtUtil с очень коротким временем жизни токена
-        JwtUtil shortLivedJwtUtil = new JwtUtil();
-        ReflectionTestUtils.setField(shortLivedJwtUtil, "secret",
-                "testSecretKeyForJWTTokenGenerationThatShouldBeAtLeast256BitsLongForHS256Algorithm");
-        ReflectionTestUtils.setField(shortLivedJwtUtil, "expiration", 1L); // 1 миллисекунда
+        JwtUtil shortLivedJwtUtil = new JwtUtil(
+                "testSecretKeyForJWTTokenGenerationThatShouldBeAtLeast256BitsLongForHS256Algorithm", 1L); // 1 миллисекунда
         
         String token = shortLivedJwtUtil.generateToken(testUser);
         
@@ -151,4 +146,17 @@ class JwtUtilTest {
         assertEquals(testUser.getEmail(), extractedEmail);
         assertEquals(testUser.getUsername(), extractedEmail); // Username должен быть равен email
     }
-}
\ No newline at end of file
+
+    @Test
+    void testGenerateToken_ContainsUserId() {
+        // Arrange
+        String token = jwtUtil.generateToken(testUser);
+
+        // Act
+        Claims claims = jwtUtil.parseToken(token);
+
+        // Assert
+        assertEquals("test@example.com", claims.getSubject());
+        assertEquals(1, claims.get(JwtUtil.USER_ID_CLAIM, Integer.class));
+    }
+}
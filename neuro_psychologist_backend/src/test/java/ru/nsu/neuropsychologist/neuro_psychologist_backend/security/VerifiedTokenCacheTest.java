@@ -0,0 +1,93 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.security;
+
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.entity.User;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class VerifiedTokenCacheTest {
+
+    private static final String SECRET =
+            "testSecretKeyForJWTTokenGenerationThatShouldBeAtLeast256BitsLongForHS256Algorithm";
+
+    private SimpleMeterRegistry meterRegistry;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        user = new User();
+        user.setId(1);
+        user.setEmail("test@example.com");
+    }
+
+    @Test
+    void testVerify_RepeatedTokenIsParsedOnce() {
+        // Arrange
+        JwtUtil jwtUtil = spy(new JwtUtil(SECRET, 3600000L));
+        VerifiedTokenCache cache = new VerifiedTokenCache(jwtUtil, meterRegistry, 100);
+        String token = jwtUtil.generateToken(user);
+
+        // Act
+        VerifiedToken first = cache.verify(token);
+        VerifiedToken second = cache.verify(token);
+
+        // Assert
+        assertEquals("test@example.com", first.subject());
+        assertEquals(1, first.userId());
+        assertEquals(first, second);
+        verify(jwtUtil, times(1)).parseToken(token);
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "jwt.verified.cache")
+                .tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    void testVerify_InvalidTokenIsNotCached() {
+        // Arrange
+        JwtUtil jwtUtil = new JwtUtil(SECRET, 3600000L);
+        VerifiedTokenCache cache = new VerifiedTokenCache(jwtUtil, meterRegistry, 100);
+
+        // Act & Assert
+        assertThrows(JwtException.class, () -> cache.verify("invalid.jwt.token"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testVerify_EntryExpiresWithToken() throws InterruptedException {
+        // Arrange
+        JwtUtil jwtUtil = new JwtUtil(SECRET, 1000L);
+        VerifiedTokenCache cache = new VerifiedTokenCache(jwtUtil, meterRegistry, 100);
+        String token = jwtUtil.generateToken(user);
+        cache.verify(token);
+
+        // Act
+        Thread.sleep(1100);
+
+        // Assert
+        assertEquals(0, cache.size());
+        assertThrows(ExpiredJwtException.class, () -> cache.verify(token));
+    }
+
+    @Test
+    void testVerify_SizeIsBounded() {
+        // Arrange
+        JwtUtil jwtUtil = new JwtUtil(SECRET, 3600000L);
+        VerifiedTokenCache cache = new VerifiedTokenCache(jwtUtil, meterRegistry, 2);
+
+        // Act
+        for (int id = 1; id <= 5; id++) {
+            User other = new User();
+            other.setId(id);
+            other.setEmail("user" + id + "@example.com");
+            cache.verify(jwtUtil.generateToken(other));
+        }
+
+        // Assert
+        assertTrue(cache.size() <= 2);
+    }
+}
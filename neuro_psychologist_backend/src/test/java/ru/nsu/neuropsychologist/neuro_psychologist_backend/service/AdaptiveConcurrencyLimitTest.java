@@ -0,0 +1,142 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.handler.timeout.ReadTimeoutException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.config.AiApiProperties;
+
+import java.net.ConnectException;
+import java.net.URI;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimitTest {
+
+    private static final long RTT_NANOS = 1_000_000_000L;
+
+    private LlmBulkhead bulkhead;
+    private AdaptiveConcurrencyLimit adaptiveLimit;
+
+    @BeforeEach
+    void setUp() {
+        AiApiProperties properties = new AiApiProperties();
+        properties.setBulkheadMaxConcurrentCalls(10);
+        properties.setAdaptiveLimitEnabled(true);
+        properties.setAdaptiveLimitMin(2);
+        properties.setAdaptiveLimitMax(20);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        bulkhead = new LlmBulkhead(properties, meterRegistry);
+        adaptiveLimit = new AdaptiveConcurrencyLimit(properties, bulkhead, meterRegistry);
+    }
+
+    @Test
+    void testStableLatency_GrowsLimitUpToMax() {
+        for (int i = 0; i < 200; i++) {
+            adaptiveLimit.onSample(RTT_NANOS, 20, false);
+        }
+
+        assertEquals(20, bulkhead.getMaxConcurrentCalls());
+    }
+
+    @Test
+    void testRisingLatency_ShrinksLimit() {
+        for (int i = 0; i < 50; i++) {
+            adaptiveLimit.onSample(RTT_NANOS, 10, false);
+        }
+        double before = adaptiveLimit.getEstimatedLimit();
+
+        for (int i = 0; i < 20; i++) {
+            adaptiveLimit.onSample(RTT_NANOS * 4, 10, false);
+        }
+
+        assertTrue(adaptiveLimit.getEstimatedLimit() < before);
+    }
+
+    @Test
+    void testDrops_BackOffToMin() {
+        for (int i = 0; i < 100; i++) {
+            adaptiveLimit.onSample(RTT_NANOS, 10, true);
+        }
+
+        assertEquals(2, bulkhead.getMaxConcurrentCalls());
+    }
+
+    @Test
+    void testIdleTraffic_DoesNotGrowLimit() {
+        for (int i = 0; i < 100; i++) {
+            adaptiveLimit.onSample(RTT_NANOS, 1, false);
+        }
+
+        assertEquals(10, bulkhead.getMaxConcurrentCalls());
+    }
+
+    @Test
+    void testMeasure_ThrottlingCountsAsDrop() {
+        WebClientResponseException tooManyRequests = WebClientResponseException.create(
+                429, "Too Many Requests", HttpHeaders.EMPTY, new byte[0], null);
+
+        assertThrows(WebClientResponseException.class,
+                () -> adaptiveLimit.measure(Mono.error(tooManyRequests)).block());
+
+        assertEquals(9.0, adaptiveLimit.getEstimatedLimit(), 0.001);
+    }
+
+    @Test
+    void testMeasure_ClientErrorIsIgnored() {
+        WebClientResponseException badRequest = WebClientResponseException.create(
+                400, "Bad Request", HttpHeaders.EMPTY, new byte[0], null);
+
+        assertThrows(WebClientResponseException.class,
+                () -> adaptiveLimit.measure(Mono.error(badRequest)).block());
+
+        assertEquals(10.0, adaptiveLimit.getEstimatedLimit(), 0.001);
+    }
+
+    @Test
+    void testMeasure_ResponseTimeoutCountsAsDrop() {
+        // What Reactor Netty raises when ai.api.response-timeout-seconds elapses
+        WebClientRequestException responseTimeout = new WebClientRequestException(ReadTimeoutException.INSTANCE,
+                HttpMethod.POST, URI.create("https://llm.api.cloud.yandex.net"), HttpHeaders.EMPTY);
+
+        assertThrows(WebClientRequestException.class,
+                () -> adaptiveLimit.measure(Mono.error(responseTimeout)).block());
+
+        assertEquals(9.0, adaptiveLimit.getEstimatedLimit(), 0.001);
+    }
+
+    @Test
+    void testMeasure_ConnectionRefusedIsIgnored() {
+        WebClientRequestException refused = new WebClientRequestException(new ConnectException("Connection refused"),
+                HttpMethod.POST, URI.create("https://llm.api.cloud.yandex.net"), HttpHeaders.EMPTY);
+
+        assertThrows(WebClientRequestException.class,
+                () -> adaptiveLimit.measure(Mono.error(refused)).block());
+
+        assertEquals(10.0, adaptiveLimit.getEstimatedLimit(), 0.001);
+    }
+
+    @Test
+    void testMeasureMany_CompletedStreamIsSampled() {
+        adaptiveLimit.measureMany(Flux.just("Хороший", " день")).blockLast();
+
+        assertTrue(adaptiveLimit.getLongRttNanos() > 0);
+    }
+
+    @Test
+    void testMeasureMany_ThrottlingMidStreamCountsAsDrop() {
+        WebClientResponseException tooManyRequests = WebClientResponseException.create(
+                429, "Too Many Requests", HttpHeaders.EMPTY, new byte[0], null);
+
+        assertThrows(WebClientResponseException.class,
+                () -> adaptiveLimit.measureMany(Flux.just("Хороший").concatWith(Flux.error(tooManyRequests))).blockLast());
+
+        assertEquals(9.0, adaptiveLimit.getEstimatedLimit(), 0.001);
+    }
+}
@@ -0,0 +1,156 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.HttpMessageWriter;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.mock.http.client.reactive.MockClientHttpRequest;
+import org.springframework.web.reactive.function.BodyInserter;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.config.AiApiProperties;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.dto.AnalysisRequest;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.dto.AnalysisResponse;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AiAnalysisServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicReference<String> sentBody = new AtomicReference<>();
+    private final AtomicReference<String> answerText = new AtomicReference<>();
+    private final AtomicReference<HttpStatus> answerStatus = new AtomicReference<>(HttpStatus.OK);
+
+    private AiApiProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private AiAnalysisService aiAnalysisService;
+
+    @BeforeEach
+    void setUp() {
+        properties = new AiApiProperties();
+        properties.setModel("gpt://folder/yandexgpt-lite/latest");
+        properties.setMaxTokens(1000);
+        properties.setTemperature(0.7);
+        properties.setStructuredOutputEnabled(true);
+        meterRegistry = new SimpleMeterRegistry();
+
+        WebClient webClient = WebClient.builder()
+                .exchangeFunction(request -> {
+                    MockClientHttpRequest written = new MockClientHttpRequest(HttpMethod.POST, "/");
+                    return request.body().insert(written, insertContext())
+                            .then(Mono.defer(() -> written.getBodyAsString()))
+                            .map(body -> {
+                                sentBody.set(body);
+                                return ClientResponse.create(answerStatus.get())
+                                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                                        .body(completion(answerText.get()))
+                                        .build();
+                            });
+                })
+                .build();
+
+        LlmBulkhead bulkhead = new LlmBulkhead(properties, meterRegistry);
+        aiAnalysisService = new AiAnalysisService(properties, webClient,
+                new AnalysisResponseCache(properties, meterRegistry), bulkhead,
+                new AdaptiveConcurrencyLimit(properties, bulkhead, meterRegistry),
+                new AnalysisMetrics(meterRegistry), new AnalysisTextParser(),
+                new YandexCompletionParser(objectMapper));
+    }
+
+    @Test
+    void testStructuredOutput_DeserializesAnswer() {
+        answerText.set("{\"rating\": 7, \"summary\": \"Спокойный день с небольшой усталостью\", "
+                + "\"recommendations\": [\"Ложитесь спать до полуночи\", \"Прогуляйтесь после работы\"]}");
+
+        AnalysisResponse response = aiAnalysisService.analyzeUserText("Сегодня был спокойный день, немного устал на работе.");
+
+        assertTrue(response.isSuccess());
+        assertEquals(7, response.getDayRating());
+        assertEquals("Спокойный день с небольшой усталостью", response.getAnalysisText());
+        assertEquals(List.of("Ложитесь спать до полуночи", "Прогуляйтесь после работы"), response.getRecommendations());
+        assertTrue(sentBody.get().contains("\"jsonObject\":true"));
+        assertTrue(sentBody.get().contains("JSON"));
+        assertEquals(1.0, meterRegistry.get("ai.analysis.structured").tags("type", "text", "result", "parsed").counter().count());
+    }
+
+    @Test
+    void testStructuredOutput_FallsBackToFreeText() {
+        answerText.set("Оценка дня: 6/10\nРекомендация 1: Сделайте перерыв и выйдите на свежий воздух");
+
+        AnalysisResponse response = aiAnalysisService.analyzeUserText("Сегодня был спокойный день, немного устал на работе.");
+
+        assertTrue(response.isSuccess());
+        assertEquals(6, response.getDayRating());
+        assertEquals(List.of("Сделайте перерыв и выйдите на свежий воздух"), response.getRecommendations());
+        assertEquals(1.0, meterRegistry.get("ai.analysis.structured").tags("type", "text", "result", "fallback").counter().count());
+    }
+
+    @Test
+    void testStructuredOutput_Disabled() {
+        properties.setStructuredOutputEnabled(false);
+        answerText.set("Спокойный день.");
+
+        AnalysisResponse response = aiAnalysisService.analyzeUserText("Сегодня был спокойный день, немного устал на работе.");
+
+        assertTrue(response.isSuccess());
+        assertEquals("Спокойный день.", response.getAnalysisText());
+        assertFalse(sentBody.get().contains("jsonObject"));
+        assertTrue(meterRegistry.find("ai.analysis.structured").counters().isEmpty());
+    }
+
+    @Test
+    void testUpstreamError_PropagatedOnlyByPropagatingVariant() {
+        answerStatus.set(HttpStatus.SERVICE_UNAVAILABLE);
+        answerText.set("Спокойный день.");
+        AnalysisRequest request = new AnalysisRequest("Сегодня был спокойный день, немного устал на работе.");
+
+        AnalysisResponse response = aiAnalysisService.analyzeUserTextReactive(request).block();
+
+        assertFalse(response.isSuccess());
+        WebClientResponseException error = assertThrows(WebClientResponseException.class,
+                () -> aiAnalysisService.analyzeUserTextPropagatingErrors(request).block());
+        assertEquals(503, error.getStatusCode().value());
+    }
+
+    private String completion(String text) {
+        try {
+            return objectMapper.writeValueAsString(Map.of("result", Map.of("alternatives",
+                    List.of(Map.of("message", Map.of("role", "assistant", "text", text))))));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static BodyInserter.Context insertContext() {
+        return new BodyInserter.Context() {
+            @Override
+            public List<HttpMessageWriter<?>> messageWriters() {
+                return ExchangeStrategies.withDefaults().messageWriters();
+            }
+
+            @Override
+            public Optional<ServerHttpRequest> serverRequest() {
+                return Optional.empty();
+            }
+
+            @Override
+            public Map<String, Object> hints() {
+                return Map.of();
+            }
+        };
+    }
+}
@@ -0,0 +1,315 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.handler.timeout.ReadTimeoutException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.dto.AnalysisJobResponse;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.dto.AnalysisRequest;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.dto.AnalysisResponse;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.entity.AnalysisJob;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.entity.AnalysisJobStatus;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.entity.DayAnalysis;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.entity.User;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.repository.AnalysisJobRepository;
+
+import java.net.URI;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AnalysisJobServiceTest {
+
+    @Mock
+    private AnalysisJobRepository analysisJobRepository;
+
+    @Mock
+    private AiAnalysisService aiAnalysisService;
+
+    @Mock
+    private DayAnalysisService dayAnalysisService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private AnalysisJobService analysisJobService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        analysisJobService = new AnalysisJobService(analysisJobRepository, aiAnalysisService, dayAnalysisService,
+                objectMapper, transactionManager, Schedulers.immediate(), true, 5, 2, 300, 5000);
+        user = new User();
+        user.setId(1);
+        user.setEmail("test@example.com");
+
+        // Unless a test says otherwise the worker still holds its claim when it finishes the job
+        lenient().when(analysisJobRepository.completeClaimedJob(anyLong(), anyInt(), any(), any(), anyLong(), anyString(), any()))
+                .thenReturn(1);
+        lenient().when(analysisJobRepository.failClaimedJob(anyLong(), anyInt(), any(), any(), anyString(), any()))
+                .thenReturn(1);
+        lenient().when(analysisJobRepository.requeueClaimedJob(anyLong(), anyInt(), any(), any(), any()))
+                .thenReturn(1);
+    }
+
+    @Test
+    void testSubmit_StoresRequestAsPendingJob() throws Exception {
+        when(analysisJobRepository.save(any(AnalysisJob.class))).thenAnswer(invocation -> {
+            AnalysisJob job = invocation.getArgument(0);
+            job.setId(10L);
+            return job;
+        });
+
+        AnalysisJob job = analysisJobService.submit(new AnalysisRequest("Текст о моём дне"), user, null);
+
+        assertEquals(10L, job.getId());
+        assertEquals(AnalysisJobStatus.PENDING, job.getStatus());
+        assertEquals("Текст о моём дне",
+                objectMapper.readValue(job.getRequestPayload(), AnalysisRequest.class).getUserText());
+    }
+
+    @Test
+    void testSubmit_RepeatedIdempotencyKeyReturnsExistingJob() throws Exception {
+        AnalysisJob existing = new AnalysisJob();
+        existing.setId(7L);
+        when(analysisJobRepository.findByUserAndIdempotencyKey(user, "key-1")).thenReturn(Optional.of(existing));
+
+        AnalysisJob job = analysisJobService.submit(new AnalysisRequest("Текст о моём дне"), user, "key-1");
+
+        assertSame(existing, job);
+        verify(analysisJobRepository, never()).save(any(AnalysisJob.class));
+    }
+
+    @Test
+    void testProcessPendingJobs_CompletesJobAndSavesAnalysis() throws Exception {
+        AnalysisJob job = pendingJob(new AnalysisRequest("Текст о моём дне"));
+        AnalysisResponse response = new AnalysisResponse();
+        response.setAnalysisText("Хороший день");
+        response.setSuccess(true);
+        response.setAnalyzedAt(ZonedDateTime.now());
+
+        when(analysisJobRepository.findReadyByStatus(eq(AnalysisJobStatus.PENDING), any(ZonedDateTime.class), any(Pageable.class)))
+                .thenReturn(List.of(job));
+        when(analysisJobRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(aiAnalysisService.analyzeUserTextPropagatingErrors(any(AnalysisRequest.class))).thenReturn(Mono.just(response));
+        DayAnalysis savedAnalysis = new DayAnalysis();
+        savedAnalysis.setId(42L);
+        when(dayAnalysisService.saveAnalysis(any(AnalysisRequest.class), eq(response), eq(user))).thenReturn(savedAnalysis);
+
+        analysisJobService.processPendingJobs();
+
+        assertEquals(AnalysisJobStatus.COMPLETED, job.getStatus());
+        assertEquals(1, job.getAttempts());
+        assertEquals(42L, job.getDayAnalysisId());
+        AnalysisJobResponse jobResponse = analysisJobService.toResponse(job);
+        assertEquals("COMPLETED", jobResponse.getStatus());
+        assertEquals("Хороший день", jobResponse.getResult().getAnalysisText());
+        assertEquals(42L, jobResponse.getResult().getId());
+    }
+
+    @Test
+    void testProcessPendingJobs_TakenOverJobRollsBackItsAnalysis() throws Exception {
+        AnalysisJob job = pendingJob(new AnalysisRequest("Текст о моём дне"));
+        AnalysisResponse response = new AnalysisResponse();
+        response.setSuccess(true);
+        SimpleTransactionStatus transaction = new SimpleTransactionStatus();
+
+        when(transactionManager.getTransaction(any())).thenReturn(transaction);
+        when(analysisJobRepository.findReadyByStatus(eq(AnalysisJobStatus.PENDING), any(ZonedDateTime.class), any(Pageable.class)))
+                .thenReturn(List.of(job));
+        when(analysisJobRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(aiAnalysisService.analyzeUserTextPropagatingErrors(any(AnalysisRequest.class))).thenReturn(Mono.just(response));
+        DayAnalysis savedAnalysis = new DayAnalysis();
+        savedAnalysis.setId(42L);
+        when(dayAnalysisService.saveAnalysis(any(AnalysisRequest.class), eq(response), eq(user))).thenReturn(savedAnalysis);
+        // The job was requeued as stale and claimed again by another worker
+        when(analysisJobRepository.completeClaimedJob(eq(1L), eq(1), eq(AnalysisJobStatus.RUNNING),
+                eq(AnalysisJobStatus.COMPLETED), eq(42L), anyString(), any(ZonedDateTime.class))).thenReturn(0);
+
+        analysisJobService.processPendingJobs();
+
+        assertTrue(transaction.isRollbackOnly());
+        assertEquals(AnalysisJobStatus.RUNNING, job.getStatus());
+        assertNull(job.getDayAnalysisId());
+    }
+
+    @Test
+    void testProcessPendingJobs_RequeuesOverloadedJobUntilMaxAttempts() {
+        AnalysisJob job = pendingJob(new AnalysisRequest("Текст о моём дне"));
+
+        when(analysisJobRepository.findReadyByStatus(eq(AnalysisJobStatus.PENDING), any(ZonedDateTime.class), any(Pageable.class)))
+                .thenReturn(List.of(job));
+        when(analysisJobRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(aiAnalysisService.analyzeUserTextPropagatingErrors(any(AnalysisRequest.class)))
+                .thenReturn(Mono.error(new LlmOverloadedException("Too many concurrent LLM calls", 10)));
+
+        ZonedDateTime failedAt = ZonedDateTime.now();
+        analysisJobService.processPendingJobs();
+        assertEquals(AnalysisJobStatus.PENDING, job.getStatus());
+        assertNull(job.getStartedAt());
+        // Retry-After of the overload (10 s) outweighs the first backoff (5 s)
+        assertFalse(job.getNotBefore().isBefore(failedAt.plusSeconds(10)));
+
+        analysisJobService.processPendingJobs();
+        assertEquals(AnalysisJobStatus.FAILED, job.getStatus());
+        assertEquals(2, job.getAttempts());
+        assertNotNull(job.getError());
+    }
+
+    @Test
+    void testProcessPendingJobs_RequeuesUpstreamFailuresUntilMaxAttempts() {
+        AnalysisJob job = pendingJob(new AnalysisRequest("Текст о моём дне"));
+        WebClientResponseException serverError = WebClientResponseException.create(
+                503, "Service Unavailable", HttpHeaders.EMPTY, new byte[0], null);
+        WebClientRequestException responseTimeout = new WebClientRequestException(ReadTimeoutException.INSTANCE,
+                HttpMethod.POST, URI.create("https://llm.api.cloud.yandex.net"), HttpHeaders.EMPTY);
+
+        when(analysisJobRepository.findReadyByStatus(eq(AnalysisJobStatus.PENDING), any(ZonedDateTime.class), any(Pageable.class)))
+                .thenReturn(List.of(job));
+        when(analysisJobRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(aiAnalysisService.analyzeUserTextPropagatingErrors(any(AnalysisRequest.class)))
+                .thenReturn(Mono.error(serverError), Mono.error(responseTimeout));
+
+        analysisJobService.processPendingJobs();
+        assertEquals(AnalysisJobStatus.PENDING, job.getStatus());
+
+        analysisJobService.processPendingJobs();
+        assertEquals(AnalysisJobStatus.FAILED, job.getStatus());
+        assertEquals(2, job.getAttempts());
+        assertEquals("Сервис анализа не ответил вовремя, попробуйте позже", job.getError());
+    }
+
+    @Test
+    void testProcessPendingJobs_RejectedRequestIsNotRetried() {
+        AnalysisJob job = pendingJob(new AnalysisRequest("Текст о моём дне"));
+        WebClientResponseException badRequest = WebClientResponseException.create(
+                400, "Bad Request", HttpHeaders.EMPTY, new byte[0], null);
+
+        when(analysisJobRepository.findReadyByStatus(eq(AnalysisJobStatus.PENDING), any(ZonedDateTime.class), any(Pageable.class)))
+                .thenReturn(List.of(job));
+        when(analysisJobRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(aiAnalysisService.analyzeUserTextPropagatingErrors(any(AnalysisRequest.class)))
+                .thenReturn(Mono.error(badRequest));
+
+        analysisJobService.processPendingJobs();
+
+        assertEquals(AnalysisJobStatus.FAILED, job.getStatus());
+        assertEquals(1, job.getAttempts());
+        assertTrue(job.getError().contains("400"));
+    }
+
+    @Test
+    void testProcessPendingJobs_InternalErrorIsNotRetried() throws Exception {
+        AnalysisJob job = pendingJob(new AnalysisRequest("Текст о моём дне"));
+        AnalysisResponse response = new AnalysisResponse();
+        response.setSuccess(true);
+
+        when(analysisJobRepository.findReadyByStatus(eq(AnalysisJobStatus.PENDING), any(ZonedDateTime.class), any(Pageable.class)))
+                .thenReturn(List.of(job));
+        when(analysisJobRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(aiAnalysisService.analyzeUserTextPropagatingErrors(any(AnalysisRequest.class))).thenReturn(Mono.just(response));
+        when(dayAnalysisService.saveAnalysis(any(AnalysisRequest.class), eq(response), eq(user)))
+                .thenThrow(new IllegalStateException("Database error"));
+
+        analysisJobService.processPendingJobs();
+
+        assertEquals(AnalysisJobStatus.FAILED, job.getStatus());
+        assertEquals(1, job.getAttempts());
+        assertNull(job.getNotBefore());
+    }
+
+    @Test
+    void testProcessPendingJobs_UnsuccessfulAnalysisFailsJob() {
+        AnalysisJob job = pendingJob(new AnalysisRequest("Текст о моём дне"));
+
+        when(analysisJobRepository.findReadyByStatus(eq(AnalysisJobStatus.PENDING), any(ZonedDateTime.class), any(Pageable.class)))
+                .thenReturn(List.of(job));
+        when(analysisJobRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(aiAnalysisService.analyzeUserTextPropagatingErrors(any(AnalysisRequest.class)))
+                .thenReturn(Mono.just(new AnalysisResponse("Ошибка при обработке ответа AI")));
+
+        analysisJobService.processPendingJobs();
+
+        assertEquals(AnalysisJobStatus.FAILED, job.getStatus());
+        assertEquals("Ошибка при обработке ответа AI", job.getError());
+        verifyNoInteractions(dayAnalysisService);
+    }
+
+    @Test
+    void testProcessPendingJobs_DoesNotWaitForRunningJobs() {
+        AnalysisJob job = pendingJob(new AnalysisRequest("Текст о моём дне"));
+        Sinks.One<AnalysisResponse> pendingAnalysis = Sinks.one();
+
+        when(analysisJobRepository.findReadyByStatus(eq(AnalysisJobStatus.PENDING), any(ZonedDateTime.class), any(Pageable.class)))
+                .thenReturn(List.of(job), List.of());
+        when(analysisJobRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(aiAnalysisService.analyzeUserTextPropagatingErrors(any(AnalysisRequest.class)))
+                .thenReturn(pendingAnalysis.asMono());
+
+        analysisJobService.processPendingJobs();
+        assertEquals(AnalysisJobStatus.RUNNING, job.getStatus());
+        assertEquals(1, analysisJobService.getInFlightJobs());
+
+        // The next poll only claims what is left of the batch
+        analysisJobService.processPendingJobs();
+        verify(analysisJobRepository).findReadyByStatus(eq(AnalysisJobStatus.PENDING), any(ZonedDateTime.class),
+                eq(PageRequest.of(0, 4)));
+
+        pendingAnalysis.tryEmitError(new LlmOverloadedException("Too many concurrent LLM calls", 10));
+        assertEquals(0, analysisJobService.getInFlightJobs());
+        assertEquals(AnalysisJobStatus.PENDING, job.getStatus());
+    }
+
+    @Test
+    void testRecoverStaleJobs_RequeuesRunningJobsAndFailsExhaustedOnes() {
+        when(analysisJobRepository.requeueStaleJobs(eq(AnalysisJobStatus.RUNNING), eq(AnalysisJobStatus.PENDING),
+                any(ZonedDateTime.class), eq(2))).thenReturn(2);
+        when(analysisJobRepository.failStaleJobs(eq(AnalysisJobStatus.RUNNING), eq(AnalysisJobStatus.FAILED),
+                any(ZonedDateTime.class), eq(2), anyString(), any(ZonedDateTime.class))).thenReturn(1);
+
+        analysisJobService.recoverStaleJobs();
+
+        verify(analysisJobRepository).requeueStaleJobs(eq(AnalysisJobStatus.RUNNING), eq(AnalysisJobStatus.PENDING),
+                any(ZonedDateTime.class), eq(2));
+        verify(analysisJobRepository).failStaleJobs(eq(AnalysisJobStatus.RUNNING), eq(AnalysisJobStatus.FAILED),
+                any(ZonedDateTime.class), eq(2), anyString(), any(ZonedDateTime.class));
+    }
+
+    private AnalysisJob pendingJob(AnalysisRequest request) {
+        AnalysisJob job = new AnalysisJob();
+        job.setId(1L);
+        job.setUser(user);
+        try {
+            job.setRequestPayload(objectMapper.writeValueAsString(request));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        return job;
+    }
+}
@@ -0,0 +1,93 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.handler.timeout.ReadTimeoutException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.dto.AnalysisRequest;
+
+import java.net.ConnectException;
+import java.net.URI;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalysisMetricsTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private AnalysisMetrics analysisMetrics;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        analysisMetrics = new AnalysisMetrics(meterRegistry);
+    }
+
+    @Test
+    void testTypeOf() {
+        AnalysisRequest checkIn = new AnalysisRequest();
+        checkIn.setCalmnessRating(3);
+        checkIn.setEnergyRating(3);
+        checkIn.setSatisfactionRating(3);
+        checkIn.setConnectionRating(3);
+        checkIn.setEngagementRating(3);
+
+        assertEquals("checkin", AnalysisMetrics.typeOf(checkIn));
+        assertEquals("text", AnalysisMetrics.typeOf(new AnalysisRequest("Текст")));
+    }
+
+    @Test
+    void testTimeUpstream_TagsSuccessAndThrottling() {
+        WebClientResponseException tooManyRequests = WebClientResponseException.create(
+                429, "Too Many Requests", HttpHeaders.EMPTY, new byte[0], null);
+
+        analysisMetrics.timeUpstream("text", Mono.just("ok")).block();
+        assertThrows(WebClientResponseException.class,
+                () -> analysisMetrics.timeUpstream("text", Mono.error(tooManyRequests)).block());
+
+        assertEquals(1, meterRegistry.get("ai.analysis.upstream").tags("type", "text", "outcome", "success").timer().count());
+        assertEquals(1, meterRegistry.get("ai.analysis.upstream").tags("type", "text", "outcome", "throttled").timer().count());
+    }
+
+    @Test
+    void testTimeUpstream_TagsResponseTimeoutAndConnectionError() {
+        URI uri = URI.create("https://llm.api.cloud.yandex.net");
+        WebClientRequestException responseTimeout = new WebClientRequestException(
+                ReadTimeoutException.INSTANCE, HttpMethod.POST, uri, HttpHeaders.EMPTY);
+        WebClientRequestException refused = new WebClientRequestException(
+                new ConnectException("Connection refused"), HttpMethod.POST, uri, HttpHeaders.EMPTY);
+
+        assertThrows(WebClientRequestException.class,
+                () -> analysisMetrics.timeUpstream("text", Mono.error(responseTimeout)).block());
+        assertThrows(WebClientRequestException.class,
+                () -> analysisMetrics.timeUpstream("text", Mono.error(refused)).block());
+
+        assertEquals(1, meterRegistry.get("ai.analysis.upstream").tags("type", "text", "outcome", "timeout").timer().count());
+        assertEquals(1, meterRegistry.get("ai.analysis.upstream").tags("type", "text", "outcome", "connection_error").timer().count());
+    }
+
+    @Test
+    void testTimeUpstream_StreamIsTimedOnce() {
+        analysisMetrics.timeUpstream("checkin", Flux.just("a", "b", "c")).blockLast();
+
+        assertEquals(1, meterRegistry.get("ai.analysis.upstream").tags("type", "checkin", "outcome", "success").timer().count());
+    }
+
+    @Test
+    void testStagesAndOutcomes() {
+        assertEquals("prompt", analysisMetrics.timePromptBuild("text", () -> "prompt"));
+        assertEquals("parsed", analysisMetrics.timeParse("text", "text", () -> "parsed"));
+        analysisMetrics.recordOutcome("text", "overloaded");
+        analysisMetrics.recordStructuredOutput("checkin", false);
+
+        assertEquals(1, meterRegistry.get("ai.analysis.prompt.build").tag("type", "text").timer().count());
+        assertEquals(1, meterRegistry.get("ai.analysis.parse").tags("type", "text", "step", "text").timer().count());
+        assertEquals(1.0, meterRegistry.get("ai.analysis.requests").tags("type", "text", "outcome", "overloaded").counter().count());
+        assertEquals(1.0, meterRegistry.get("ai.analysis.structured").tags("type", "checkin", "result", "fallback").counter().count());
+    }
+}
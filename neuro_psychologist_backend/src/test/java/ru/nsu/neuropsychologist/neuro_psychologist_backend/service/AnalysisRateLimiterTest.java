@@ -0,0 +1,150 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.config.RateLimitProperties;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.dto.AnalysisRequest;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.entity.User;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.repository.UserRepository;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.security.JwtPrincipal;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AnalysisRateLimiterTest {
+
+    private RateLimitProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private UserRepository userRepository;
+    private AnalysisRateLimiter rateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        properties = new RateLimitProperties();
+        properties.setUserTextCapacity(1);
+        properties.setUserCheckinCapacity(1);
+        meterRegistry = new SimpleMeterRegistry();
+        userRepository = mock(UserRepository.class);
+        rateLimiter = new AnalysisRateLimiter(properties, new InMemoryRateLimitStore(properties), meterRegistry,
+                userRepository);
+    }
+
+    @Test
+    void testTryAcquire_LimitsEachUserSeparately() {
+        AnalysisRequest request = new AnalysisRequest("Текст");
+
+        assertTrue(rateLimiter.tryAcquire(request, user(1)).allowed());
+        assertFalse(rateLimiter.tryAcquire(request, user(1)).allowed());
+        assertTrue(rateLimiter.tryAcquire(request, user(2)).allowed());
+        assertEquals(1.0, meterRegistry.get("ai.analysis.rate.limited")
+                .tags("scope", "user", "type", "text").counter().count());
+    }
+
+    @Test
+    void testTryAcquire_CheckInsAndTextHaveSeparateBuckets() {
+        assertTrue(rateLimiter.tryAcquire(new AnalysisRequest("Текст"), user(1)).allowed());
+        assertTrue(rateLimiter.tryAcquire(checkIn(), user(1)).allowed());
+        assertFalse(rateLimiter.tryAcquire(checkIn(), user(1)).allowed());
+    }
+
+    @Test
+    void testTryAcquire_GlobalLimitAppliesToAllUsers() {
+        properties.setGlobalTextCapacity(2);
+        AnalysisRequest request = new AnalysisRequest("Текст");
+
+        assertTrue(rateLimiter.tryAcquire(request, user(1)).allowed());
+        assertTrue(rateLimiter.tryAcquire(request, user(2)).allowed());
+        RateLimitDecision decision = rateLimiter.tryAcquire(request, user(3));
+
+        assertFalse(decision.allowed());
+        assertTrue(decision.retryAfterSeconds() >= 1);
+        assertEquals(1.0, meterRegistry.get("ai.analysis.rate.limited")
+                .tags("scope", "global", "type", "text").counter().count());
+    }
+
+    @Test
+    void testTryAcquire_UserOverLimitDoesNotSpendGlobalTokens() {
+        properties.setGlobalTextCapacity(2);
+        AnalysisRequest request = new AnalysisRequest("Текст");
+
+        rateLimiter.tryAcquire(request, user(1));
+        rateLimiter.tryAcquire(request, user(1));
+        rateLimiter.tryAcquire(request, user(1));
+
+        assertTrue(rateLimiter.tryAcquire(request, user(2)).allowed());
+    }
+
+    @Test
+    void testTryAcquire_GlobalRejectionRefundsUserToken() {
+        properties.setGlobalTextCapacity(1);
+        AnalysisRequest request = new AnalysisRequest("Текст");
+
+        assertTrue(rateLimiter.tryAcquire(request, user(1)).allowed());
+        assertFalse(rateLimiter.tryAcquire(request, user(2)).allowed());
+        assertFalse(rateLimiter.tryAcquire(request, user(2)).allowed());
+
+        // With the token refunded user 2 is still only held back by the global bucket
+        assertEquals(2.0, meterRegistry.get("ai.analysis.rate.limited")
+                .tags("scope", "global", "type", "text").counter().count());
+        assertNull(meterRegistry.find("ai.analysis.rate.limited").tags("scope", "user").counter());
+    }
+
+    @Test
+    void testTryAcquire_DisabledAllowsEverything() {
+        properties.setEnabled(false);
+        AnalysisRequest request = new AnalysisRequest("Текст");
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(rateLimiter.tryAcquire(request, user(1)).allowed());
+        }
+    }
+
+    @Test
+    void testCallerKey_UsesUserIdThenNameThenIp() {
+        User legacyUser = new User();
+        legacyUser.setId(5);
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(legacyUser));
+        Authentication byName = new UsernamePasswordAuthenticationToken("test@example.com", null, List.of());
+        Authentication unknownName = new UsernamePasswordAuthenticationToken("gone@example.com", null, List.of());
+        Authentication anonymous = new AnonymousAuthenticationToken("key", "anonymousUser",
+                AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS"));
+        MockHttpServletRequest httpRequest = new MockHttpServletRequest();
+        httpRequest.setRemoteAddr("10.0.0.7");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(httpRequest));
+
+        try {
+            assertEquals("user:1", rateLimiter.callerKey(user(1)));
+            assertEquals("user:5", rateLimiter.callerKey(byName));
+            assertEquals("user:gone@example.com", rateLimiter.callerKey(unknownName));
+            assertEquals("ip:10.0.0.7", rateLimiter.callerKey(anonymous));
+            assertEquals("ip:10.0.0.7", rateLimiter.callerKey(null));
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+    }
+
+    private static Authentication user(int id) {
+        return new UsernamePasswordAuthenticationToken(new JwtPrincipal(id, "user" + id + "@example.com"), null, List.of());
+    }
+
+    private static AnalysisRequest checkIn() {
+        AnalysisRequest request = new AnalysisRequest();
+        request.setCalmnessRating(3);
+        request.setEnergyRating(3);
+        request.setSatisfactionRating(3);
+        request.setConnectionRating(3);
+        request.setEngagementRating(3);
+        return request;
+    }
+}
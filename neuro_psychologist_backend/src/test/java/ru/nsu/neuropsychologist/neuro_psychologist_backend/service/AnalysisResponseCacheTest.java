@@ -0,0 +1,68 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.config.AiApiProperties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalysisResponseCacheTest {
+
+    private AnalysisResponseCache cache;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        AiApiProperties properties = new AiApiProperties();
+        properties.setResponseCacheEnabled(true);
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new AnalysisResponseCache(properties, meterRegistry);
+    }
+
+    @Test
+    void testKey_IgnoresCaseAndWhitespace() {
+        String key1 = cache.key("Системный промпт", "нормальный день, устал на работе", "model", 0.7);
+        String key2 = cache.key("системный   промпт ", "  Нормальный день,\nустал на работе", "model", 0.7);
+
+        assertEquals(key1, key2);
+    }
+
+    @Test
+    void testKey_DependsOnModelAndTemperature() {
+        String key = cache.key("system", "user", "model", 0.7);
+
+        assertNotEquals(key, cache.key("system", "user", "other-model", 0.7));
+        assertNotEquals(key, cache.key("system", "user", "model", 0.3));
+        assertNotEquals(key, cache.key("systemuser", "", "model", 0.7));
+    }
+
+    @Test
+    void testPutAndGet() {
+        String key = cache.key("system", "user", "model", 0.7);
+
+        assertTrue(cache.get(key).isEmpty());
+        cache.put(key, "Анализ дня");
+
+        assertEquals("Анализ дня", cache.get(key).orElseThrow());
+    }
+
+    @Test
+    void testHitAndMissMetrics() {
+        String key = cache.key("system", "user", "model", 0.7);
+        cache.get(key);
+        cache.put(key, "Анализ дня");
+        cache.get(key);
+
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    void testDisabledByDefault() {
+        AnalysisResponseCache defaultCache = new AnalysisResponseCache(new AiApiProperties(), new SimpleMeterRegistry());
+
+        assertFalse(defaultCache.isEnabled());
+        assertTrue(cache.isEnabled());
+    }
+}
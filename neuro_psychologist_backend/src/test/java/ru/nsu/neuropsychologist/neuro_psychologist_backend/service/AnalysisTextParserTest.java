@@ -0,0 +1,66 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalysisTextParserTest {
+
+    private final AnalysisTextParser parser = new AnalysisTextParser();
+
+    @Test
+    void testSentimentLexicon_CountsWordsStartingWithStems() {
+        SentimentLexicon lexicon = new SentimentLexicon(List.of("хорош", "радост"), List.of("плох", "тревожн"));
+
+        long counts = lexicon.count("Хороший день, хорошо спал. Радостно! Но вечером было плохо и тревожно.");
+
+        assertEquals(3, SentimentLexicon.positive(counts));
+        assertEquals(2, SentimentLexicon.negative(counts));
+    }
+
+    @Test
+    void testSentimentLexicon_IgnoresStemsInsideWords() {
+        SentimentLexicon lexicon = new SentimentLexicon(List.of("хорош"), List.of("плох"));
+
+        long counts = lexicon.count("нехороший неплохой");
+
+        assertEquals(0, SentimentLexicon.positive(counts));
+        assertEquals(0, SentimentLexicon.negative(counts));
+    }
+
+    @Test
+    void testSentimentLexicon_OverlappingStems() {
+        // "депрессивный" matches both stems, "депрессия" only the shorter one
+        SentimentLexicon lexicon = new SentimentLexicon(List.of("отличн"), List.of("депрессивн", "депресси", "прессинг"));
+
+        long counts = lexicon.count("депрессия, депрессивный, отлично");
+
+        assertEquals(1, SentimentLexicon.positive(counts));
+        assertEquals(3, SentimentLexicon.negative(counts));
+    }
+
+    @Test
+    void testEstimateRatingFromText() {
+        assertEquals(8, parser.estimateRatingFromText("Отличный день, я счастлив и всё было хорошо"));
+        assertEquals(3, parser.estimateRatingFromText("Ужасный день, грустно и тревожно"));
+        assertEquals(5, parser.estimateRatingFromText("Обычный день без особых событий"));
+    }
+
+    @Test
+    void testEstimateRatingFromText_ConfiguredLexicon() {
+        AnalysisTextParser customParser = new AnalysisTextParser(new String[]{"спокойн"}, new String[]{"устал"});
+
+        assertEquals(8, customParser.estimateRatingFromText("Спокойный вечер, спокойно на душе"));
+        assertEquals(3, customParser.estimateRatingFromText("Очень устала, усталость копится"));
+    }
+
+    @Test
+    void testExtractDayRating() {
+        assertEquals(7, parser.extractDayRating("Оценка дня: 7/10"));
+        assertEquals(6, parser.extractDayRating("Ставлю 6 ИЗ 10"));
+        assertEquals(4, parser.extractDayRating("Рейтинг: 4"));
+        assertNull(parser.extractDayRating("Без оценки"));
+    }
+}
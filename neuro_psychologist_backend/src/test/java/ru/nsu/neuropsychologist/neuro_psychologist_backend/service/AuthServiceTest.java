@@ -190,4 +190,18 @@ class AuthServiceTest {
         assertTrue(exception.getMessage().contains("User not found with email"));
         verify(userRepository, times(1)).findByEmail("nonexistent@example.com");
     }
-}
\ No newline at end of file
+
+    @Test
+    void testUpdatePassword_StoresRehashedPassword() {
+        // Arrange
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(testUser));
+        when(userRepository.save(testUser)).thenReturn(testUser);
+
+        // Act
+        User result = (User) authService.updatePassword(testUser, "{bcrypt}newHash");
+
+        // Assert
+        assertEquals("{bcrypt}newHash", result.getPasswordHash());
+        verify(userRepository, times(1)).save(testUser);
+    }
+}
@@ -0,0 +1,166 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.entity.DayAnalysis;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.entity.DayMetricsRollup;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.entity.User;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.repository.DayAnalysisRepository;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.repository.DayMetricsRollupRepository;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.repository.DayMetricsView;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.repository.UserRepository;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DayMetricsRollupServiceTest {
+
+    @Mock
+    private DayMetricsRollupRepository rollupRepository;
+
+    @Mock
+    private DayAnalysisRepository dayAnalysisRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private DayMetricsRollupService rollupService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        rollupService = new DayMetricsRollupService(rollupRepository, dayAnalysisRepository, userRepository,
+                transactionManager);
+        user = new User();
+        user.setId(1);
+        user.setEmail("test@example.com");
+    }
+
+    @Test
+    void testAdd_CreatesRowForFirstAnalysisOfDay() {
+        // Arrange
+        DayAnalysis analysis = createAnalysis(ZonedDateTime.now(), 7, 8);
+        LocalDate date = DayMetricsRollupService.metricDate(analysis.getAnalyzedAt());
+        when(rollupRepository.findByUserAndMetricDate(user, date)).thenReturn(Optional.empty());
+
+        // Act
+        rollupService.add(analysis);
+
+        // Assert
+        ArgumentCaptor<DayMetricsRollup> saved = ArgumentCaptor.forClass(DayMetricsRollup.class);
+        verify(userRepository).lockById(1);
+        verify(rollupRepository).save(saved.capture());
+        assertEquals(date, saved.getValue().getMetricDate());
+        assertEquals(1, saved.getValue().getAnalysisCount());
+        assertEquals(7, saved.getValue().getDayRating().getSum());
+        assertEquals(8, saved.getValue().getCalmness().getMax());
+    }
+
+    @Test
+    void testAdd_UpdatesExistingRowAndSkipsMissingRatings() {
+        // Arrange
+        DayAnalysis analysis = createAnalysis(ZonedDateTime.now(), 4, null);
+        LocalDate date = DayMetricsRollupService.metricDate(analysis.getAnalyzedAt());
+        DayMetricsRollup existing = new DayMetricsRollup(user, date);
+        existing.add(8, 6, null, null, null, null);
+        when(rollupRepository.findByUserAndMetricDate(user, date)).thenReturn(Optional.of(existing));
+
+        // Act
+        rollupService.add(analysis);
+
+        // Assert
+        verify(rollupRepository).save(existing);
+        assertEquals(2, existing.getAnalysisCount());
+        assertEquals(2, existing.getDayRating().getCount());
+        assertEquals(12, existing.getDayRating().getSum());
+        assertEquals(4, existing.getDayRating().getMin());
+        assertEquals(8, existing.getDayRating().getMax());
+        assertEquals(1, existing.getCalmness().getCount());
+        assertEquals(0, existing.getEnergy().getCount());
+        assertNull(existing.getEnergy().getMin());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRebuild_GroupsAnalysesByDay() {
+        // Arrange
+        ZonedDateTime today = ZonedDateTime.now(ZoneId.systemDefault()).withHour(12);
+        when(dayAnalysisRepository.findMetricsByUser(user)).thenReturn(List.of(
+                createView(1L, today, 6),
+                createView(2L, today.minusHours(1), 8),
+                createView(3L, today.minusDays(1), 3)));
+
+        // Act
+        int days = rollupService.rebuild(user);
+
+        // Assert
+        ArgumentCaptor<Iterable<DayMetricsRollup>> saved = ArgumentCaptor.forClass(Iterable.class);
+        verify(rollupRepository).deleteByUser(user);
+        verify(rollupRepository).saveAll(saved.capture());
+        List<DayMetricsRollup> rollups = new ArrayList<>();
+        saved.getValue().forEach(rollups::add);
+        assertEquals(2, days);
+        assertEquals(today.toLocalDate().minusDays(1), rollups.get(0).getMetricDate());
+        assertEquals(1, rollups.get(0).getAnalysisCount());
+        assertEquals(2, rollups.get(1).getAnalysisCount());
+        assertEquals(14, rollups.get(1).getDayRating().getSum());
+    }
+
+    @Test
+    void testBackfillMissing_RebuildsOnlyUsersWithoutRollup() {
+        // Arrange
+        ZonedDateTime today = ZonedDateTime.now(ZoneId.systemDefault()).withHour(12);
+        when(userRepository.findUsersWithoutMetricsRollup()).thenReturn(List.of(user));
+        when(dayAnalysisRepository.findMetricsByUser(user)).thenReturn(List.of(createView(1L, today, 6)));
+
+        // Act
+        rollupService.backfillMissing();
+
+        // Assert
+        verify(rollupRepository).deleteByUser(user);
+        verify(rollupRepository).saveAll(any());
+        verify(userRepository, never()).findAll();
+    }
+
+    @Test
+    void testBackfillMissing_SkipsWhenEveryUserHasRollup() {
+        // Arrange
+        when(userRepository.findUsersWithoutMetricsRollup()).thenReturn(List.of());
+
+        // Act
+        rollupService.backfillMissing();
+
+        // Assert
+        verifyNoInteractions(rollupRepository);
+    }
+
+    private DayAnalysis createAnalysis(ZonedDateTime analyzedAt, Integer dayRating, Integer calmnessRating) {
+        DayAnalysis analysis = new DayAnalysis();
+        analysis.setUser(user);
+        analysis.setAnalyzedAt(analyzedAt);
+        analysis.setDayRating(dayRating);
+        analysis.setCalmnessRating(calmnessRating);
+        return analysis;
+    }
+
+    private static DayMetricsView createView(Long id, ZonedDateTime analyzedAt, Integer dayRating) {
+        return new DayMetricsView(id, analyzedAt, false, dayRating, null, null, null, null, null);
+    }
+}
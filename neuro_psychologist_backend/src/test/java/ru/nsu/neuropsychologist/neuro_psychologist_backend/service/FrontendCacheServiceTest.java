@@ -0,0 +1,91 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.service;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.Resource;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrontendCacheServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path cacheDir;
+    private FrontendCacheService frontendCacheService;
+
+    @BeforeEach
+    void setUp() {
+        cacheDir = tempDir.resolve("cache");
+        // Nothing listens on port 1, so downloads fail fast
+        frontendCacheService = new FrontendCacheService(WebClient.builder(), "http://localhost:1", cacheDir.toString());
+        frontendCacheService.init();
+    }
+
+    @Test
+    void testGetFile_ServesDiskCacheAsFile() throws Exception {
+        Path bundle = Files.createDirectories(cacheDir.resolve("assets")).resolve("main.js");
+        Files.writeString(bundle, "console.log('ok')");
+
+        Resource resource = frontendCacheService.getFile("/assets/main.js");
+
+        assertNotNull(resource);
+        assertTrue(resource.isFile());
+        assertEquals(bundle.toAbsolutePath(), resource.getFile().toPath().toAbsolutePath());
+        assertSame(resource, frontendCacheService.getFile("assets/main.js"));
+    }
+
+    @Test
+    void testGetFile_DownloadsIntoDiskCache() throws Exception {
+        byte[] bundle = "x".repeat(200_000).getBytes(StandardCharsets.UTF_8);
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/dist/assets/main.js", exchange -> {
+            exchange.sendResponseHeaders(200, bundle.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(bundle);
+            }
+        });
+        server.start();
+        try {
+            FrontendCacheService service = new FrontendCacheService(WebClient.builder(),
+                    "http://localhost:" + server.getAddress().getPort() + "/dist", cacheDir.toString());
+            service.init();
+
+            Resource resource = service.getFile("/assets/main.js");
+
+            assertNotNull(resource);
+            assertTrue(resource.isFile());
+            assertArrayEquals(bundle, Files.readAllBytes(cacheDir.resolve("assets/main.js")));
+            try (var files = Files.list(cacheDir.resolve("assets"))) {
+                assertEquals(1, files.count());
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void testGetFile_RejectsPathsOutsideCache() throws Exception {
+        Files.writeString(tempDir.resolve("secret.txt"), "secret");
+
+        assertNull(frontendCacheService.getFile("/../secret.txt"));
+    }
+
+    @Test
+    void testGetFile_FailedDownloadLeavesNoFile() throws Exception {
+        assertNull(frontendCacheService.getFile("/missing.js"));
+
+        try (var files = Files.list(cacheDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+}
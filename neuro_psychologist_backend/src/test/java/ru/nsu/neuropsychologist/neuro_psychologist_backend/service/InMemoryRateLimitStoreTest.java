@@ -0,0 +1,93 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.config.RateLimitProperties;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryRateLimitStoreTest {
+
+    // 2 tokens, one more every 30 seconds
+    private static final TokenBucketLimit LIMIT = new TokenBucketLimit(2, 2);
+
+    private AtomicLong nanos;
+    private InMemoryRateLimitStore store;
+
+    @BeforeEach
+    void setUp() {
+        nanos = new AtomicLong();
+        store = new InMemoryRateLimitStore(new RateLimitProperties(), nanos::get);
+    }
+
+    @Test
+    void testTryConsume_RejectsOnceBucketIsEmpty() {
+        assertTrue(store.tryConsume("user:1:text", LIMIT).allowed());
+        assertTrue(store.tryConsume("user:1:text", LIMIT).allowed());
+
+        RateLimitDecision decision = store.tryConsume("user:1:text", LIMIT);
+
+        assertFalse(decision.allowed());
+        assertEquals(30, decision.retryAfterSeconds());
+    }
+
+    @Test
+    void testTryConsume_RefillsOverTime() {
+        store.tryConsume("user:1:text", LIMIT);
+        store.tryConsume("user:1:text", LIMIT);
+
+        advance(Duration.ofSeconds(20));
+        RateLimitDecision early = store.tryConsume("user:1:text", LIMIT);
+        advance(Duration.ofSeconds(10));
+        RateLimitDecision refilled = store.tryConsume("user:1:text", LIMIT);
+
+        assertFalse(early.allowed());
+        assertEquals(10, early.retryAfterSeconds());
+        assertTrue(refilled.allowed());
+        assertFalse(store.tryConsume("user:1:text", LIMIT).allowed());
+    }
+
+    @Test
+    void testRefund_ReturnsTokenUpToCapacity() {
+        store.tryConsume("user:1:text", LIMIT);
+        store.tryConsume("user:1:text", LIMIT);
+
+        store.refund("user:1:text", LIMIT);
+        store.refund("user:1:text", LIMIT);
+        store.refund("user:1:text", LIMIT);
+
+        assertTrue(store.tryConsume("user:1:text", LIMIT).allowed());
+        assertTrue(store.tryConsume("user:1:text", LIMIT).allowed());
+        assertFalse(store.tryConsume("user:1:text", LIMIT).allowed());
+    }
+
+    @Test
+    void testTryConsume_KeysHaveSeparateBuckets() {
+        store.tryConsume("user:1:text", LIMIT);
+        store.tryConsume("user:1:text", LIMIT);
+
+        assertFalse(store.tryConsume("user:1:text", LIMIT).allowed());
+        assertTrue(store.tryConsume("user:2:text", LIMIT).allowed());
+        assertTrue(store.tryConsume("user:1:checkin", LIMIT).allowed());
+    }
+
+    @Test
+    void testTryConsume_ForgetsBucketsOnceFull() {
+        store.tryConsume("user:1:text", LIMIT);
+        store.tryConsume("user:2:text", LIMIT);
+        assertEquals(2, store.trackedKeys());
+
+        advance(LIMIT.timeToFill().plusSeconds(1));
+
+        assertEquals(0, store.trackedKeys());
+        assertTrue(store.tryConsume("user:1:text", LIMIT).allowed());
+        assertTrue(store.tryConsume("user:1:text", LIMIT).allowed());
+    }
+
+    private void advance(Duration duration) {
+        nanos.addAndGet(duration.toNanos());
+    }
+}
@@ -0,0 +1,130 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.config.AiApiProperties;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LlmBulkheadTest {
+
+    private AiApiProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private LlmBulkhead bulkhead;
+
+    @BeforeEach
+    void setUp() {
+        properties = new AiApiProperties();
+        properties.setBulkheadMaxConcurrentCalls(1);
+        properties.setBulkheadMaxQueueSize(1);
+        properties.setBulkheadMaxWaitMs(5000);
+        properties.setBulkheadRetryAfterSeconds(7);
+        meterRegistry = new SimpleMeterRegistry();
+        bulkhead = new LlmBulkhead(properties, meterRegistry);
+    }
+
+    @Test
+    void testExecute_RunsCallAndReleasesPermit() {
+        String result = bulkhead.execute(() -> Mono.just("ok")).block();
+
+        assertEquals("ok", result);
+        assertEquals(0, bulkhead.getActiveCalls());
+    }
+
+    @Test
+    void testExecute_QueuedCallRunsAfterRelease() {
+        Sinks.One<String> first = Sinks.one();
+        AtomicReference<String> secondResult = new AtomicReference<>();
+
+        Disposable firstCall = bulkhead.execute(first::asMono).subscribe();
+        Disposable secondCall = bulkhead.execute(() -> Mono.just("second")).subscribe(secondResult::set);
+
+        assertEquals(1, bulkhead.getActiveCalls());
+        assertEquals(1, bulkhead.getQueuedCalls());
+        assertNull(secondResult.get());
+
+        first.tryEmitValue("first");
+
+        assertEquals("second", secondResult.get());
+        assertEquals(0, bulkhead.getActiveCalls());
+        assertEquals(0, bulkhead.getQueuedCalls());
+        firstCall.dispose();
+        secondCall.dispose();
+    }
+
+    @Test
+    void testExecute_RejectsWhenQueueIsFull() {
+        Disposable firstCall = bulkhead.execute(Mono::never).subscribe();
+        Disposable secondCall = bulkhead.execute(Mono::never).subscribe();
+
+        LlmOverloadedException exception = assertThrows(LlmOverloadedException.class,
+                () -> bulkhead.execute(() -> Mono.just("third")).block());
+
+        assertEquals(7, exception.getRetryAfterSeconds());
+        assertEquals(1.0, meterRegistry.get("ai.llm.bulkhead.rejected").counter().count());
+        firstCall.dispose();
+        secondCall.dispose();
+    }
+
+    @Test
+    void testExecute_TimesOutWhileQueued() {
+        properties.setBulkheadMaxWaitMs(50);
+        bulkhead = new LlmBulkhead(properties, new SimpleMeterRegistry());
+        Disposable firstCall = bulkhead.execute(Mono::never).subscribe();
+
+        assertThrows(LlmOverloadedException.class,
+                () -> bulkhead.execute(() -> Mono.just("second")).block(Duration.ofSeconds(5)));
+        assertEquals(0, bulkhead.getQueuedCalls());
+        firstCall.dispose();
+    }
+
+    @Test
+    void testCancellation_ReleasesPermitAndQueueSlot() {
+        Disposable firstCall = bulkhead.execute(Mono::never).subscribe();
+        Disposable secondCall = bulkhead.execute(Mono::never).subscribe();
+
+        secondCall.dispose();
+        assertEquals(0, bulkhead.getQueuedCalls());
+
+        firstCall.dispose();
+        assertEquals(0, bulkhead.getActiveCalls());
+        assertEquals("ok", bulkhead.execute(() -> Mono.just("ok")).block());
+    }
+
+    @Test
+    void testExecuteMany_HoldsPermitUntilStreamCompletes() {
+        Sinks.Many<String> chunks = Sinks.many().unicast().onBackpressureBuffer();
+        AtomicReference<String> queuedResult = new AtomicReference<>();
+
+        Disposable stream = bulkhead.executeMany(chunks::asFlux).subscribe();
+        chunks.tryEmitNext("chunk");
+        Disposable queuedCall = bulkhead.execute(() -> Mono.just("queued")).subscribe(queuedResult::set);
+
+        assertEquals(1, bulkhead.getQueuedCalls());
+        assertNull(queuedResult.get());
+
+        chunks.tryEmitComplete();
+
+        assertEquals("queued", queuedResult.get());
+        assertEquals(0, bulkhead.getActiveCalls());
+        assertEquals(List.of("a", "b"), bulkhead.executeMany(() -> Flux.just("a", "b")).collectList().block());
+        stream.dispose();
+        queuedCall.dispose();
+    }
+
+    @Test
+    void testGaugesAreRegistered() {
+        assertEquals(1.0, meterRegistry.get("ai.llm.bulkhead.max.concurrent").gauge().value());
+        assertEquals(1.0, meterRegistry.get("ai.llm.bulkhead.max.queue").gauge().value());
+        assertEquals(0.0, meterRegistry.get("ai.llm.bulkhead.active").gauge().value());
+    }
+}
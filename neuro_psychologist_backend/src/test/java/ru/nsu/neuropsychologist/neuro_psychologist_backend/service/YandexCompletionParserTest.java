@@ -0,0 +1,84 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.dto.AnalysisResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class YandexCompletionParserTest {
+
+    private static final String RESPONSE = """
+            {"result":{"alternatives":[{"message":{"role":"assistant","text":"Спокойный день.\\nОценка: 7/10"},"status":"ALTERNATIVE_STATUS_FINAL"}],\
+            "usage":{"inputTextTokens":"120","completionTokens":"40","totalTokens":"160"},"modelVersion":"23.10.2024"}}""";
+
+    private final YandexCompletionParser parser = new YandexCompletionParser(new ObjectMapper());
+
+    @Test
+    void testExtractText_FromString() {
+        assertEquals("Спокойный день.\nОценка: 7/10", parser.extractText(RESPONSE));
+    }
+
+    @Test
+    void testExtractText_FromDataBufferReleasesIt() {
+        NettyDataBuffer buffer = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT)
+                .allocateBuffer(RESPONSE.length() * 2);
+        buffer.write(RESPONSE, StandardCharsets.UTF_8);
+
+        assertEquals("Спокойный день.\nОценка: 7/10", parser.extractText(buffer));
+        assertEquals(0, buffer.getNativeBuffer().refCnt());
+    }
+
+    @Test
+    void testExtractText_SkipsUnrelatedFieldsAndStopsAfterText() {
+        // Fields before the answer are skipped; whatever follows the text is never read
+        String response = "{\"id\":{\"nested\":[1,2,{\"text\":\"не то\"}]},\"result\":{\"usage\":{},"
+                + "\"alternatives\":[{\"status\":\"FINAL\",\"message\":{\"text\":\"Ответ\"}}, <truncated";
+
+        assertEquals("Ответ", parser.extractText(response));
+    }
+
+    @Test
+    void testExtractText_FallsBackForNonJson() {
+        DataBuffer buffer = DefaultDataBufferFactory.sharedInstance
+                .wrap("Просто текст без JSON".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("Просто текст без JSON", parser.extractText(buffer));
+        assertEquals("Частичный", parser.extractText("{\"text\":\"Частичный\", oops"));
+    }
+
+    @Test
+    void testExtractText_EmptyAlternativesFallsBack() {
+        assertEquals("{\"result\":{\"alternatives\":[]}}", parser.extractText("{\"result\":{\"alternatives\":[]}}"));
+        assertEquals("", parser.extractText("{\"result\":{\"alternatives\":[{\"status\":\"FINAL\"}]}}"));
+    }
+
+    @Test
+    void testParseStructuredAnswer() {
+        AnalysisResponse answer = parser.parseStructuredAnswer("""
+                ```json
+                {"rating": 8, "summary": "Хороший день", "recommendations": ["Продолжайте прогулки"], "mood": "calm"}
+                ```""");
+
+        assertNotNull(answer);
+        assertEquals(8, answer.getDayRating());
+        assertEquals("Хороший день", answer.getAnalysisText());
+        assertEquals(List.of("Продолжайте прогулки"), answer.getRecommendations());
+    }
+
+    @Test
+    void testParseStructuredAnswer_RejectsAnswersOutsideSchema() {
+        assertNull(parser.parseStructuredAnswer("Оценка дня: 7/10"));
+        assertNull(parser.parseStructuredAnswer("{\"rating\": 7, \"summary\": \"Текст\""));
+        assertNull(parser.parseStructuredAnswer("{\"rating\": 12, \"summary\": \"Текст\", \"recommendations\": [\"Совет\"]}"));
+        assertNull(parser.parseStructuredAnswer("{\"rating\": 7, \"summary\": \"Текст\", \"recommendations\": []}"));
+    }
+}
@@ -0,0 +1,94 @@
+package ru.nsu.neuropsychologist.neuro_psychologist_backend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.config.AiApiProperties;
+import ru.nsu.neuropsychologist.neuro_psychologist_backend.loadtest.MockYandexGptServer;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class YandexIamTokenServiceTest {
+
+    private MockYandexGptServer mockServer;
+    private YandexIamTokenService iamTokenService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        mockServer = new MockYandexGptServer(new MockYandexGptServer.Settings(0, 0, 0, 0, 0, 1, 0, 42)).start();
+        AiApiProperties properties = new AiApiProperties();
+        properties.setIamTokenUrl(mockServer.iamTokenUrl());
+        properties.setSaKeyFile(MockYandexGptServer.writeServiceAccountKey().toString());
+        iamTokenService = new YandexIamTokenService(properties, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        mockServer.close();
+    }
+
+    @Test
+    void testGetIamToken_ExchangesOnceAndCaches() {
+        String first = iamTokenService.getIamToken();
+        String second = iamTokenService.getIamToken();
+
+        assertEquals(first, second);
+        assertEquals(1, mockServer.getTokenExchanges());
+    }
+
+    @Test
+    void testGetIamToken_ConcurrentColdStartDoesNotPinVirtualThreads() throws Exception {
+        assumeTrue(Runtime.version().feature() >= 21, "virtual threads need Java 21");
+        int callers = 50;
+        VirtualThreadTaskExecutor executor = new VirtualThreadTaskExecutor("iam-test-");
+        CountDownLatch go = new CountDownLatch(1);
+        List<CompletableFuture<String>> tokens = new ArrayList<>();
+
+        Path dump = Files.createTempFile("iam-pinning", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("jdk.VirtualThreadPinned").withoutThreshold();
+            recording.start();
+            for (int i = 0; i < callers; i++) {
+                tokens.add(CompletableFuture.supplyAsync(() -> {
+                    awaitQuietly(go);
+                    return iamTokenService.getIamToken();
+                }, executor));
+            }
+            go.countDown();
+            CompletableFuture.allOf(tokens.toArray(CompletableFuture[]::new)).join();
+            recording.stop();
+            recording.dump(dump);
+        }
+
+        List<RecordedEvent> pinned = RecordingFile.readAllEvents(dump);
+        Files.deleteIfExists(dump);
+
+        Set<String> distinctTokens = tokens.stream().map(CompletableFuture::join).collect(Collectors.toSet());
+        assertEquals(1, distinctTokens.size());
+        assertEquals(1, mockServer.getTokenExchanges());
+        assertTrue(pinned.isEmpty(), "IAM token lookup pinned virtual threads: " + pinned);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
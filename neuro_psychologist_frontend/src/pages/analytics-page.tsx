@@ -1,11 +1,11 @@
 import { useState, useEffect } from 'react';
 import Header from '../components/Header';
 import { AnalyticsService } from '../services/analytics.service';
-import type { MetricsData } from '../services/analytics.service';
+import type { DailyMetricsData, RatingSummary } from '../services/analytics.service';
 import '../styles/Analytics.css';
 
 const AnalyticsPage = () => {
-  const [metrics, setMetrics] = useState<MetricsData[]>([]);
+  const [metrics, setMetrics] = useState<DailyMetricsData[]>([]);
   const [loading, setLoading] = useState(true);
   const [error, setError] = useState<string | null>(null);
   const [startDate, setStartDate] = useState('');
@@ -32,7 +32,7 @@ const AnalyticsPage = () => {
     setLoading(true);
     setError(null);
     try {
-      const data = await AnalyticsService.getMetrics(startDate, endDate);
+      const data = await AnalyticsService.getDailyMetrics(startDate, endDate);
       setMetrics(data);
     } catch (err) {
       setError('Не удалось загрузить данные. Попробуйте снова.');
@@ -42,49 +42,39 @@ const AnalyticsPage = () => {
     }
   };
 
-  // Calculate averages for check-in metrics
+  // Check-in ratings are only counted on days that have them
+  const checkInDays = metrics.filter(m => m.calmness.count > 0);
+
+  // Averages over the whole range: total sum over total count, not an average of daily averages
   const calculateAverages = () => {
-    const checkIns = metrics.filter(m => m.isCheckin);
-    if (checkIns.length === 0) return null;
+    if (checkInDays.length === 0) return null;
 
-    const sum = {
-      calmness: 0,
-      energy: 0,
-      satisfaction: 0,
-      connection: 0,
-      engagement: 0,
+    const average = (pick: (m: DailyMetricsData) => RatingSummary) => {
+      const count = checkInDays.reduce((total, m) => total + pick(m).count, 0);
+      const sum = checkInDays.reduce((total, m) => total + pick(m).sum, 0);
+      return (count === 0 ? 0 : sum / count).toFixed(1);
     };
 
-    checkIns.forEach(m => {
-      sum.calmness += m.calmnessRating || 0;
-      sum.energy += m.energyRating || 0;
-      sum.satisfaction += m.satisfactionRating || 0;
-      sum.connection += m.connectionRating || 0;
-      sum.engagement += m.engagementRating || 0;
-    });
-
     return {
-      calmness: (sum.calmness / checkIns.length).toFixed(1),
-      energy: (sum.energy / checkIns.length).toFixed(1),
-      satisfaction: (sum.satisfaction / checkIns.length).toFixed(1),
-      connection: (sum.connection / checkIns.length).toFixed(1),
-      engagement: (sum.engagement / checkIns.length).toFixed(1),
+      calmness: average(m => m.calmness),
+      energy: average(m => m.energy),
+      satisfaction: average(m => m.satisfaction),
+      connection: average(m => m.connection),
+      engagement: average(m => m.engagement),
     };
   };
 
   const averages = calculateAverages();
 
-  // Prepare data for charts
+  // Prepare data for charts: one point per day, days arrive oldest first
   const prepareChartData = () => {
-    const checkIns = metrics.filter(m => m.isCheckin).reverse(); // Reverse to show oldest first
-    
     return {
-      dates: checkIns.map(m => new Date(m.analyzedAt).toLocaleDateString('ru-RU', { day: 'numeric', month: 'short' })),
-      calmness: checkIns.map(m => m.calmnessRating || 0),
-      energy: checkIns.map(m => m.energyRating || 0),
-      satisfaction: checkIns.map(m => m.satisfactionRating || 0),
-      connection: checkIns.map(m => m.connectionRating || 0),
-      engagement: checkIns.map(m => m.engagementRating || 0),
+      dates: checkInDays.map(m => new Date(`${m.date}T00:00:00`).toLocaleDateString('ru-RU', { day: 'numeric', month: 'short' })),
+      calmness: checkInDays.map(m => Number((m.calmness.average || 0).toFixed(1))),
+      energy: checkInDays.map(m => Number((m.energy.average || 0).toFixed(1))),
+      satisfaction: checkInDays.map(m => Number((m.satisfaction.average || 0).toFixed(1))),
+      connection: checkInDays.map(m => Number((m.connection.average || 0).toFixed(1))),
+      engagement: checkInDays.map(m => Number((m.engagement.average || 0).toFixed(1))),
     };
   };
 
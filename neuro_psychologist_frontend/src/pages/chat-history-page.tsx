@@ -5,14 +5,22 @@ import { chatService } from '../services/chat.service';
 import type { ChatHistoryItem } from '../types/chat-history.types';
 import '../styles/ChatHistory.css';
 
+const PAGE_SIZE = 10;
+
 const ChatHistoryPage: React.FC = () => {
   const navigate = useNavigate();
   const [history, setHistory] = useState<ChatHistoryItem[]>([]);
   const [loading, setLoading] = useState(true);
   const [error, setError] = useState<string | null>(null);
   const [currentPage, setCurrentPage] = useState(0);
-  const [totalPages, setTotalPages] = useState(0);
+  // cursors[i] is the position page i starts after; the first page needs none
+  const [cursors, setCursors] = useState<(string | undefined)[]>([undefined]);
+  const [hasNext, setHasNext] = useState(false);
+  const [totalPages, setTotalPages] = useState<number | null>(null);
   const [expandedId, setExpandedId] = useState<number | null>(null);
+  // The list has ratings only; texts and the analysis are loaded when an entry is opened
+  const [details, setDetails] = useState<Record<number, ChatHistoryItem>>({});
+  const [detailError, setDetailError] = useState<number | null>(null);
 
   useEffect(() => {
     loadHistory();
@@ -22,9 +30,25 @@ const ChatHistoryPage: React.FC = () => {
     try {
       setLoading(true);
       setError(null);
-      const response = await chatService.getChatHistory({ page: currentPage, size: 10 });
+      const response = await chatService.getChatHistory({
+        cursor: cursors[currentPage],
+        size: PAGE_SIZE,
+        // Counting is only needed once to show the number of pages
+        includeTotal: totalPages === null,
+      });
       setHistory(response.content);
-      setTotalPages(response.totalPages);
+      setHasNext(response.hasNext);
+      if (response.totalItems !== undefined) {
+        setTotalPages(Math.ceil(response.totalItems / PAGE_SIZE));
+      }
+      const nextCursor = response.nextCursor;
+      if (nextCursor) {
+        setCursors(prev => {
+          const updated = prev.slice(0, currentPage + 1);
+          updated[currentPage + 1] = nextCursor;
+          return updated;
+        });
+      }
     } catch (err) {
       setError('Не удалось загрузить историю чатов');
       console.error('Error loading chat history:', err);
@@ -50,8 +74,69 @@ const ChatHistoryPage: React.FC = () => {
     return '#f87171';
   };
 
-  const toggleExpand = (id: number) => {
-    setExpandedId(expandedId === id ? null : id);
+  const toggleExpand = async (id: number) => {
+    if (expandedId === id) {
+      setExpandedId(null);
+      return;
+    }
+    setExpandedId(id);
+    setDetailError(null);
+    if (details[id]) {
+      return;
+    }
+    try {
+      const entry = await chatService.getChatHistoryEntry(id);
+      setDetails(prev => ({ ...prev, [id]: entry }));
+    } catch (err) {
+      setDetailError(id);
+      console.error('Error loading chat history entry:', err);
+    }
+  };
+
+  const renderDetails = (entry: ChatHistoryItem) => {
+    const analysisText = entry.analysisText ?? entry.llmResponse;
+    return (
+      <div className="border-t border-surface-primary p-6 bg-surface-secondary">
+        <div className="space-y-4">
+          <div>
+            <h4 className="text-text-primary font-semibold mb-2">Текущее состояние:</h4>
+            <p className="text-text-secondary">{entry.currentStateText}</p>
+          </div>
+          <div>
+            <h4 className="text-text-primary font-semibold mb-2">Моменты энергии:</h4>
+            <p className="text-text-secondary">{entry.energyMomentsText}</p>
+          </div>
+          <div>
+            <h4 className="text-text-primary font-semibold mb-2">Чего не хватает:</h4>
+            <p className="text-text-secondary">{entry.missingElementText}</p>
+          </div>
+
+          {analysisText && (
+            <div className="mt-6 pt-6 border-t border-surface-primary">
+              <h4 className="text-text-primary font-semibold mb-3 flex items-center gap-2">
+                <span>✨</span>
+                <span>Анализ:</span>
+              </h4>
+              <p className="text-text-secondary whitespace-pre-line">{analysisText}</p>
+            </div>
+          )}
+
+          {entry.recommendations && entry.recommendations.length > 0 && (
+            <div className="mt-4">
+              <h4 className="text-text-primary font-semibold mb-3">Рекомендации:</h4>
+              <ul className="space-y-2">
+                {entry.recommendations.map((rec, index) => (
+                  <li key={index} className="flex items-start gap-2 text-text-secondary">
+                    <span className="text-brand-primary font-bold">{index + 1}.</span>
+                    <span>{rec}</span>
+                  </li>
+                ))}
+              </ul>
+            </div>
+          )}
+        </div>
+      </div>
+    );
   };
 
   return (
@@ -177,53 +262,22 @@ const ChatHistoryPage: React.FC = () => {
                         </div>
                       </div>
 
-                      {expandedId === item.id && (
-                        <div className="border-t border-surface-primary p-6 bg-surface-secondary">
-                          <div className="space-y-4">
-                            <div>
-                              <h4 className="text-text-primary font-semibold mb-2">Текущее состояние:</h4>
-                              <p className="text-text-secondary">{item.currentStateText}</p>
-                            </div>
-                            <div>
-                              <h4 className="text-text-primary font-semibold mb-2">Моменты энергии:</h4>
-                              <p className="text-text-secondary">{item.energyMomentsText}</p>
-                            </div>
-                            <div>
-                              <h4 className="text-text-primary font-semibold mb-2">Чего не хватает:</h4>
-                              <p className="text-text-secondary">{item.missingElementText}</p>
-                            </div>
-                            
-                            {item.analysisText && (
-                              <div className="mt-6 pt-6 border-t border-surface-primary">
-                                <h4 className="text-text-primary font-semibold mb-3 flex items-center gap-2">
-                                  <span>✨</span>
-                                  <span>Анализ:</span>
-                                </h4>
-                                <p className="text-text-secondary whitespace-pre-line">{item.analysisText}</p>
-                              </div>
-                            )}
-                            
-                            {item.recommendations && item.recommendations.length > 0 && (
-                              <div className="mt-4">
-                                <h4 className="text-text-primary font-semibold mb-3">Рекомендации:</h4>
-                                <ul className="space-y-2">
-                                  {item.recommendations.map((rec, index) => (
-                                    <li key={index} className="flex items-start gap-2 text-text-secondary">
-                                      <span className="text-brand-primary font-bold">{index + 1}.</span>
-                                      <span>{rec}</span>
-                                    </li>
-                                  ))}
-                                </ul>
-                              </div>
-                            )}
-                          </div>
+                      {expandedId === item.id && !details[item.id] && (
+                        <div className="border-t border-surface-primary p-6 bg-surface-secondary text-center">
+                          {detailError === item.id ? (
+                            <p className="text-red-600 font-medium">Не удалось загрузить запись</p>
+                          ) : (
+                            <div className="loading-spinner"></div>
+                          )}
                         </div>
                       )}
+
+                      {expandedId === item.id && details[item.id] && renderDetails(details[item.id])}
                     </div>
                   ))}
                 </div>
 
-                {totalPages > 1 && (
+                {(currentPage > 0 || hasNext) && (
                   <div className="mt-8 flex justify-center items-center gap-2">
                     <button
                       onClick={() => setCurrentPage(prev => Math.max(0, prev - 1))}
@@ -233,11 +287,11 @@ const ChatHistoryPage: React.FC = () => {
                       ← Назад
                     </button>
                     <span className="px-4 py-2 text-text-secondary">
-                      Страница {currentPage + 1} из {totalPages}
+                      Страница {currentPage + 1}{totalPages ? ` из ${totalPages}` : ''}
                     </span>
                     <button
-                      onClick={() => setCurrentPage(prev => Math.min(totalPages - 1, prev + 1))}
-                      disabled={currentPage >= totalPages - 1}
+                      onClick={() => setCurrentPage(prev => prev + 1)}
+                      disabled={!hasNext}
                       className="px-4 py-2 rounded-lg bg-background-secondary text-text-primary font-medium disabled:opacity-50 disabled:cursor-not-allowed hover:bg-surface-secondary transition-colors"
                     >
                       Вперёд →
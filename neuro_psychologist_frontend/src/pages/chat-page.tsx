@@ -163,9 +163,25 @@ const ChatPage = () => {
         missingElementText: inputValue
       };
 
-      const response = await chatService.submitCheckIn(checkInData);
-      
+      // Показываем текст анализа по мере генерации
+      const streamingId = `stream-${Date.now()}`;
+      let streamedText = '';
+      const response = await chatService.streamCheckIn(checkInData, (chunk) => {
+        streamedText += chunk;
+        const text = streamedText;
+        setMessages(prev => {
+          const existing = prev.find(message => message.id === streamingId);
+          if (existing) {
+            return prev.map(message => message.id === streamingId ? { ...message, text } : message);
+          }
+          return [...prev, { id: streamingId, text, isUser: false, timestamp: new Date() }];
+        });
+      });
+
       setTimeout(() => {
+        // Итоговое сообщение заменяет потоковый черновик
+        setMessages(prev => prev.filter(message => message.id !== streamingId));
+
         if (response.success) {
           // Формируем итоговое сообщение с обзором и рекомендациями
           let finalMessage = '✨ **Обзор вашего дня**\n\n';
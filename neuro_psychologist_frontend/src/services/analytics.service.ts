@@ -12,6 +12,25 @@ export interface MetricsData {
   dayRating?: number;
 }
 
+export interface RatingSummary {
+  count: number;
+  sum: number;
+  average: number | null;
+  min: number | null;
+  max: number | null;
+}
+
+export interface DailyMetricsData {
+  date: string;
+  analysisCount: number;
+  dayRating: RatingSummary;
+  calmness: RatingSummary;
+  energy: RatingSummary;
+  satisfaction: RatingSummary;
+  connection: RatingSummary;
+  engagement: RatingSummary;
+}
+
 export class AnalyticsService {
   static async getMetrics(startDate?: string, endDate?: string): Promise<MetricsData[]> {
     const token = localStorage.getItem('authToken');
@@ -37,4 +56,30 @@ export class AnalyticsService {
     
     return response.json();
   }
-}
\ No newline at end of file
+
+  // One pre-aggregated row per day, however many analyses the range holds
+  static async getDailyMetrics(startDate?: string, endDate?: string): Promise<DailyMetricsData[]> {
+    const token = localStorage.getItem('authToken');
+    
+    const params = new URLSearchParams();
+    if (startDate) params.append('startDate', startDate);
+    if (endDate) params.append('endDate', endDate);
+    
+    const url = `${API_BASE_URL}/metrics/daily${params.toString() ? `?${params.toString()}` : ''}`;
+    
+    const response = await fetch(url, {
+      method: 'GET',
+      headers: {
+        'Authorization': `Bearer ${token}`,
+        'Content-Type': 'application/json',
+      },
+    });
+    
+    if (!response.ok) {
+      const error = await response.json();
+      throw new Error(error.error || 'Failed to fetch metrics');
+    }
+    
+    return response.json();
+  }
+}
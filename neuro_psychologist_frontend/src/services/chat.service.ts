@@ -1,4 +1,4 @@
-import type { ChatHistoryResponse, ChatHistoryParams } from '../types/chat-history.types';
+import type { ChatHistoryItem, ChatHistoryResponse, ChatHistoryParams } from '../types/chat-history.types';
 
 const API_URL = 'http://localhost:8080/api';
 
@@ -77,6 +77,75 @@ export const chatService = {
     return response.json();
   },
 
+  /**
+   * Отправляет чекап на потоковый анализ: onChunk вызывается с каждым новым фрагментом текста,
+   * а промис завершается сохранённым результатом из события "done".
+   */
+  async streamCheckIn(checkInData: CheckInData, onChunk: (text: string) => void): Promise<AnalysisResponse> {
+    const token = localStorage.getItem('authToken');
+
+    if (!token) {
+      throw new Error('No authentication token found');
+    }
+
+    const response = await fetch(`${API_URL}/analysis/analyze/stream`, {
+      method: 'POST',
+      headers: {
+        'Content-Type': 'application/json',
+        'Accept': 'text/event-stream',
+        'Authorization': `Bearer ${token}`
+      },
+      body: JSON.stringify(checkInData)
+    });
+
+    if (!response.ok || !response.body) {
+      throw new Error('Failed to submit check-in');
+    }
+
+    const reader = response.body.getReader();
+    const decoder = new TextDecoder();
+    let buffer = '';
+
+    while (true) {
+      const { done, value } = await reader.read();
+      if (done) {
+        break;
+      }
+      buffer += decoder.decode(value, { stream: true });
+
+      // События разделяются пустой строкой
+      let boundary = buffer.indexOf('\n\n');
+      while (boundary !== -1) {
+        const rawEvent = buffer.slice(0, boundary);
+        buffer = buffer.slice(boundary + 2);
+        boundary = buffer.indexOf('\n\n');
+
+        let eventName = 'message';
+        const dataLines: string[] = [];
+        for (const line of rawEvent.split('\n')) {
+          if (line.startsWith('event:')) {
+            eventName = line.slice(6).trim();
+          } else if (line.startsWith('data:')) {
+            dataLines.push(line.slice(5));
+          }
+        }
+        if (dataLines.length === 0) {
+          continue;
+        }
+
+        const data = JSON.parse(dataLines.join('\n'));
+        if (eventName === 'chunk') {
+          onChunk(data.text);
+        } else if (eventName === 'done' || eventName === 'error') {
+          await reader.cancel();
+          return data as AnalysisResponse;
+        }
+      }
+    }
+
+    throw new Error('Stream ended without a result');
+  },
+
   async getChatHistory(params?: ChatHistoryParams): Promise<ChatHistoryResponse> {
     const token = localStorage.getItem('authToken');
     
@@ -84,15 +153,19 @@ export const chatService = {
       throw new Error('No authentication token found');
     }
 
-    const queryParams = new URLSearchParams();
-    if (params?.page !== undefined) {
-      queryParams.append('page', params.page.toString());
+    // Without mode=keyset the first page would come back in the old offset shape
+    const queryParams = new URLSearchParams({ mode: 'keyset' });
+    if (params?.cursor) {
+      queryParams.append('cursor', params.cursor);
     }
     if (params?.size !== undefined) {
       queryParams.append('size', params.size.toString());
     }
+    if (params?.includeTotal) {
+      queryParams.append('includeTotal', 'true');
+    }
 
-    const url = `${API_URL}/analysis/history${queryParams.toString() ? `?${queryParams.toString()}` : ''}`;
+    const url = `${API_URL}/analysis/history?${queryParams.toString()}`;
 
     const response = await fetch(url, {
       method: 'GET',
@@ -105,6 +178,27 @@ export const chatService = {
       throw new Error('Failed to fetch chat history');
     }
 
+    return response.json();
+  },
+
+  async getChatHistoryEntry(id: number): Promise<ChatHistoryItem> {
+    const token = localStorage.getItem('authToken');
+
+    if (!token) {
+      throw new Error('No authentication token found');
+    }
+
+    const response = await fetch(`${API_URL}/analysis/history/${id}`, {
+      method: 'GET',
+      headers: {
+        'Authorization': `Bearer ${token}`
+      }
+    });
+
+    if (!response.ok) {
+      throw new Error('Failed to fetch chat history entry');
+    }
+
     return response.json();
   }
 };
\ No newline at end of file
@@ -12,19 +12,25 @@ export interface ChatHistoryItem {
   dayRating: number | null;
   recommendations: string[] | null;
   analysisText: string | null;
+  // Texts and the model's answer only come with a single entry (GET /analysis/history/{id})
+  userText?: string | null;
+  llmResponse?: string | null;
   analyzedAt: string;
   createdAt: string;
 }
 
 export interface ChatHistoryResponse {
   content: ChatHistoryItem[];
-  totalElements: number;
-  totalPages: number;
-  currentPage: number;
-  pageSize: number;
+  size: number;
+  hasNext: boolean;
+  // Opaque position of the next page, present while hasNext is true
+  nextCursor?: string;
+  // Only returned when requested with includeTotal
+  totalItems?: number;
 }
 
 export interface ChatHistoryParams {
-  page?: number;
+  cursor?: string;
   size?: number;
-}
\ No newline at end of file
+  includeTotal?: boolean;
+}